@@ -0,0 +1,80 @@
+package ajag.projects.restaurant_reservation_service.capacity;
+
+import ajag.projects.restaurant_reservation_service.dtos.AvailableSlot;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** This benchmark measures the latency of searching the first 5 times a party of 6 can be booked within the next searchDays days,
+ * while the evenings of the whole booking horizon are mostly full (200k bookings of 1 to 8 guests between 17:00 and 22:00).
+ * The search on the segment trees of the {@link SeatCapacityEngine} is compared to checking the seats of every slot one by one. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AvailabilitySearchBenchmark {
+
+    private static final int GUESTS = 6;
+    private static final int LIMIT = 5;
+
+    @Param({"7", "30"})
+    public int searchDays;
+
+    private SeatCapacityEngine engine;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new SeatCapacityEngine(Clock.systemDefaultZone(), 60, Duration.ofMinutes(30), Duration.ofHours(2), 366);
+        today = LocalDate.now();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 200_000; i++) {
+            LocalDateTime evening = today.plusDays(1 + random.nextInt(364)).atTime(17, 0).plusMinutes(30L * random.nextInt(10));
+            engine.tryBook(new SeatBooking(evening, 1 + random.nextInt(8)));
+        }
+    }
+
+    @Benchmark
+    public List<AvailableSlot> segmentTreeSearch() {
+        LocalDateTime from = randomFrom();
+        return engine.findAvailableSlots(from, from.plusDays(searchDays), GUESTS, LIMIT);
+    }
+
+    @Benchmark
+    public List<AvailableSlot> slotBySlotSearch() {
+        LocalDateTime from = randomFrom();
+        LocalDateTime until = from.plusDays(searchDays);
+        Duration slotLength = engine.getSlotLength();
+        List<AvailableSlot> availableSlots = new ArrayList<>(LIMIT);
+        for (LocalDateTime start = from; start.isBefore(until) && availableSlots.size() < LIMIT; start = start.plus(slotLength)) {
+            int mostBooked = 0;
+            for (LocalDateTime slot = start; slot.isBefore(start.plusHours(2)); slot = slot.plus(slotLength)) {
+                mostBooked = Math.max(mostBooked, engine.getBookedSeats(slot));
+            }
+            if (mostBooked + GUESTS <= engine.getSeatsPerSlot()) {
+                availableSlots.add(new AvailableSlot(start, engine.getSeatsPerSlot() - mostBooked));
+            }
+        }
+        return availableSlots;
+    }
+
+    /** A search starting at 17:00 on one of the next 300 days, so it has to skip the full evenings. */
+    private LocalDateTime randomFrom() {
+        return today.plusDays(1 + ThreadLocalRandom.current().nextInt(300)).atTime(17, 0);
+    }
+}
@@ -0,0 +1,154 @@
+package ajag.projects.restaurant_reservation_service.controllers;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+
+import com.sun.management.OperatingSystemMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/** This benchmark measures the polling of the reservation list and of the customer lookup, the way the mobile app does it,
+ * over HTTP against the application running on a random port, with 10 and 100 reservations in the list:
+ * (1) without the ETag, so every poll reads and sends the whole list, and
+ * (2) with the ETag of the previous poll (If-None-Match), so an unchanged list or customer is answered 304 Not Modified.
+ * Nothing changes while polling, as in the app where almost every poll is unchanged.
+ * Besides the polls per second, the "responseBytes" counter is the bandwidth (headers and body received per second)
+ * and the "cpuNanos" counter is the CPU time of the process per second, server and client together.
+ * Divided by the polls per second, they are the bytes and the CPU time of one poll. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConditionalGetBenchmark {
+
+    @Param({"10", "100"})
+    public int reservations;
+
+    private final OperatingSystemMXBean operatingSystem = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private HttpClient httpClient;
+    private URI reservationsUri;
+    private URI customerUri;
+    private String reservationsETag;
+    private String customerETag;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.SERVLET)
+            .properties(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:conditional-get-benchmark;DB_CLOSE_DELAY=-1",
+                "logging.level.root=WARN")
+            .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        jdbcTemplate.update("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES ('John', 'john@example.com', '09222222222', 'EMAIL')");
+        Long customerId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM customers", Long.class);
+        for (int i = 0; i < reservations; i++) {
+            jdbcTemplate.update("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+                    + "VALUES (?, ?, 2, 'CONFIRMED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)",
+                customerId, Timestamp.valueOf(LocalDateTime.now().plusDays(1).plusMinutes(i)));
+        }
+
+        String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        reservationsUri = URI.create(baseUri + "/reservations/customer/" + customerId);
+        customerUri = URI.create(baseUri + "/customers/john@example.com");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        reservationsETag = send(reservationsUri, null).headers().firstValue("ETag").orElseThrow();
+        customerETag = send(customerUri, null).headers().firstValue("ETag").orElseThrow();
+    }
+
+    /** The traffic and CPU time of the polls of one thread, reported per second by JMH. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Traffic {
+        public long responseBytes;
+        public long cpuNanos;
+    }
+
+    @Benchmark
+    public int pollReservations(Traffic traffic) throws Exception {
+        return poll(reservationsUri, null, traffic);
+    }
+
+    @Benchmark
+    public int pollReservationsWithETag(Traffic traffic) throws Exception {
+        return poll(reservationsUri, reservationsETag, traffic);
+    }
+
+    @Benchmark
+    public int pollCustomer(Traffic traffic) throws Exception {
+        return poll(customerUri, null, traffic);
+    }
+
+    @Benchmark
+    public int pollCustomerWithETag(Traffic traffic) throws Exception {
+        return poll(customerUri, customerETag, traffic);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    private int poll(URI uri, String eTag, Traffic traffic) throws Exception {
+        long cpuStart = operatingSystem.getProcessCpuTime();
+        HttpResponse<byte[]> response = send(uri, eTag);
+        traffic.cpuNanos += operatingSystem.getProcessCpuTime() - cpuStart;
+        traffic.responseBytes += response.body().length + headerBytes(response.headers());
+        return response.statusCode();
+    }
+
+    private HttpResponse<byte[]> send(URI uri, String eTag) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).GET();
+        if (eTag != null) {
+            request.header("If-None-Match", eTag);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /** This method returns the size of the headers as they are sent ("Name: value" and a line break each). */
+    private static long headerBytes(HttpHeaders headers) {
+        long bytes = 0;
+        for (Map.Entry<String, List<String>> header : headers.map().entrySet()) {
+            for (String value : header.getValue()) {
+                bytes += header.getKey().length() + 2 + value.length() + 2;
+            }
+        }
+        return bytes;
+    }
+}
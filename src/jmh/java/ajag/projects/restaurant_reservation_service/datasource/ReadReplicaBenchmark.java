@@ -0,0 +1,150 @@
+package ajag.projects.restaurant_reservation_service.datasource;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.services.CustomerService;
+import ajag.projects.restaurant_reservation_service.services.ReservationService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/** This benchmark measures the reads of the reservation lists per second against the primary H2 database alone,
+ * and with a second H2 database as the read replica (the same data in both):
+ * (1) "reads" - 16 threads reading, and
+ * (2) "readsWhileWriting" - 12 threads reading while 4 threads change customers.
+ * Each database gets 4 connections, as a stand-in for a database server that can only serve so many queries at once.
+ * The reads alone are as fast either way (they only moved to the replica), but while the customers change, the reads of the replica
+ * don't wait behind the changes for a connection of the primary database. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReadReplicaBenchmark {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:read-replica-benchmark-primary;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:read-replica-benchmark-replica;DB_CLOSE_DELAY=-1";
+    private static final int CUSTOMERS = 100;
+    private static final int RESERVATIONS_PER_CUSTOMER = 20;
+
+    @Param({"false", "true"})
+    public boolean replica;
+
+    private ConfigurableApplicationContext context;
+    private ReservationService reservationService;
+    private CustomerService customerService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> properties = new ArrayList<>(List.of(
+            "spring.datasource.url=" + PRIMARY_URL,
+            "spring.datasource.hikari.maximum-pool-size=4",
+            "notification.outbox.poll-interval=PT1H",
+            "logging.level.root=WARN"));
+        if (replica) {
+            Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+            properties.add("reservation.datasource.replica.url=" + REPLICA_URL);
+            properties.add("reservation.datasource.replica.maximum-pool-size=4");
+        }
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(properties.toArray(String[]::new))
+            .run();
+        reservationService = context.getBean(ReservationService.class);
+        customerService = context.getBean(CustomerService.class);
+
+        saveReservations(database(PRIMARY_URL));
+        if (replica) {
+            saveReservations(database(REPLICA_URL));
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public List<ReservationSummary> reads() {
+        return readReservations();
+    }
+
+    @Benchmark
+    @Group("readsWhileWriting")
+    @GroupThreads(12)
+    public List<ReservationSummary> read() {
+        return readReservations();
+    }
+
+    @Benchmark
+    @Group("readsWhileWriting")
+    @GroupThreads(4)
+    public Customer write() {
+        int i = ThreadLocalRandom.current().nextInt(CUSTOMERS) + 1;
+        Customer customer = new Customer();
+        customer.setId((long) i);
+        customer.setName("Customer " + i);
+        customer.setEmail("customer" + i + "@example.com");
+        customer.setPhoneNumber("09" + ThreadLocalRandom.current().nextInt(100_000_000, 999_999_999));
+        customer.setPreferredComms(PreferredComms.EMAIL);
+        return customerService.updateCustomer(customer);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        database(PRIMARY_URL).execute("DROP ALL OBJECTS");
+        database(REPLICA_URL).execute("DROP ALL OBJECTS");
+    }
+
+    private List<ReservationSummary> readReservations() {
+        return reservationService.getCustomerReservations((long) ThreadLocalRandom.current().nextInt(CUSTOMERS) + 1);
+    }
+
+    /** The databases are filled through connections of their own, the pool of the replica is read-only. */
+    private static JdbcTemplate database(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+
+    /** This method saves the customers 1 to CUSTOMERS, with their reservations, the same in both databases. */
+    private static void saveReservations(JdbcTemplate jdbcTemplate) {
+        List<Object[]> customers = new ArrayList<>();
+        List<Object[]> reservations = new ArrayList<>();
+        Timestamp reservationDate = Timestamp.valueOf(LocalDateTime.now().plusDays(1));
+        for (int i = 1; i <= CUSTOMERS; i++) {
+            customers.add(new Object[] {i, "Customer " + i, "customer" + i + "@example.com", "0900000" + i});
+            for (int j = 0; j < RESERVATIONS_PER_CUSTOMER; j++) {
+                reservations.add(new Object[] {i, reservationDate});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers (id, name, email, phone_number, preferred_comms) VALUES (?, ?, ?, ?, 'EMAIL')", customers);
+        jdbcTemplate.batchUpdate("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+            + "VALUES (?, ?, 2, 'CONFIRMED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", reservations);
+    }
+}
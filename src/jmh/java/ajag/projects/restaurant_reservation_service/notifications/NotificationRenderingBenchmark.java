@@ -0,0 +1,82 @@
+package ajag.projects.restaurant_reservation_service.notifications;
+
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.NotificationType;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** This benchmark measures how many messages per second the {@link NotificationRenderer} renders,
+ * compared to the previous rendering (a new formatter and a String.format over the whole text on every message).
+ * The bytes allocated per message are reported by the gc profiler (gc.alloc.rate.norm). */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NotificationRenderingBenchmark {
+
+    @Param({"EMAIL", "SMS"})
+    public PreferredComms channel;
+
+    private NotificationRenderer renderer;
+    private Reservation reservation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        renderer = new NotificationRenderer();
+
+        Customer customer = new Customer();
+        customer.setName("John");
+        customer.setEmail("john@example.com");
+        customer.setPhoneNumber("09222222222");
+        customer.setPreferredComms(channel);
+
+        reservation = new Reservation();
+        reservation.setCustomer(customer);
+        reservation.setReservationDate(LocalDateTime.now().plusDays(7));
+        reservation.setGuestCount(4);
+    }
+
+    @Benchmark
+    public String templateRendering() {
+        return renderer.render(NotificationType.STATUS_UPDATE, reservation);
+    }
+
+    @Benchmark
+    public String previousRendering() {
+        Customer customer = reservation.getCustomer();
+        String preferredComms = customer.getPreferredComms() == PreferredComms.EMAIL ? customer.getEmail() : customer.getPhoneNumber();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMMM d, yyyy h:mma");
+        String reservationDateTime = reservation.getReservationDate().format(formatter);
+
+        return String.format("""
+
+                Sending Notification to: %s
+
+                Dear %s,
+
+                Your reservation for %d guests has been %s.
+                Reservation Date and Time: %s
+
+                Kind Regards,
+                Us""",
+            preferredComms,
+            customer.getName(),
+            reservation.getGuestCount(),
+            reservation.getStatus().toString().toLowerCase(),
+            reservationDateTime
+        );
+    }
+}
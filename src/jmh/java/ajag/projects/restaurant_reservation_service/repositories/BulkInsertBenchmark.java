@@ -0,0 +1,122 @@
+package ajag.projects.restaurant_reservation_service.repositories;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** This benchmark measures the inserts per second of creating 500 customers with one reservation each in one transaction,
+ * with the inserts sent in JDBC batches of 50 (hibernate.jdbc.batch_size=50) and one by one (batch_size=0).
+ * The number of statements prepared, which is one per batch when the inserts are batched, is printed after every iteration. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    private static final int CUSTOMERS = 500;
+
+    @Param({"50", "0"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private CustomerRepository customerRepository;
+    private ReservationRepository reservationRepository;
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:bulk-insert-benchmark;DB_CLOSE_DELAY=-1",
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "logging.level.root=WARN")
+            .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        customerRepository = context.getBean(CustomerRepository.class);
+        reservationRepository = context.getBean(ReservationRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Setup(Level.Iteration)
+    public void clearStatistics() {
+        statistics.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * CUSTOMERS)
+    public int createCustomersWithReservations() {
+        int batch = invocation++;
+        return transactionTemplate.execute(status -> {
+            List<Customer> customers = new ArrayList<>(CUSTOMERS);
+            List<Reservation> reservations = new ArrayList<>(CUSTOMERS);
+            for (int i = 0; i < CUSTOMERS; i++) {
+                Customer customer = new Customer();
+                customer.setName("Customer " + i);
+                customer.setEmail("customer" + batch + "-" + i + "@example.com");
+                customer.setPhoneNumber("0900000" + i);
+                customers.add(customer);
+
+                Reservation reservation = new Reservation();
+                reservation.setCustomer(customer);
+                reservation.setReservationDate(LocalDateTime.now().plusDays(1 + i % 30));
+                reservation.setGuestCount(2 + i % 6);
+                reservations.add(reservation);
+            }
+            customerRepository.saveAll(customers);
+            reservationRepository.saveAll(reservations);
+            return customers.size() + reservations.size();
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportStatements() {
+        System.out.printf("%nbatch_size=%d: %d inserts, %d statements prepared%n",
+            batchSize, statistics.getEntityInsertCount(), statistics.getPrepareStatementCount());
+        jdbcTemplate.update("DELETE FROM reservations");
+        jdbcTemplate.update("DELETE FROM customers");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        context.close();
+    }
+}
@@ -0,0 +1,173 @@
+package ajag.projects.restaurant_reservation_service.repositories;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationPage;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.services.ReservationArchiver;
+import ajag.projects.restaurant_reservation_service.services.ReservationService;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** This benchmark measures the latency of the hot path queries (the confirmed reservations of the scheduler and the customer history)
+ * against an H2 database seeded with 2M reservations of 20k customers over the past 3 years and the coming year
+ * (3% confirmed in the coming year, the others completed or cancelled in the past, one in ten cancelled).
+ * The same data is measured with every reservation in the reservations table, and with the ones finished more than 30 days ago
+ * moved to the reservations_history table by the {@link ReservationArchiver}. The customer history reads both tables either way.
+ * The time taken by the archiving and the rows left in each table are printed. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ReservationArchiveBenchmark {
+
+    private static final int CUSTOMERS = 20_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"2000000"})
+    public int seededReservations;
+
+    @Param({"false", "true"})
+    public boolean archived;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private ReservationRepository reservationRepository;
+    private ReservationService reservationService;
+    private TransactionTemplate transactionTemplate;
+
+    private List<Long> customerIds;
+    private LocalDateTime seededAt;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:archive-benchmark;DB_CLOSE_DELAY=-1",
+                // The archive is only run once the reservations are seeded
+                "reservation.archive.enabled=false",
+                "reservation.archive.min-age=P30D",
+                "reservation.archive.batch-size=5000",
+                "logging.level.root=WARN")
+            .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        reservationRepository = context.getBean(ReservationRepository.class);
+        reservationService = context.getBean(ReservationService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        seed();
+
+        if (archived) {
+            long start = System.nanoTime();
+            int archivedReservations = context.getBean(ReservationArchiver.class).archiveFinishedReservations();
+            System.out.println("Archived " + archivedReservations + " reservations in " + Duration.ofNanos(System.nanoTime() - start));
+        }
+        jdbcTemplate.execute("ANALYZE");
+        System.out.println("reservations: " + count("reservations") + " rows, reservations_history: " + count("reservations_history") + " rows");
+    }
+
+    @Benchmark
+    public List<Reservation> findAllConfirmed() {
+        return reservationRepository.findAllByStatus(ReservationStatus.CONFIRMED);
+    }
+
+    @Benchmark
+    public List<Reservation> findLoadWindowPage() {
+        LocalDateTime afterDate = seededAt.plusHours(cursor++ % (24 * 365));
+        return reservationRepository.findPageByStatusDueBefore(
+            ReservationStatus.CONFIRMED, afterDate, 0L, afterDate.plusHours(24), PageRequest.ofSize(500));
+    }
+
+    @Benchmark
+    public List<Long> lockDueBatch() {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly(); // Only the time to find and lock the next batch of due reservations is measured
+            return reservationRepository.lockIdsByStatusDueBefore(ReservationStatus.CONFIRMED.name(), LocalDateTime.now(), 500);
+        });
+    }
+
+    @Benchmark
+    public List<ReservationSummary> customerHistory() {
+        return reservationService.getCustomerReservations(nextCustomerId());
+    }
+
+    @Benchmark
+    public ReservationPage customerHistoryFirstPage() {
+        return reservationService.getCustomerReservationPage(nextCustomerId(), null, PAGE_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    private long nextCustomerId() {
+        return customerIds.get(cursor++ % CUSTOMERS);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private void seed() {
+        List<Object[]> customers = new ArrayList<>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(new Object[] {"Customer " + i, "customer" + i + "@example.com", "0900000" + i, "EMAIL"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES (?, ?, ?, ?)", customers);
+        customerIds = jdbcTemplate.queryForList("SELECT id FROM customers ORDER BY id", Long.class);
+
+        // 3 in 100 reservations are confirmed in the coming year, the others are spread over the past 3 years
+        seededAt = LocalDateTime.now().withNano(0);
+        int confirmed = seededReservations * 3 / 100;
+        long pastStepSeconds = TimeUnit.DAYS.toSeconds(3 * 365) / (seededReservations - confirmed);
+        long futureStepSeconds = TimeUnit.DAYS.toSeconds(365) / confirmed;
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < seededReservations; i++) {
+            boolean future = i % 100 < 3;
+            LocalDateTime reservationDate = future
+                ? seededAt.plusMinutes(5).plusSeconds((long) i * 3 / 100 * futureStepSeconds)
+                : seededAt.minusHours(1).minusSeconds((long) i * 97 / 100 * pastStepSeconds);
+            String status = future ? "CONFIRMED" : i % 10 == 5 ? "CANCELLED" : "COMPLETED";
+            Timestamp modifiedAt = Timestamp.valueOf(future ? seededAt : reservationDate.plusHours(2));
+            batch.add(new Object[] {customerIds.get(i % CUSTOMERS), Timestamp.valueOf(reservationDate), 2 + (i % 6), status, modifiedAt, modifiedAt});
+            if (batch.size() == BATCH_SIZE || i == seededReservations - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
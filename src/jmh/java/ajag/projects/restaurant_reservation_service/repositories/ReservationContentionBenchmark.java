@@ -0,0 +1,121 @@
+package ajag.projects.restaurant_reservation_service.repositories;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** This benchmark measures the updates per second of 16 threads changing the guest count of the same few reservations
+ * (1 hot reservation, or 16 spread out), each change in its own transaction:
+ * (1) with optimistic locking (the version check of Reservation), retrying the change on the latest version after a conflict, and
+ * (2) with pessimistic locking, reading the reservation with SELECT ... FOR UPDATE so the other threads wait for the row.
+ * The conflicts retried per operation are reported as the "retries" counter of the optimistic run. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(16)
+@Fork(1)
+public class ReservationContentionBenchmark {
+
+    @Param({"1", "16"})
+    public int hotReservations;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+    private List<Long> reservationIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:contention-benchmark;DB_CLOSE_DELAY=-1",
+                "spring.datasource.hikari.maximum-pool-size=20", // One connection for every thread
+                "logging.level.root=WARN")
+            .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        entityManager = context.getBean(EntityManager.class);
+
+        jdbcTemplate.update("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES ('John', 'john@example.com', '09222222222', 'EMAIL')");
+        Long customerId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM customers", Long.class);
+        for (int i = 0; i < hotReservations; i++) {
+            jdbcTemplate.update("INSERT INTO reservations (customer_id, reservation_date, guest_count, status) VALUES (?, ?, 2, 'CONFIRMED')",
+                customerId, Timestamp.valueOf(LocalDateTime.now().plusDays(30)));
+        }
+        reservationIds = jdbcTemplate.queryForList("SELECT id FROM reservations", Long.class);
+    }
+
+    /** The conflicts of one thread, summed over the threads by JMH. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Conflicts {
+        public long retries;
+    }
+
+    @Benchmark
+    public Reservation optimisticUpdate(Conflicts conflicts) {
+        Long id = randomReservationId();
+        while (true) {
+            try {
+                return transactionTemplate.execute(status -> changeGuestCount(entityManager.find(Reservation.class, id)));
+            } catch (ObjectOptimisticLockingFailureException e) {
+                conflicts.retries++;
+            }
+        }
+    }
+
+    @Benchmark
+    public Reservation pessimisticUpdate() {
+        Long id = randomReservationId();
+        return transactionTemplate.execute(status -> changeGuestCount(entityManager.find(Reservation.class, id, LockModeType.PESSIMISTIC_WRITE)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    private Reservation changeGuestCount(Reservation reservation) {
+        reservation.setGuestCount(reservation.getGuestCount() % 8 + 1);
+        return reservation;
+    }
+
+    private Long randomReservationId() {
+        return reservationIds.get(ThreadLocalRandom.current().nextInt(reservationIds.size()));
+    }
+}
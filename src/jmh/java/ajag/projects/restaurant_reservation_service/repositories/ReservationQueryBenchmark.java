@@ -0,0 +1,224 @@
+package ajag.projects.restaurant_reservation_service.repositories;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.OutboxStatus;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** This benchmark measures the latency of every reservation and outbox repository query against an H2 database
+ * seeded with 1M reservations of 10k customers (60% confirmed in the coming year, 30% completed and 10% cancelled in the past year).
+ * The schema with the query indexes (V3) is compared with the same schema without them.
+ * The EXPLAIN plan of every query is printed and written to build/results/jmh/query-plans-(indexes|no-indexes).txt,
+ * and the queries that scan the whole table are flagged, so a query that stops using its index shows up right away. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReservationQueryBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int PAGE_SIZE = 50;
+
+    /** The indexes of V3__Create_reservation_query_indexes.sql, dropped when the queries are measured without them. */
+    private static final List<String> QUERY_INDEXES = List.of("idx_reservations_customer_status_date", "idx_reservations_status_date",
+        "idx_notification_outbox_purge");
+
+    @Param({"1000000"})
+    public int seededReservations;
+
+    @Param({"true", "false"})
+    public boolean queryIndexes;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private ReservationRepository reservationRepository;
+    private NotificationOutboxRepository outboxRepository;
+    private TransactionTemplate transactionTemplate;
+
+    private List<Long> customerIds;
+    private long firstCustomerId;
+    private LocalDateTime seededAt;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:query-benchmark;DB_CLOSE_DELAY=-1",
+                "logging.level.root=WARN")
+            .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        reservationRepository = context.getBean(ReservationRepository.class);
+        outboxRepository = context.getBean(NotificationOutboxRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        if (!queryIndexes) {
+            QUERY_INDEXES.forEach(index -> jdbcTemplate.execute("DROP INDEX " + index));
+        }
+        seed();
+        jdbcTemplate.execute("ANALYZE");
+        writePlans();
+    }
+
+    @Benchmark
+    public List<ReservationSummary> findAllByCustomer() {
+        return reservationRepository.findSummariesByCustomerId(nextCustomerId());
+    }
+
+    @Benchmark
+    public List<ReservationSummary> findFirstHistoryPage() {
+        return reservationRepository.findSummaryPageByCustomerAndStatus(
+            nextCustomerId(), ReservationStatus.COMPLETED, PageRequest.ofSize(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<ReservationSummary> findNextHistoryPage() {
+        return reservationRepository.findSummaryPageByCustomerAndStatusAfter(
+            nextCustomerId(), ReservationStatus.COMPLETED, seededAt.minusDays(180), 0L, PageRequest.ofSize(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<Reservation> findLoadWindowPage() {
+        LocalDateTime afterDate = seededAt.plusHours(cursor++ % (24 * 365));
+        return reservationRepository.findPageByStatusDueBefore(
+            ReservationStatus.CONFIRMED, afterDate, 0L, afterDate.plusHours(24), PageRequest.ofSize(500));
+    }
+
+    @Benchmark
+    public List<Long> lockDueBatch() {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly(); // Only the time to find and lock the next batch of due reservations is measured
+            return reservationRepository.lockIdsByStatusDueBefore(ReservationStatus.CONFIRMED.name(), LocalDateTime.now(), 500);
+        });
+    }
+
+    @Benchmark
+    public List<Long> lockDueNotifications() {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly(); // Only the time to find and lock the next batch of due notifications is measured
+            return outboxRepository.lockDueIds(OutboxStatus.PENDING.name(), PreferredComms.EMAIL.name(), LocalDateTime.now(), 100);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    private long nextCustomerId() {
+        return customerIds.get(cursor++ % CUSTOMERS);
+    }
+
+    /** This method prints the EXPLAIN plan of the SQL behind every repository query and writes them to a file. */
+    private void writePlans() {
+        Timestamp now = Timestamp.valueOf(seededAt);
+        Map<String, Object[]> queries = new LinkedHashMap<>();
+        queries.put("findAllByStatus: SELECT * FROM reservations WHERE status = ?",
+            new Object[] {"CONFIRMED"});
+        queries.put("findSummariesByCustomerId: SELECT * FROM reservations r JOIN customers c ON c.id = r.customer_id "
+                + "WHERE r.customer_id = ? ORDER BY r.status DESC, r.reservation_date ASC, r.id ASC",
+            new Object[] {firstCustomerId});
+        queries.put("findSummaryPageByCustomerAndStatus: SELECT * FROM reservations r JOIN customers c ON c.id = r.customer_id "
+                + "WHERE r.customer_id = ? AND r.status = ? ORDER BY r.reservation_date ASC, r.id ASC LIMIT 50",
+            new Object[] {firstCustomerId, "COMPLETED"});
+        queries.put("findSummaryPageByCustomerAndStatusAfter: SELECT * FROM reservations r JOIN customers c ON c.id = r.customer_id "
+                + "WHERE r.customer_id = ? AND r.status = ? AND (r.reservation_date > ? OR (r.reservation_date = ? AND r.id > ?)) "
+                + "ORDER BY r.reservation_date ASC, r.id ASC LIMIT 50",
+            new Object[] {firstCustomerId, "COMPLETED", now, now, 0L});
+        queries.put("findPageByStatusDueBefore: SELECT * FROM reservations r JOIN customers c ON c.id = r.customer_id "
+                + "WHERE r.status = ? AND r.reservation_date < ? AND (r.reservation_date > ? OR (r.reservation_date = ? AND r.id > ?)) "
+                + "ORDER BY r.reservation_date ASC, r.id ASC LIMIT 500",
+            new Object[] {"CONFIRMED", Timestamp.valueOf(seededAt.plusHours(24)), now, now, 0L});
+        queries.put("lockIdsByStatusDueBefore: SELECT id FROM reservations WHERE status = ? AND reservation_date <= ? "
+                + "ORDER BY reservation_date, id LIMIT 500",
+            new Object[] {"CONFIRMED", now});
+        queries.put("lockDueIds: SELECT id FROM notification_outbox WHERE status = ? AND channel = ? AND next_attempt_at <= ? "
+                + "AND (lease_until IS NULL OR lease_until < ?) ORDER BY id LIMIT 100",
+            new Object[] {"PENDING", "EMAIL", now, now});
+        queries.put("deleteByStatusCreatedBefore: DELETE FROM notification_outbox WHERE status = ? AND created_at < ?",
+            new Object[] {"SENT", now});
+
+        StringBuilder report = new StringBuilder((queryIndexes ? "With" : "Without") + " the query indexes, " + seededReservations + " reservations\n");
+        queries.forEach((query, args) -> {
+            String sql = query.substring(query.indexOf(": ") + 2);
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+            String warning = plan.contains("tableScan") ? "  <-- FULL SCAN" : "";
+            report.append("\n-- ").append(query, 0, query.indexOf(':')).append(warning).append('\n').append(plan).append('\n');
+        });
+        System.out.println(report);
+
+        try {
+            Path output = Path.of("build", "results", "jmh", queryIndexes ? "query-plans-indexes.txt" : "query-plans-no-indexes.txt");
+            Files.createDirectories(output.getParent());
+            Files.writeString(output, report);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void seed() {
+        List<Object[]> customers = new ArrayList<>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(new Object[] {"Customer " + i, "customer" + i + "@example.com", "0900000" + i, "EMAIL"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES (?, ?, ?, ?)", customers);
+        customerIds = jdbcTemplate.queryForList("SELECT id FROM customers ORDER BY id", Long.class);
+        firstCustomerId = customerIds.get(0);
+
+        // Every tenth reservation is cancelled, the other past ones were completed
+        seededAt = LocalDateTime.now().withNano(0);
+        long stepSeconds = TimeUnit.DAYS.toSeconds(365) / seededReservations;
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < seededReservations; i++) {
+            boolean past = i % 10 < 4;
+            LocalDateTime reservationDate = past ? seededAt.minusSeconds(i * stepSeconds) : seededAt.plusMinutes(5).plusSeconds(i * stepSeconds);
+            String status = i % 10 == 0 ? "CANCELLED" : past ? "COMPLETED" : "CONFIRMED";
+            Timestamp modifiedAt = Timestamp.valueOf(seededAt);
+            batch.add(new Object[] {customerIds.get(i % CUSTOMERS), Timestamp.valueOf(reservationDate), 2 + (i % 6), status, modifiedAt, modifiedAt});
+            if (batch.size() == BATCH_SIZE || i == seededReservations - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ajag.projects.restaurant_reservation_service.scheduling;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronTrigger;
+
+/** This benchmark measures the schedule and cancel throughput of the {@link HierarchicalTimingWheel}
+ * while it already holds a large number of pending reservations.
+ * Each operation schedules a reservation up to 60 days ahead and cancels an older one,
+ * so the number of pending reservations stays the same during the run.
+ * The same operation on one {@link CronTrigger} per reservation is measured as the baseline. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HierarchicalTimingWheelBenchmark {
+
+    private static final long SIXTY_DAYS_MILLIS = TimeUnit.DAYS.toMillis(60);
+    private static final Runnable NO_OP = () -> { };
+
+    @State(Scope.Benchmark)
+    public static class TimingWheelState {
+
+        @Param({"100000", "1000000"})
+        public int pendingReservations;
+
+        private HierarchicalTimingWheel wheel;
+        private WheelTimeout[] timeouts;
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // The wheel is never started, nothing is fired while the benchmark runs.
+            wheel = new HierarchicalTimingWheel(Clock.systemUTC(), 1000, Runnable::run);
+            timeouts = new WheelTimeout[pendingReservations];
+            for (int i = 0; i < pendingReservations; i++) {
+                timeouts[i] = wheel.schedule(NO_OP, randomDeadline());
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            wheel.close();
+        }
+    }
+
+    @Benchmark
+    public WheelTimeout scheduleAndCancel(TimingWheelState state) {
+        int index = state.cursor++ % state.pendingReservations;
+        state.timeouts[index].cancel();
+        WheelTimeout timeout = state.wheel.schedule(NO_OP, randomDeadline());
+        state.timeouts[index] = timeout;
+        return timeout;
+    }
+
+    /** The previous implementation, one {@link CronTrigger} per reservation on the Spring {@link ThreadPoolTaskScheduler}. */
+    @State(Scope.Benchmark)
+    public static class CronTriggerState {
+
+        @Param({"100000", "1000000"})
+        public int pendingReservations;
+
+        private ThreadPoolTaskScheduler taskScheduler;
+        private ScheduledFuture<?>[] futures;
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            taskScheduler = new ThreadPoolTaskScheduler();
+            taskScheduler.initialize();
+            futures = new ScheduledFuture<?>[pendingReservations];
+            for (int i = 0; i < pendingReservations; i++) {
+                futures[i] = taskScheduler.schedule(NO_OP, new CronTrigger(randomCronExpression()));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            taskScheduler.shutdown();
+        }
+    }
+
+    @Benchmark
+    public ScheduledFuture<?> cronTriggerScheduleAndCancel(CronTriggerState state) {
+        int index = state.cursor++ % state.pendingReservations;
+        state.futures[index].cancel(false);
+        ScheduledFuture<?> future = state.taskScheduler.schedule(NO_OP, new CronTrigger(randomCronExpression()));
+        state.futures[index] = future;
+        return future;
+    }
+
+    private static Instant randomDeadline() {
+        return Instant.ofEpochMilli(System.currentTimeMillis() + 60_000 + ThreadLocalRandom.current().nextLong(SIXTY_DAYS_MILLIS));
+    }
+
+    private static String randomCronExpression() {
+        LocalDateTime dateTime = LocalDateTime.now().plusMinutes(1 + ThreadLocalRandom.current().nextLong(TimeUnit.DAYS.toMinutes(60)));
+        return String.format("0 %d %d %d %d %d", dateTime.getMinute(), dateTime.getHour(), dateTime.getDayOfMonth(),
+            dateTime.getMonthValue(), dateTime.getDayOfWeek().getValue());
+    }
+}
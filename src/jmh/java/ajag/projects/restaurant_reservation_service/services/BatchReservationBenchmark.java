@@ -0,0 +1,156 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.dtos.BatchItemResult;
+import ajag.projects.restaurant_reservation_service.dtos.BatchResult;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationReschedule;
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/** This benchmark compares creating, rescheduling and canceling 100 and 1000 reservations
+ * (1) one by one, the way the integrations loop over the single reservation endpoints (one transaction, scheduler change and notification each), and
+ * (2) with one call of the batch endpoints.
+ * The wall time of the whole batch is the benchmark score. The reservations are within the scheduler load window, so their schedules are changed too. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BatchReservationBenchmark {
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private ReservationService reservationService;
+    private ReservationSchedulingService schedulingService;
+    private Long customerId;
+
+    private List<Reservation> newReservations;
+    private List<Long> existingIds;
+    private List<ReservationReschedule> changes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:batch-benchmark;DB_CLOSE_DELAY=-1",
+                "notification.outbox.poll-interval=PT1H", // The notifications are not sent while measuring
+                "reservation.capacity.seats-per-slot=1000000", // Every reservation of the batch fits, so the batches compare the same work
+                "logging.level.root=WARN")
+            .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        reservationService = context.getBean(ReservationService.class);
+        schedulingService = context.getBean(ReservationSchedulingService.class);
+
+        jdbcTemplate.update("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES ('John', 'john@example.com', '09222222222', 'EMAIL')");
+        customerId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM customers", Long.class);
+    }
+
+    /** Every iteration gets new reservations to create, and the same number of existing reservations to reschedule and cancel. */
+    @Setup(Level.Iteration)
+    public void prepareReservations() {
+        newReservations = createReservations();
+        BatchResult created = reservationService.createReservations(createReservations());
+        existingIds = created.items().stream().map(BatchItemResult::reservationId).toList();
+        changes = existingIds.stream()
+            .map(id -> new ReservationReschedule(id, LocalDateTime.now().plusHours(12), 6))
+            .toList();
+    }
+
+    @Benchmark
+    public int createOneByOne() {
+        for (Reservation reservation : newReservations) {
+            reservationService.createReservation(reservation);
+        }
+        return newReservations.size();
+    }
+
+    @Benchmark
+    public BatchResult createBatch() {
+        return reservationService.createReservations(newReservations);
+    }
+
+    @Benchmark
+    public int rescheduleOneByOne() {
+        for (ReservationReschedule change : changes) {
+            reservationService.updateReservation(change.id(), change.reservationDate(), change.guestCount(), null);
+        }
+        return changes.size();
+    }
+
+    @Benchmark
+    public BatchResult rescheduleBatch() {
+        return reservationService.rescheduleReservations(changes);
+    }
+
+    @Benchmark
+    public int cancelOneByOne() {
+        for (Long id : existingIds) {
+            reservationService.cancelReservation(id, null);
+        }
+        return existingIds.size();
+    }
+
+    @Benchmark
+    public BatchResult cancelBatch() {
+        return reservationService.cancelReservations(existingIds);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearReservations() {
+        schedulingService.cancelReservationSchedules(jdbcTemplate.queryForList("SELECT id FROM reservations", Long.class));
+        jdbcTemplate.update("DELETE FROM reservations");
+        jdbcTemplate.update("DELETE FROM notification_outbox");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    private List<Reservation> createReservations() {
+        List<Reservation> reservations = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            reservations.add(createReservation(i));
+        }
+        return reservations;
+    }
+
+    private Reservation createReservation(int index) {
+        Customer customer = new Customer();
+        customer.setId(customerId);
+        Reservation reservation = new Reservation();
+        reservation.setCustomer(customer);
+        reservation.setReservationDate(LocalDateTime.now().plusHours(6).plusMinutes(index % 600));
+        reservation.setGuestCount(2 + index % 6);
+        return reservation;
+    }
+}
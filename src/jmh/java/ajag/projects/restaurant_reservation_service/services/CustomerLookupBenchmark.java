@@ -0,0 +1,89 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/** This benchmark measures the latency of looking up a customer by email and by ID through the {@link CustomerService},
+ * with the cache warm (every customer already cached) and cold (the cache is emptied before every lookup, like before the cache). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CustomerLookupBenchmark {
+
+    private static final int CUSTOMERS = 1_000;
+
+    @Param({"warm", "cold"})
+    public String cache;
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private List<Long> ids;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:customer-lookup-benchmark;DB_CLOSE_DELAY=-1",
+                "logging.level.root=WARN")
+            .run();
+        customerService = context.getBean(CustomerService.class);
+
+        List<Object[]> customers = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(new Object[] {"Customer " + i, email(i), "0900000" + i, "EMAIL"});
+        }
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.batchUpdate("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES (?, ?, ?, ?)", customers);
+        ids = jdbcTemplate.queryForList("SELECT id FROM customers ORDER BY id", Long.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareCache() {
+        if (cache.equals("cold")) {
+            customerService.clearCache();
+        }
+    }
+
+    @Benchmark
+    public Optional<Customer> findByEmail() {
+        return customerService.findByEmail(email(cursor++ % CUSTOMERS));
+    }
+
+    @Benchmark
+    public Optional<Customer> findById() {
+        return customerService.findById(ids.get(cursor++ % CUSTOMERS));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n%s cache: %s%n", cache, customerService.getCacheStats());
+        context.getBean(JdbcTemplate.class).execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    private static String email(int index) {
+        return "customer" + index + "@example.com";
+    }
+}
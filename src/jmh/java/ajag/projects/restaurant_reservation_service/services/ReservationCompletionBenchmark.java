@@ -0,0 +1,122 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/** This benchmark compares completing a dinner rush of due reservations
+ * (1) one by one, the way each completion task of the PER_RESERVATION mode saves its own reservation, and
+ * (2) with one sweep of the {@link ReservationCompletionSweeper} in BULK mode.
+ * The wall time is the benchmark score, the number of statements sent to the database is printed after every iteration. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReservationCompletionBenchmark {
+
+    @Param({"100", "500", "2000"})
+    public int dueReservations;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private ReservationRepository reservationRepository;
+    private ReservationCompletionSweeper sweeper;
+    private MessagingService messagingService;
+    private Statistics statistics;
+    private List<Reservation> dueBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:completion-benchmark;DB_CLOSE_DELAY=-1",
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "reservation.scheduler.completion-mode=PER_RESERVATION",
+                "logging.level.root=WARN")
+            .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        reservationRepository = context.getBean(ReservationRepository.class);
+        sweeper = context.getBean(ReservationCompletionSweeper.class);
+        messagingService = context.getBean(MessagingService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        jdbcTemplate.update("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES ('John', 'john@example.com', '09222222222', 'EMAIL')");
+        long customerId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM customers", Long.class);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> reservations = new ArrayList<>();
+        for (int i = 0; i < dueReservations; i++) {
+            reservations.add(new Object[] {customerId, Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)), 4, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+            + "VALUES (?, ?, ?, 'CONFIRMED', ?, ?)", reservations);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetReservations() {
+        jdbcTemplate.update("UPDATE reservations SET status = 'CONFIRMED'");
+        // The completion tasks hold the reservations they were scheduled with, so they are read before the clock starts
+        dueBatch = reservationRepository.findPageByStatusDueBefore(ReservationStatus.CONFIRMED, LocalDateTime.of(1970, 1, 1, 0, 0), 0L,
+            LocalDateTime.now(), PageRequest.ofSize(dueReservations));
+        statistics.clear();
+    }
+
+    @Benchmark
+    public int perReservationCompletion() {
+        for (Reservation reservation : dueBatch) {
+            reservation.setStatus(ReservationStatus.COMPLETED);
+            reservationRepository.save(reservation);
+            messagingService.sendReservationCompletion(reservation);
+        }
+        return dueBatch.size();
+    }
+
+    @Benchmark
+    public int bulkCompletion() {
+        return sweeper.sweepCompletedReservations();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportStatements() {
+        System.out.printf("%n%d due reservations: %d statements, %d transactions%n",
+            dueReservations, statistics.getPrepareStatementCount(), statistics.getTransactionCount());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        context.close();
+    }
+}
@@ -0,0 +1,226 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationRenderer;
+import ajag.projects.restaurant_reservation_service.repositories.NotificationOutboxRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationArchiveRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationTaskRepository;
+import ajag.projects.restaurant_reservation_service.scheduling.HierarchicalTimingWheel;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationSchedulerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import java.lang.reflect.Field;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** This benchmark measures the time of 1000 calls of the service layer operations:
+ * creating, updating and canceling a reservation ({@link ReservationService}), saving a rendered notification ({@link MessagingService}),
+ * and scheduling then canceling the tasks of a reservation ({@link ReservationSchedulingService}).
+ * Every operation runs against two backends:
+ * (1) h2 - the whole application on an in-memory H2 database, so the score includes the transactions and the SQL, and
+ * (2) mocks - the same services with Mockito repositories, so the score is the work of the services themselves.
+ * The 1000 calls of an iteration use 1000 different reservations, which are set back to CONFIRMED before every iteration,
+ * so every cancellation really cancels. The score divided by 1000 is the time of one call. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = ReservationServiceBenchmark.CALLS)
+@Measurement(iterations = 10, batchSize = ReservationServiceBenchmark.CALLS)
+@Fork(1)
+public class ReservationServiceBenchmark {
+
+    static final int CALLS = 1000;
+
+    @Param({"h2", "mocks"})
+    public String backend;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private HierarchicalTimingWheel timingWheel;
+
+    private ReservationService reservationService;
+    private MessagingService messagingService;
+    private ReservationSchedulingService schedulingService;
+    private Long customerId;
+    private List<Reservation> reservations;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (backend.equals("h2")) {
+            context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                    "spring.datasource.url=jdbc:h2:mem:service-benchmark;DB_CLOSE_DELAY=-1",
+                    "notification.outbox.poll-interval=PT1H", // The notifications are not sent while measuring
+                    "reservation.capacity.seats-per-slot=1000000", // Every reservation fits, the capacity engine is measured but never refuses
+                    "logging.level.root=WARN")
+                .run();
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+            reservationService = context.getBean(ReservationService.class);
+            messagingService = context.getBean(MessagingService.class);
+            schedulingService = context.getBean(ReservationSchedulingService.class);
+
+            jdbcTemplate.update("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES ('John', 'john@example.com', '09222222222', 'EMAIL')");
+            customerId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM customers", Long.class);
+        } else {
+            customerId = 1L;
+            createMockedServices();
+        }
+
+        reservations = new ArrayList<>(CALLS);
+        for (int i = 0; i < CALLS; i++) {
+            reservations.add(reservationService.createReservation(newReservation(i)));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetReservations() {
+        cursor = 0;
+        if (jdbcTemplate != null) {
+            jdbcTemplate.update("UPDATE reservations SET status = 'CONFIRMED'");
+        } else {
+            reservations.forEach(reservation -> reservation.setStatus(ReservationStatus.CONFIRMED));
+        }
+    }
+
+    @Benchmark
+    public Reservation createReservation() {
+        return reservationService.createReservation(newReservation(cursor++));
+    }
+
+    @Benchmark
+    public Reservation updateReservation() {
+        Reservation reservation = nextReservation();
+        return reservationService.updateReservation(reservation.getId(), LocalDateTime.now().plusDays(2).plusMinutes(cursor % 600),
+            reservation.getGuestCount() % 6 + 2, null);
+    }
+
+    @Benchmark
+    public Reservation cancelReservation() {
+        return reservationService.cancelReservation(nextReservation().getId(), null);
+    }
+
+    @Benchmark
+    public Reservation sendNotification() {
+        Reservation reservation = nextReservation();
+        messagingService.sendNotification(reservation);
+        return reservation;
+    }
+
+    @Benchmark
+    public int scheduleAndCancelReservation() {
+        Reservation reservation = nextReservation();
+        schedulingService.addReservationSchedules(reservation);
+        schedulingService.cancelReservationSchedule(reservation.getId());
+        return schedulingService.getPendingTaskCount();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+            context.close();
+        } else {
+            timingWheel.close();
+        }
+    }
+
+    /** The services are wired by hand, with Mockito repositories that keep the reservations in a map
+     * and a transaction manager that does nothing. The notifications are still rendered, and the tasks are still put in a timing wheel
+     * (which is never started, so nothing fires). */
+    private void createMockedServices() {
+        Customer customer = new Customer();
+        customer.setName("John");
+        customer.setEmail("john@example.com");
+        customer.setPhoneNumber("09222222222");
+        customer.setPreferredComms(PreferredComms.EMAIL);
+
+        Map<Long, Reservation> savedReservations = new ConcurrentHashMap<>();
+        AtomicLong nextId = new AtomicLong();
+        Field idField = idField();
+        ReservationRepository reservationRepository = Mockito.mock(ReservationRepository.class);
+        Mockito.when(reservationRepository.save(ArgumentMatchers.any(Reservation.class))).thenAnswer(invocation -> {
+            Reservation reservation = invocation.getArgument(0);
+            if (reservation.getId() == null) {
+                idField.set(reservation, nextId.incrementAndGet());
+            }
+            savedReservations.put(reservation.getId(), reservation);
+            return reservation;
+        });
+        Mockito.when(reservationRepository.findById(ArgumentMatchers.anyLong()))
+            .thenAnswer(invocation -> Optional.ofNullable(savedReservations.get(invocation.<Long>getArgument(0))));
+
+        CustomerService customerService = Mockito.mock(CustomerService.class);
+        Mockito.when(customerService.findById(customerId)).thenReturn(Optional.of(customer));
+
+        messagingService = new MessagingService(Mockito.mock(NotificationOutboxRepository.class), new NotificationRenderer(), new SimpleMeterRegistry());
+        timingWheel = new HierarchicalTimingWheel(Clock.systemDefaultZone(), 1000, Runnable::run);
+        schedulingService = new ReservationSchedulingService(timingWheel, reservationRepository, Mockito.mock(ReservationTaskRepository.class), messagingService,
+            new ReservationSchedulerProperties(), event -> { }, new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class)), Runnable::run,
+            new SimpleMeterRegistry());
+        reservationService = new ReservationService(reservationRepository, Mockito.mock(ReservationArchiveRepository.class), customerService, schedulingService, messagingService,
+            Mockito.mock(SeatCapacityService.class), Mockito.mock(EntityManager.class),
+            new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class)), event -> { }, 50, 200, 5000, 3);
+    }
+
+    private static Field idField() {
+        try {
+            Field idField = Reservation.class.getDeclaredField("id");
+            idField.setAccessible(true);
+            return idField;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Reservation nextReservation() {
+        return reservations.get(cursor++ % CALLS);
+    }
+
+    private Reservation newReservation(int index) {
+        Customer customer = new Customer();
+        customer.setId(customerId);
+        Reservation reservation = new Reservation();
+        reservation.setCustomer(customer);
+        reservation.setReservationDate(LocalDateTime.now().plusDays(1).plusMinutes(index % 600));
+        reservation.setGuestCount(2 + index % 6);
+        return reservation;
+    }
+}
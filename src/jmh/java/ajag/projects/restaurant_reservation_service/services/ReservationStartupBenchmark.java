@@ -0,0 +1,120 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/** This benchmark measures how long {@link ReservationSchedulingService#initializeReservations()} takes on startup
+ * and how much heap the scheduled reservations keep, with 10k, 100k and 1M confirmed reservations spread over the next year.
+ * The 24 hour load window is compared with a 10 year window, which loads the whole booking book like before.
+ * The retained heap is printed after every iteration. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReservationStartupBenchmark {
+
+    private static final int CUSTOMERS = 1_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int seededReservations;
+
+    @Param({"PT24H", "P3650D"})
+    public String loadWindow;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private ReservationSchedulingService schedulingService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:startup-benchmark;DB_CLOSE_DELAY=-1",
+                "reservation.scheduler.load-window=" + loadWindow,
+                "reservation.scheduler.refill-interval=PT1H",
+                "logging.level.root=WARN")
+            .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        schedulingService = context.getBean(ReservationSchedulingService.class);
+        seed();
+    }
+
+    @Setup(Level.Iteration)
+    public void clearSchedules() {
+        jdbcTemplate.queryForList("SELECT id FROM reservations", Long.class)
+            .forEach(schedulingService::cancelReservationSchedule);
+        System.gc();
+    }
+
+    @Benchmark
+    public int initializeReservations() {
+        schedulingService.initializeReservations();
+        return schedulingService.getPendingTaskCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        System.out.printf("%n%d reservations, window %s: %d scheduled, %d MB heap used%n",
+            seededReservations, loadWindow, schedulingService.getPendingTaskCount(), usedMb);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        context.close();
+    }
+
+    private void seed() {
+        List<Object[]> customers = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(new Object[] {"Customer " + i, "customer" + i + "@example.com", "0900000" + i, "EMAIL"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES (?, ?, ?, ?)", customers);
+        List<Long> customerIds = jdbcTemplate.queryForList("SELECT id FROM customers ORDER BY id", Long.class);
+
+        // The reservations are spread evenly over the next 365 days
+        LocalDateTime start = LocalDateTime.now().plusMinutes(5);
+        long stepSeconds = TimeUnit.DAYS.toSeconds(365) / seededReservations;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < seededReservations; i++) {
+            Timestamp reservationDate = Timestamp.valueOf(start.plusSeconds(i * stepSeconds));
+            batch.add(new Object[] {customerIds.get(i % CUSTOMERS), reservationDate, 2 + (i % 6), "CONFIRMED", now, now});
+            if (batch.size() == BATCH_SIZE || i == seededReservations - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ajag.projects.restaurant_reservation_service.loadtest;
+
+/** The requests sent by the load test clients, each one measured on its own. */
+enum LoadOperation {
+	CREATE("POST /reservations"),
+	UPDATE("PATCH /reservations/{id}"),
+	CANCEL("PATCH /reservations/{id}/cancel"),
+	LIST("GET /reservations/customer/{customerId}/page"),
+	LOOKUP("GET /customers/{email}");
+
+	private final String endpoint;
+
+	LoadOperation(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	String endpoint() {
+		return endpoint;
+	}
+}
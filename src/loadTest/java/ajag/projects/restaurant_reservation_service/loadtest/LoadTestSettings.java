@@ -0,0 +1,49 @@
+package ajag.projects.restaurant_reservation_service.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/** This record holds the settings of the load test, read from the loadtest.* system properties
+ * (passed with -Ploadtest.clients=64 and so on to ./gradlew loadTest).
+ *
+ * @param clients - number of clients sending requests at the same time, each one waits for its response before sending the next request
+ * @param virtualThreads - whether the application serves the requests on virtual threads (spring.threads.virtual.enabled) or on the Tomcat platform threads
+ * @param reactive - whether the reactive variant of the application (src/reactive) is measured instead of the Spring MVC one
+ * @param warmup - how long the requests are sent before they are measured
+ * @param duration - how long the requests are measured
+ * @param mix - weight of every operation, e.g., create=20,update=15,cancel=10,list=30,lookup=25
+ * @param customers - number of customers created before the test
+ * @param reservations - number of reservations created before the test
+ * @param maxErrorRate - highest share of failed requests of an operation before the test fails
+ * @param maxP99 - highest 99th percentile latency of an operation before the test fails, or null to only report it
+ * @param reportDirectory - where the report is written */
+record LoadTestSettings(int clients, boolean virtualThreads, boolean reactive, Duration warmup, Duration duration, Map<LoadOperation, Integer> mix,
+						int customers, int reservations, double maxErrorRate, Duration maxP99, Path reportDirectory) {
+
+	static LoadTestSettings fromSystemProperties() {
+		String maxP99 = System.getProperty("loadtest.max-p99");
+		return new LoadTestSettings(
+				Integer.getInteger("loadtest.clients", 32),
+				Boolean.getBoolean("loadtest.virtual-threads"),
+				Boolean.getBoolean("loadtest.reactive"),
+				Duration.parse(System.getProperty("loadtest.warmup", "PT10S")),
+				Duration.parse(System.getProperty("loadtest.duration", "PT60S")),
+				parseMix(System.getProperty("loadtest.mix", "create=20,update=15,cancel=10,list=30,lookup=25")),
+				Integer.getInteger("loadtest.customers", 1000),
+				Integer.getInteger("loadtest.reservations", 10000),
+				Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01")),
+				maxP99 == null ? null : Duration.parse(maxP99),
+				Path.of(System.getProperty("loadtest.report-dir", "build/reports/load-test")));
+	}
+
+	private static Map<LoadOperation, Integer> parseMix(String mix) {
+		Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+		for (String entry : mix.split(",")) {
+			String[] weight = entry.trim().split("=");
+			weights.put(LoadOperation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+		}
+		return weights;
+	}
+}
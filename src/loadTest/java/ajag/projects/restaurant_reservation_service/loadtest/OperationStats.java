@@ -0,0 +1,39 @@
+package ajag.projects.restaurant_reservation_service.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The latencies (in microseconds) and the failed requests of one operation, recorded by one client.
+ * Every client has its own, they are only added together once the clients are done. */
+class OperationStats {
+
+	/** Three significant digits, auto-resized so no latency is ever out of range. */
+	final Histogram latencies = new Histogram(3);
+	final Map<Integer, Long> failuresByStatus = new TreeMap<>();
+
+	void record(long micros, int status) {
+		latencies.recordValue(micros);
+		if (status >= 400 || status < 0) {
+			failuresByStatus.merge(status, 1L, Long::sum);
+		}
+	}
+
+	void add(OperationStats other) {
+		latencies.add(other.latencies);
+		other.failuresByStatus.forEach((status, count) -> failuresByStatus.merge(status, count, Long::sum));
+	}
+
+	long requests() {
+		return latencies.getTotalCount();
+	}
+
+	long failures() {
+		return failuresByStatus.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	double errorRate() {
+		return requests() == 0 ? 0 : (double) failures() / requests();
+	}
+}
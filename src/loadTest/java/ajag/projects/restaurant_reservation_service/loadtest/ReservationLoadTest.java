@@ -0,0 +1,292 @@
+package ajag.projects.restaurant_reservation_service.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** This load test boots the whole application on a random port with the in-memory H2 database, then sends a mix of
+ * create/update/cancel/list/lookup requests from many clients at once over HTTP, the same way the integrations do.
+ * It records the latency of every request in an HDR histogram per operation and writes a report with the throughput,
+ * the p50/p99/p999 latencies and the failed requests of every operation. The test fails if an operation fails too often
+ * or is slower than the loadtest.max-p99 budget, so it can be used to gate a release.
+ * <p>The clients are closed-loop (each one waits for its response before sending the next request),
+ * so the latencies are those seen by the clients at the throughput the application reached. Every client runs on its own virtual thread,
+ * so thousands of them can be run from one machine.</p>
+ * <p>The application serves the requests on virtual threads when loadtest.virtual-threads is true, and on the Tomcat platform threads otherwise.
+ * When loadtest.reactive is true, the reactive variant of the application (WebFlux and R2DBC) is measured instead.</p> */
+class ReservationLoadTest {
+
+	private static final int TRACKED_RESERVATIONS = 1 << 16;
+	/** Only on the classpath of ./gradlew loadTestReactive (and of the reactive runs of loadTestStacks). */
+	private static final String REACTIVE_APPLICATION = "ajag.projects.restaurant_reservation_service.reactive.ReactiveReservationServiceApplication";
+
+	private ConfigurableApplicationContext application;
+	private int port;
+	private ObjectMapper objectMapper;
+
+	private final LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+	private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+	private final List<Long> customerIds = new ArrayList<>();
+	private final List<String> customerEmails = new ArrayList<>();
+	/** The latest created reservations, the ones updated and canceled by the clients. */
+	private final AtomicLongArray reservationIds = new AtomicLongArray(TRACKED_RESERVATIONS);
+	private final AtomicInteger reservationCount = new AtomicInteger();
+
+	@BeforeEach
+	void startApplication() throws ClassNotFoundException {
+		SpringApplicationBuilder builder = settings.reactive()
+				? new SpringApplicationBuilder(Class.forName(REACTIVE_APPLICATION)).profiles("reactive")
+				: new SpringApplicationBuilder(RestaurantReservationServiceApplication.class);
+		application = builder.run(
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1",
+				"--spring.r2dbc.url=r2dbc:h2:mem:///load-test?options=DB_CLOSE_DELAY=-1", // The same database, for the reactive variant
+				"--reservation.capacity.seats-per-slot=1000000", // The capacity is not what is measured, no reservation is refused
+				"--spring.threads.virtual.enabled=" + settings.virtualThreads(),
+				"--logging.level.root=WARN");
+		port = application.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+		objectMapper = application.getBean(ObjectMapper.class);
+	}
+
+	@AfterEach
+	void stopApplication() {
+		application.close();
+	}
+
+	@Test
+	void testReservationEndpointsUnderLoad() throws Exception {
+		// Arrange: Create the customers and reservations the clients start from
+		for (int i = 0; i < settings.customers(); i++) {
+			String email = "load-customer-" + i + "@example.com";
+			JsonNode customer = send(HttpRequest.newBuilder(uri("/customers"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(
+							"{\"name\":\"Customer " + i + "\",\"email\":\"" + email + "\",\"phoneNumber\":\"0900000" + i + "\"}")));
+			customerIds.add(customer.get("id").asLong());
+			customerEmails.add(email);
+		}
+		for (int i = 0; i < settings.reservations(); i++) {
+			trackReservation(send(createRequest()).get("id").asLong());
+		}
+
+		// Act: Every client sends requests until the end of the warmup and the measurement
+		long measureFrom = System.nanoTime() + settings.warmup().toNanos();
+		long measureUntil = measureFrom + settings.duration().toNanos();
+		List<Map<LoadOperation, OperationStats>> clientStats = new ArrayList<>();
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<Map<LoadOperation, OperationStats>>> futures = new ArrayList<>();
+			for (int i = 0; i < settings.clients(); i++) {
+				futures.add(clients.submit(() -> runClient(measureFrom, measureUntil)));
+			}
+			for (Future<Map<LoadOperation, OperationStats>> future : futures) {
+				clientStats.add(future.get());
+			}
+		}
+
+		Map<LoadOperation, OperationStats> stats = new EnumMap<>(LoadOperation.class);
+		for (Map<LoadOperation, OperationStats> client : clientStats) {
+			client.forEach((operation, operationStats) -> stats.computeIfAbsent(operation, key -> new OperationStats()).add(operationStats));
+		}
+		writeReport(stats);
+
+		// Assert: Every operation was measured, did not fail too often and stayed within the latency budget
+		for (LoadOperation operation : settings.mix().keySet()) {
+			OperationStats operationStats = stats.get(operation);
+			assertThat(operationStats).as("%s was never sent", operation).isNotNull();
+			assertThat(operationStats.errorRate()).as("error rate of %s", operation).isLessThanOrEqualTo(settings.maxErrorRate());
+			if (settings.maxP99() != null) {
+				assertThat(operationStats.latencies.getValueAtPercentile(99))
+						.as("p99 of %s in microseconds", operation)
+						.isLessThanOrEqualTo(TimeUnit.NANOSECONDS.toMicros(settings.maxP99().toNanos()));
+			}
+		}
+	}
+
+	/** This method sends requests picked from the mix until measureUntil, the ones sent from measureFrom are recorded. */
+	private Map<LoadOperation, OperationStats> runClient(long measureFrom, long measureUntil) {
+		Map<LoadOperation, OperationStats> stats = new EnumMap<>(LoadOperation.class);
+		int totalWeight = settings.mix().values().stream().mapToInt(Integer::intValue).sum();
+		long now;
+		while ((now = System.nanoTime()) < measureUntil) {
+			LoadOperation operation = pickOperation(ThreadLocalRandom.current().nextInt(totalWeight));
+			int status;
+			try {
+				HttpResponse<String> response = httpClient.send(request(operation).build(), HttpResponse.BodyHandlers.ofString());
+				status = response.statusCode();
+				if (operation == LoadOperation.CREATE && status == 201) {
+					trackReservation(objectMapper.readTree(response.body()).get("id").asLong());
+				}
+			} catch (IOException e) {
+				status = -1;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			if (now >= measureFrom) {
+				stats.computeIfAbsent(operation, key -> new OperationStats())
+						.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - now), status);
+			}
+		}
+		return stats;
+	}
+
+	private LoadOperation pickOperation(int weight) {
+		for (Map.Entry<LoadOperation, Integer> entry : settings.mix().entrySet()) {
+			weight -= entry.getValue();
+			if (weight < 0) {
+				return entry.getKey();
+			}
+		}
+		throw new IllegalStateException("The weights of the mix should be greater than 0!");
+	}
+
+	private HttpRequest.Builder request(LoadOperation operation) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return switch (operation) {
+			case CREATE -> createRequest();
+			case UPDATE -> HttpRequest.newBuilder(uri("/reservations/" + randomReservationId()
+					+ "?reservationDate=" + randomReservationDate() + "&guestCount=" + (1 + random.nextInt(8))))
+					.method("PATCH", HttpRequest.BodyPublishers.noBody());
+			case CANCEL -> HttpRequest.newBuilder(uri("/reservations/" + randomReservationId() + "/cancel"))
+					.method("PATCH", HttpRequest.BodyPublishers.noBody());
+			case LIST -> HttpRequest.newBuilder(uri("/reservations/customer/" + customerIds.get(random.nextInt(customerIds.size())) + "/page?limit=20"))
+					.GET();
+			case LOOKUP -> HttpRequest.newBuilder(uri("/customers/" + customerEmails.get(random.nextInt(customerEmails.size()))))
+					.GET();
+		};
+	}
+
+	private HttpRequest.Builder createRequest() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return HttpRequest.newBuilder(uri("/reservations"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"customer\":{\"id\":" + customerIds.get(random.nextInt(customerIds.size()))
+						+ "},\"reservationDate\":\"" + randomReservationDate() + "\",\"guestCount\":" + (1 + random.nextInt(8)) + "}"));
+	}
+
+	private JsonNode send(HttpRequest.Builder request) throws IOException, InterruptedException {
+		HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+		assertThat(response.statusCode()).as(response.body()).isBetween(200, 299);
+		return objectMapper.readTree(response.body());
+	}
+
+	private void trackReservation(long id) {
+		reservationIds.set(reservationCount.getAndIncrement() & (TRACKED_RESERVATIONS - 1), id);
+	}
+
+	private long randomReservationId() {
+		return reservationIds.get(ThreadLocalRandom.current().nextInt(Math.min(reservationCount.get(), TRACKED_RESERVATIONS)));
+	}
+
+	private static LocalDateTime randomReservationDate() {
+		// Within the next 300 days, on the half hour, from 11:00 to 21:30
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1 + random.nextInt(300)).plusMinutes(660 + 30L * random.nextInt(22));
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+	/** This method writes summary.txt and summary.json with the numbers of every operation,
+	 * and the full latency distribution of every operation to &lt;operation&gt;.hgrm (in milliseconds). */
+	private void writeReport(Map<LoadOperation, OperationStats> stats) throws IOException {
+		Files.createDirectories(settings.reportDirectory());
+		double seconds = settings.duration().toNanos() / 1e9;
+		ArrayNode operations = objectMapper.createArrayNode();
+		StringBuilder summary = new StringBuilder(String.format("%d clients, %s, %s warmup, %s measured%n%n%-45s %10s %10s %10s %10s %10s %10s %10s%n",
+				settings.clients(), server(), settings.warmup(), settings.duration(),
+				"endpoint", "requests", "req/s", "failed", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+		OperationStats allStats = new OperationStats();
+		for (Map.Entry<LoadOperation, OperationStats> entry : stats.entrySet()) {
+			LoadOperation operation = entry.getKey();
+			OperationStats operationStats = entry.getValue();
+			Histogram latencies = operationStats.latencies;
+			allStats.add(operationStats);
+			summary.append(summaryLine(operation.endpoint(), operationStats, seconds));
+
+			ObjectNode node = operations.addObject();
+			node.put("operation", operation.name());
+			node.put("endpoint", operation.endpoint());
+			node.put("requests", operationStats.requests());
+			node.put("throughputPerSecond", operationStats.requests() / seconds);
+			node.put("failures", operationStats.failures());
+			node.putPOJO("failuresByStatus", operationStats.failuresByStatus);
+			node.put("p50Millis", millis(latencies.getValueAtPercentile(50)));
+			node.put("p99Millis", millis(latencies.getValueAtPercentile(99)));
+			node.put("p999Millis", millis(latencies.getValueAtPercentile(99.9)));
+			node.put("maxMillis", millis(latencies.getMaxValue()));
+
+			try (PrintStream out = new PrintStream(settings.reportDirectory().resolve(operation.name().toLowerCase() + ".hgrm").toFile())) {
+				latencies.outputPercentileDistribution(out, 1000.0);
+			}
+		}
+
+		summary.append(summaryLine("all requests", allStats, seconds));
+
+		ObjectNode report = objectMapper.createObjectNode();
+		report.put("clients", settings.clients());
+		report.put("server", server());
+		report.put("throughputPerSecond", allStats.requests() / seconds);
+		report.put("p99Millis", millis(allStats.latencies.getValueAtPercentile(99)));
+		report.put("warmup", settings.warmup().toString());
+		report.put("duration", settings.duration().toString());
+		report.set("operations", operations);
+		objectMapper.writerWithDefaultPrettyPrinter().writeValue(settings.reportDirectory().resolve("summary.json").toFile(), report);
+		Files.writeString(settings.reportDirectory().resolve("summary.txt"), summary);
+		System.out.println(summary);
+	}
+
+	private static String summaryLine(String endpoint, OperationStats stats, double seconds) {
+		Histogram latencies = stats.latencies;
+		return String.format("%-45s %10d %10.1f %10d %10.2f %10.2f %10.2f %10.2f%n",
+				endpoint, stats.requests(), stats.requests() / seconds, stats.failures(),
+				millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+				millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()));
+	}
+
+	/** This method returns how the measured application serves the requests, as written in the report. */
+	private String server() {
+		if (settings.reactive()) {
+			return "reactive (WebFlux event loop, R2DBC reads)";
+		}
+		return settings.virtualThreads() ? "virtual threads" : "platform threads";
+	}
+
+	private static double millis(long micros) {
+		return micros / 1000.0;
+	}
+}
@@ -0,0 +1,23 @@
+package ajag.projects.restaurant_reservation_service;
+
+import ajag.projects.restaurant_reservation_service.capacity.SeatCapacityEngine;
+import ajag.projects.restaurant_reservation_service.capacity.SeatCapacityProperties;
+
+import java.time.Clock;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** This class creates the engine that keeps the restaurant from being overbooked */
+@Configuration
+@EnableConfigurationProperties(SeatCapacityProperties.class)
+public class CapacityConfig {
+
+    /** The seats booked in every time slot of the bookable days, filled from the database on startup by the SeatCapacityService. */
+    @Bean
+    public SeatCapacityEngine seatCapacityEngine(SeatCapacityProperties properties) {
+        return new SeatCapacityEngine(Clock.systemDefaultZone(), properties.getSeatsPerSlot(), properties.getSlotLength(),
+            properties.getDiningDuration(), properties.getBookingHorizonDays());
+    }
+}
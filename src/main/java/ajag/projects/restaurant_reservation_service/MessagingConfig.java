@@ -0,0 +1,28 @@
+package ajag.projects.restaurant_reservation_service;
+
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.notifications.LoggingNotificationSender;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationOutboxProperties;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationSender;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** This class creates the senders that deliver the notifications of each communication method */
+@Configuration
+@EnableConfigurationProperties(NotificationOutboxProperties.class)
+public class MessagingConfig {
+
+    /** The sender of the notifications to the email address of the customers. */
+    @Bean
+    public NotificationSender emailNotificationSender() {
+        return new LoggingNotificationSender(PreferredComms.EMAIL);
+    }
+
+    /** The sender of the notifications to the phone number of the customers. */
+    @Bean
+    public NotificationSender smsNotificationSender() {
+        return new LoggingNotificationSender(PreferredComms.SMS);
+    }
+}
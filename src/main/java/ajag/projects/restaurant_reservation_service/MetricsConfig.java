@@ -0,0 +1,20 @@
+package ajag.projects.restaurant_reservation_service;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** This class turns on the timers of the classes and methods annotated with {@link Timed} (e.g., every public method of the ReservationService).
+ * The timers, the repository timers (spring.data.repository.invocations) and the scheduler and notification metrics
+ * are exposed through the /actuator/metrics endpoint. */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,59 @@
+package ajag.projects.restaurant_reservation_service;
+
+import ajag.projects.restaurant_reservation_service.capacity.SeatCapacityProperties;
+import ajag.projects.restaurant_reservation_service.scheduling.HierarchicalTimingWheel;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationArchiveProperties;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationSchedulerProperties;
+
+import java.time.Clock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** This class creates the engine that fires the reservation reminders and completions */
+@Configuration
+@EnableConfigurationProperties({ReservationSchedulerProperties.class, ReservationArchiveProperties.class})
+public class SchedulingConfig {
+
+    /** The worker threads that run the reminder and completion tasks once they are due.
+     * When reservation.scheduler.virtual-threads is enabled, every due task gets its own virtual thread,
+     * so a slow save or notification never holds back the other reservations due at the same time.
+     * The database work of those tasks is still capped by reservation.scheduler.max-concurrent-db-work. */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService reservationTaskExecutor(ReservationSchedulerProperties properties) {
+        if (properties.isVirtualThreads()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("reservation-task-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(properties.getWorkerThreads(), Thread.ofPlatform().name("reservation-task-", 0).factory());
+    }
+
+    /** The check that refuses to start a node in CLUSTERED mode while the seat capacity or the read watermarks are on.
+     * They only see the changes made through their own node, so two nodes could each book the last seats of a slot,
+     * and a node would keep answering 304 Not Modified after a change made through another node. */
+    @Bean
+    public InitializingBean clusteredModeCheck(ReservationSchedulerProperties properties, SeatCapacityProperties capacityProperties,
+                                               @Value("${read-watermark.enabled:true}") boolean readWatermarkEnabled) {
+        return () -> {
+            if (properties.getMode() != ReservationSchedulerProperties.Mode.CLUSTERED) {
+                return;
+            }
+            if (capacityProperties.isEnabled()) {
+                throw new IllegalStateException("reservation.capacity.enabled should be false in CLUSTERED mode, the seats are only kept per node!");
+            }
+            if (readWatermarkEnabled) {
+                throw new IllegalStateException("read-watermark.enabled should be false in CLUSTERED mode, the versions are only kept per node!");
+            }
+        };
+    }
+
+    /** The timing wheel that holds every pending reminder and completion of the confirmed reservations. */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public HierarchicalTimingWheel reservationTimingWheel(ReservationSchedulerProperties properties, ExecutorService reservationTaskExecutor) {
+        return new HierarchicalTimingWheel(Clock.systemDefaultZone(), properties.getTickMillis(), reservationTaskExecutor);
+    }
+}
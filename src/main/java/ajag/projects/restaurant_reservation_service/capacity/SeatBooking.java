@@ -0,0 +1,10 @@
+package ajag.projects.restaurant_reservation_service.capacity;
+
+import java.time.LocalDateTime;
+
+/** This record represents the seats held by one reservation, from its reservation date for the dining duration.
+ *
+ * @param start - date and time of the reservation
+ * @param seats - number of guests of the reservation */
+public record SeatBooking(LocalDateTime start, int seats) {
+}
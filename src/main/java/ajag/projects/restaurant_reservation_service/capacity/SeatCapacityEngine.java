@@ -0,0 +1,356 @@
+package ajag.projects.restaurant_reservation_service.capacity;
+
+import ajag.projects.restaurant_reservation_service.dtos.AvailableSlot;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** This class keeps the number of seats booked in every time slot of the bookable days, so overbooking is refused in memory.
+ * <p>The booked seats are kept in one primitive array with a row per day and a column per slot. The rows are used as a ring:
+ * the row of a day is reused for a day further ahead once that day is over. A reservation holds its seats in every slot
+ * from its reservation date for the dining duration.</p>
+ * <p>Seats are taken with a compare-and-set per slot that refuses to go over the seats per slot, so no lock is needed
+ * and the count of a slot can never be over the capacity, however many requests book it at the same time.
+ * A booking over several slots is all-or-nothing: if one slot is full, the seats already taken in the other slots are given back.</p>
+ * <p>Every row also has a segment tree holding the most seats booked in each range of its slots, which is updated after every change
+ * of a slot. It answers the availability searches without looking at every slot: the slots where a party doesn't fit are skipped
+ * a range at a time. The tree is only read for the searches, taking the seats is still decided by the compare-and-set above.</p> */
+public class SeatCapacityEngine {
+
+    private static final long MINUTES_PER_DAY = Duration.ofDays(1).toMinutes();
+
+    private final Clock clock;
+    private final int seatsPerSlot;
+    private final long slotMinutes;
+    private final int slotsPerDay;
+    private final int diningSlots;
+    private final int horizonDays;
+    private final int ringDays;
+    private final int treeLeaves;
+
+    /** Booked seats, row (day) by row, slotsPerDay entries per row. */
+    private final AtomicIntegerArray bookedSeats;
+    /** Epoch day currently held by each row of the ring. */
+    private final AtomicLongArray rowDays;
+    private final Object rowLock = new Object();
+    /** Segment tree of the most seats booked in a range of slots, row by row, 2 * treeLeaves nodes per row (the root is node 1). */
+    private final AtomicIntegerArray maxBookedSeats;
+    /** The tree of a row is updated by one thread at a time, so the last update always sees the latest seats of its slot. */
+    private final Object[] treeLocks;
+
+    /** This constructor creates an engine with seatsPerSlot(parameter) seats in every slot of slotLength(parameter),
+     * where a reservation holds its seats for diningDuration(parameter), and the days from today to horizonDays(parameter) - 1 days ahead can be booked. */
+    public SeatCapacityEngine(Clock clock, int seatsPerSlot, Duration slotLength, Duration diningDuration, int horizonDays) {
+        if (seatsPerSlot <= 0) { throw new IllegalArgumentException("seatsPerSlot should be greater than 0!"); }
+        if (slotLength.toMinutes() <= 0 || MINUTES_PER_DAY % slotLength.toMinutes() != 0) {
+            throw new IllegalArgumentException("slotLength should be a whole number of minutes that divides a day!");
+        }
+        if (horizonDays <= 0) { throw new IllegalArgumentException("horizonDays should be greater than 0!"); }
+        this.clock = clock;
+        this.seatsPerSlot = seatsPerSlot;
+        this.slotMinutes = slotLength.toMinutes();
+        this.slotsPerDay = (int) (MINUTES_PER_DAY / slotMinutes);
+        this.diningSlots = (int) Math.max(1, (diningDuration.toMinutes() + slotMinutes - 1) / slotMinutes);
+        this.horizonDays = horizonDays;
+        // Two more rows than the horizon, so the rows of yesterday and the day before are only reused once nothing can book or release them anymore
+        this.ringDays = horizonDays + 2;
+        this.bookedSeats = new AtomicIntegerArray(ringDays * slotsPerDay);
+        this.rowDays = new AtomicLongArray(ringDays);
+        this.treeLeaves = Integer.highestOneBit(Math.max(1, slotsPerDay - 1)) << 1; // Smallest power of two holding every slot
+        this.maxBookedSeats = new AtomicIntegerArray(ringDays * 2 * treeLeaves);
+        this.treeLocks = new Object[ringDays];
+        for (int row = 0; row < ringDays; row++) {
+            rowDays.set(row, Long.MIN_VALUE);
+            treeLocks[row] = new Object();
+        }
+    }
+
+    /** This method returns the number of seats of every slot. */
+    public int getSeatsPerSlot() {
+        return seatsPerSlot;
+    }
+
+    /** This method returns the length of a slot. */
+    public Duration getSlotLength() {
+        return Duration.ofMinutes(slotMinutes);
+    }
+
+    /** This method tells whether the date(parameter) is within the days that can be booked. */
+    public boolean isBookable(LocalDateTime date) {
+        long day = date.toLocalDate().toEpochDay();
+        long today = LocalDate.now(clock).toEpochDay();
+        return day >= today && day < today + horizonDays;
+    }
+
+    /** This method returns the number of seats booked in the slot holding the time(parameter). */
+    public int getBookedSeats(LocalDateTime time) {
+        long slot = slotOf(time);
+        int index = currentIndex(slot);
+        return index < 0 ? 0 : bookedSeats.get(index);
+    }
+
+    /** This method searches the earliest slots from the date from(parameter) to the date until(parameter) (excluded) where a party of
+     * seats(parameter) guests can start dining, which is when every slot of its dining duration has enough seats left.
+     * Only the slots that are not over yet and whose whole dining duration is within the bookable days are returned.
+     * The result is a snapshot: the seats are only taken when the reservation is made.
+     *
+     * @param limit - maximum number of slots returned
+     * @return the first limit(parameter) available slots, with the seats left for the whole dining duration. */
+    public List<AvailableSlot> findAvailableSlots(LocalDateTime from, LocalDateTime until, int seats, int limit) {
+        List<AvailableSlot> availableSlots = new ArrayList<>(Math.min(limit, 64));
+        int mostBooked = seatsPerSlot - seats;
+        if (mostBooked < 0) {
+            return availableSlots;
+        }
+
+        long today = LocalDate.now(clock).toEpochDay();
+        long firstSlot = Math.max(ceilSlotOf(from), ceilSlotOf(LocalDateTime.now(clock)));
+        long lastSlot = Math.min(ceilSlotOf(until), (today + horizonDays) * slotsPerDay - diningSlots + 1);
+        long slot = firstSlot;
+        while (slot < lastSlot && availableSlots.size() < limit) {
+            long lastDiningSlot = slot + diningSlots - 1;
+            long fullSlot = firstSlotAbove(slot, lastDiningSlot, mostBooked);
+            if (fullSlot < 0) {
+                availableSlots.add(new AvailableSlot(startOf(slot), seatsPerSlot - maxBookedSeats(slot, lastDiningSlot)));
+                slot++;
+            } else {
+                slot = fullSlot + 1; // No party starting before the full slot can dine through it
+            }
+        }
+        return availableSlots;
+    }
+
+    /** This method takes the seats of a new booking(parameter), if every slot it needs has enough seats left.
+     *
+     * @return true if the seats were taken, false if nothing was taken because a slot is full or not bookable. */
+    public boolean tryBook(SeatBooking booking) {
+        return tryChange(null, booking);
+    }
+
+    /** This method gives back the seats of the booking(parameter). */
+    public void release(SeatBooking booking) {
+        releaseChange(booking, null);
+    }
+
+    /** This method takes the seats that the booking to(parameter) needs on top of what the booking from(parameter) already holds,
+     * if every slot has enough seats left. The seats that are no longer needed are NOT given back, that is done by
+     * {@link #releaseChange}, once the change is final. A change is undone with releaseChange(to, from).
+     *
+     * @param from - seats held before the change, or null for a new booking
+     * @param to - seats needed after the change
+     * @return true if the seats were taken, false if nothing was taken because a slot is full or not bookable. */
+    public boolean tryChange(SeatBooking from, SeatBooking to) {
+        // Only the slots of the new booking can need more seats
+        long first = slotOf(to.start());
+        for (long slot = first; slot < first + diningSlots; slot++) {
+            int extraSeats = to.seats() - seatsIn(from, slot);
+            if (extraSeats > 0 && !tryTake(slot, extraSeats)) {
+                for (long taken = first; taken < slot; taken++) {
+                    int takenSeats = to.seats() - seatsIn(from, taken);
+                    if (takenSeats > 0) {
+                        give(taken, takenSeats);
+                    }
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** This method gives back the seats that the booking from(parameter) holds but the booking to(parameter) doesn't need.
+     *
+     * @param from - seats held before the change
+     * @param to - seats needed after the change, or null if the booking is canceled */
+    public void releaseChange(SeatBooking from, SeatBooking to) {
+        // Only the slots of the old booking can have seats to give back
+        long first = slotOf(from.start());
+        for (long slot = first; slot < first + diningSlots; slot++) {
+            int freedSeats = from.seats() - seatsIn(to, slot);
+            if (freedSeats > 0) {
+                give(slot, freedSeats);
+            }
+        }
+    }
+
+    /** This method adds the seats of an existing booking(parameter) without checking the capacity, it is used to load the bookings
+     * already in the database. The slots that are not bookable are skipped. */
+    public void add(SeatBooking booking) {
+        long first = slotOf(booking.start());
+        for (long slot = first; slot < first + diningSlots; slot++) {
+            int index = bookableIndex(slot);
+            if (index >= 0) {
+                bookedSeats.addAndGet(index, booking.seats());
+                updateTree(index);
+            }
+        }
+    }
+
+    private boolean tryTake(long slot, int seats) {
+        int index = bookableIndex(slot);
+        if (index < 0) {
+            return false;
+        }
+        while (true) {
+            int booked = bookedSeats.get(index);
+            if (booked + seats > seatsPerSlot) {
+                return false;
+            }
+            if (bookedSeats.compareAndSet(index, booked, booked + seats)) {
+                updateTree(index);
+                return true;
+            }
+        }
+    }
+
+    private void give(long slot, int seats) {
+        int index = currentIndex(slot);
+        if (index < 0) {
+            return; // The day is over (its row was reused) or was never booked
+        }
+        while (true) {
+            int booked = bookedSeats.get(index);
+            if (bookedSeats.compareAndSet(index, booked, Math.max(0, booked - seats))) {
+                updateTree(index);
+                return;
+            }
+        }
+    }
+
+    /** This method sets the seats of the slot at the index(parameter) in the tree of its row, and the most seats of every range holding it. */
+    private void updateTree(int index) {
+        int row = index / slotsPerDay;
+        int node = treeLeaves + index % slotsPerDay;
+        int base = row * 2 * treeLeaves;
+        synchronized (treeLocks[row]) {
+            maxBookedSeats.set(base + node, bookedSeats.get(index));
+            for (node >>= 1; node > 0; node >>= 1) {
+                maxBookedSeats.set(base + node, Math.max(maxBookedSeats.get(base + 2 * node), maxBookedSeats.get(base + 2 * node + 1)));
+            }
+        }
+    }
+
+    /** This method returns the first slot from the slot first(parameter) to the slot last(parameter) with more than seats(parameter) booked, or -1. */
+    private long firstSlotAbove(long first, long last, int seats) {
+        for (long day = Math.floorDiv(first, slotsPerDay); day <= Math.floorDiv(last, slotsPerDay); day++) {
+            int row = (int) Math.floorMod(day, (long) ringDays);
+            if (rowDays.get(row) != day) {
+                continue; // Nothing was booked on that day yet
+            }
+            long dayStart = day * slotsPerDay;
+            int column = firstColumnAbove(row * 2 * treeLeaves, 1, 0, treeLeaves - 1,
+                (int) (Math.max(first, dayStart) - dayStart), (int) (Math.min(last, dayStart + slotsPerDay - 1) - dayStart), seats);
+            if (column >= 0) {
+                return dayStart + column;
+            }
+        }
+        return -1;
+    }
+
+    private int firstColumnAbove(int base, int node, int nodeFirst, int nodeLast, int first, int last, int seats) {
+        if (nodeLast < first || nodeFirst > last || maxBookedSeats.get(base + node) <= seats) {
+            return -1;
+        }
+        if (nodeFirst == nodeLast) {
+            return nodeFirst;
+        }
+        int middle = (nodeFirst + nodeLast) >>> 1;
+        int column = firstColumnAbove(base, 2 * node, nodeFirst, middle, first, last, seats);
+        return column >= 0 ? column : firstColumnAbove(base, 2 * node + 1, middle + 1, nodeLast, first, last, seats);
+    }
+
+    /** This method returns the most seats booked in a slot from the slot first(parameter) to the slot last(parameter). */
+    private int maxBookedSeats(long first, long last) {
+        int max = 0;
+        for (long day = Math.floorDiv(first, slotsPerDay); day <= Math.floorDiv(last, slotsPerDay); day++) {
+            int row = (int) Math.floorMod(day, (long) ringDays);
+            if (rowDays.get(row) != day) {
+                continue;
+            }
+            long dayStart = day * slotsPerDay;
+            max = Math.max(max, maxColumns(row * 2 * treeLeaves, 1, 0, treeLeaves - 1,
+                (int) (Math.max(first, dayStart) - dayStart), (int) (Math.min(last, dayStart + slotsPerDay - 1) - dayStart)));
+        }
+        return max;
+    }
+
+    private int maxColumns(int base, int node, int nodeFirst, int nodeLast, int first, int last) {
+        if (nodeLast < first || nodeFirst > last) {
+            return 0;
+        }
+        if (first <= nodeFirst && nodeLast <= last) {
+            return maxBookedSeats.get(base + node);
+        }
+        int middle = (nodeFirst + nodeLast) >>> 1;
+        return Math.max(maxColumns(base, 2 * node, nodeFirst, middle, first, last),
+            maxColumns(base, 2 * node + 1, middle + 1, nodeLast, first, last));
+    }
+
+    /** This method returns the index of the slot(parameter) if its day still holds its row, or -1. */
+    private int currentIndex(long slot) {
+        long day = Math.floorDiv(slot, slotsPerDay);
+        int row = (int) Math.floorMod(day, (long) ringDays);
+        return rowDays.get(row) == day ? row * slotsPerDay + (int) Math.floorMod(slot, (long) slotsPerDay) : -1;
+    }
+
+    /** This method returns the index of the slot(parameter) if its day can be booked, or -1.
+     * The first time a day is booked, the row it takes over from a past day is cleared. */
+    private int bookableIndex(long slot) {
+        long day = Math.floorDiv(slot, slotsPerDay);
+        long today = LocalDate.now(clock).toEpochDay();
+        if (day < today || day >= today + horizonDays) {
+            return -1;
+        }
+
+        int row = (int) Math.floorMod(day, (long) ringDays);
+        if (rowDays.get(row) != day) {
+            synchronized (rowLock) {
+                long rowDay = rowDays.get(row);
+                if (rowDay > day) {
+                    return -1;
+                }
+                if (rowDay != day) {
+                    synchronized (treeLocks[row]) {
+                        for (int column = 0; column < slotsPerDay; column++) {
+                            bookedSeats.set(row * slotsPerDay + column, 0);
+                        }
+                        for (int node = 0; node < 2 * treeLeaves; node++) {
+                            maxBookedSeats.set(row * 2 * treeLeaves + node, 0);
+                        }
+                    }
+                    rowDays.set(row, day); // Published after the row is cleared
+                }
+            }
+        }
+        return row * slotsPerDay + (int) Math.floorMod(slot, (long) slotsPerDay);
+    }
+
+    private long slotOf(LocalDateTime time) {
+        long epochMinute = time.toEpochSecond(ZoneOffset.UTC) / 60;
+        return Math.floorDiv(epochMinute, slotMinutes);
+    }
+
+    /** This method returns the first slot starting at or after the time(parameter). */
+    private long ceilSlotOf(LocalDateTime time) {
+        long epochSecond = time.toEpochSecond(ZoneOffset.UTC) + (time.getNano() > 0 ? 1 : 0);
+        return Math.floorDiv(Math.floorDiv(epochSecond + 59, 60) + slotMinutes - 1, slotMinutes);
+    }
+
+    private LocalDateTime startOf(long slot) {
+        return LocalDateTime.ofEpochSecond(slot * slotMinutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    private int seatsIn(SeatBooking booking, long slot) {
+        if (booking == null) {
+            return 0;
+        }
+        long first = slotOf(booking.start());
+        return slot >= first && slot < first + diningSlots ? booking.seats() : 0;
+    }
+}
@@ -0,0 +1,77 @@
+package ajag.projects.restaurant_reservation_service.capacity;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** This class holds the settings of the seat capacity (reservation.capacity.* in the application properties). */
+@ConfigurationProperties(prefix = "reservation.capacity")
+public class SeatCapacityProperties {
+
+    /** Whether the seats are checked at all. The seats are only kept in the memory of this node, so it has to be turned off
+     * when several nodes share the database (reservation.scheduler.mode=CLUSTERED), two nodes could each book the last seats of a slot. */
+    private boolean enabled = true;
+
+    /** Number of seats the restaurant has, so the most guests that can be booked in the same time slot. */
+    private int seatsPerSlot = 60;
+
+    /** Length of a time slot, it should divide a day evenly. */
+    private Duration slotLength = Duration.ofMinutes(30);
+
+    /** How long a reservation keeps its seats, from its reservation date. */
+    private Duration diningDuration = Duration.ofHours(2);
+
+    /** Number of days ahead (today included) that can be booked. */
+    private int bookingHorizonDays = 366;
+
+    /** Most slots returned by one availability search. */
+    private int availabilityMaxResults = 100;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSeatsPerSlot() {
+        return seatsPerSlot;
+    }
+
+    public void setSeatsPerSlot(int seatsPerSlot) {
+        this.seatsPerSlot = seatsPerSlot;
+    }
+
+    public Duration getSlotLength() {
+        return slotLength;
+    }
+
+    public void setSlotLength(Duration slotLength) {
+        this.slotLength = slotLength;
+    }
+
+    public Duration getDiningDuration() {
+        return diningDuration;
+    }
+
+    public void setDiningDuration(Duration diningDuration) {
+        this.diningDuration = diningDuration;
+    }
+
+    public int getBookingHorizonDays() {
+        return bookingHorizonDays;
+    }
+
+    public void setBookingHorizonDays(int bookingHorizonDays) {
+        this.bookingHorizonDays = bookingHorizonDays;
+    }
+
+    public int getAvailabilityMaxResults() {
+        return availabilityMaxResults;
+    }
+
+    public void setAvailabilityMaxResults(int availabilityMaxResults) {
+        this.availabilityMaxResults = availabilityMaxResults;
+    }
+}
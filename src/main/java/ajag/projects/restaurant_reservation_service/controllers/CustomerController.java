@@ -1,7 +1,12 @@
 package ajag.projects.restaurant_reservation_service.controllers;
 
+import ajag.projects.restaurant_reservation_service.datasource.ReadWriteRoutingDataSource;
+import ajag.projects.restaurant_reservation_service.dtos.CustomerCacheStats;
+import ajag.projects.restaurant_reservation_service.dtos.CustomerSummary;
+import ajag.projects.restaurant_reservation_service.dtos.ReadWatermark;
 import ajag.projects.restaurant_reservation_service.entities.Customer;
 import ajag.projects.restaurant_reservation_service.services.CustomerService;
+import ajag.projects.restaurant_reservation_service.services.ReadWatermarkService;
 
 import java.util.Optional;
 
@@ -12,6 +17,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /** This controller class is used to create REST APIs for managing customers.
  * It provides endpoints for adding, retrieving, and updating customer information. */
@@ -20,10 +26,12 @@ import org.springframework.web.bind.annotation.RestController;
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final ReadWatermarkService readWatermarkService;
 
-    /** This constructor is used to inject the {@link CustomerService} dependency into this class.*/
-    public CustomerController(CustomerService customerService) {
+    /** This constructor is used to inject the dependencies ({@link CustomerService}, {@link ReadWatermarkService}) into this class.*/
+    public CustomerController(CustomerService customerService, ReadWatermarkService readWatermarkService) {
         this.customerService = customerService;
+        this.readWatermarkService = readWatermarkService;
     }
 
     /** Adds a new customer to the system.
@@ -36,12 +44,33 @@ public class CustomerController {
     }
 
     /** Retrieves a customer by their email.
+     * <p>The customer is read from the customer cache, or with a single query if it is not cached.
+     * The response has the ETag of the customer, a poll that sends it back (If-None-Match) is answered 304 Not Modified
+     * without a body until the customer is changed. A customer that is not cached is then read from the primary database,
+     * even with a read replica, so the response always holds the version it is tagged with.</p>
      *
      * @param email The email of the customer to retrieve.
-     * @return An {@link Optional} containing the {@link Customer} if found, otherwise empty. */
+     * @param request The request, whose If-None-Match header is checked.
+     * @return An {@link Optional} containing the {@link CustomerSummary} if found, otherwise empty, or nothing if not modified. */
     @GetMapping("/{email}")
-    public Optional<Customer> getCustomer(@PathVariable String email) {
-        return customerService.findByEmail(email);
+    public Optional<CustomerSummary> getCustomer(@PathVariable String email, WebRequest request) {
+        ReadWatermark watermark = readWatermarkService.getCustomerWatermark(email);
+        if (watermark == null) {
+            return customerService.findByEmail(email).map(CustomerSummary::of);
+        }
+        if (request.checkNotModified(watermark.eTag())) {
+            return null;
+        }
+        // Like the reservation lists, a customer missing from the cache is read from the primary database, not from a lagging replica
+        return ReadWriteRoutingDataSource.readFromPrimary(() -> customerService.findByEmail(email)).map(CustomerSummary::of);
+    }
+
+    /** Retrieves the counters of the customer cache.
+     *
+     * @return The {@link CustomerCacheStats} with the hits, misses and evictions of the cache. */
+    @GetMapping("/cache/stats")
+    public CustomerCacheStats getCacheStats() {
+        return customerService.getCacheStats();
     }
 
     /** Updates the details of an existing customer.
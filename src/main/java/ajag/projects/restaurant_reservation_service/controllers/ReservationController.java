@@ -1,12 +1,30 @@
 package ajag.projects.restaurant_reservation_service.controllers;
 
+import ajag.projects.restaurant_reservation_service.datasource.ReadWriteRoutingDataSource;
+import ajag.projects.restaurant_reservation_service.dtos.AvailableSlot;
+import ajag.projects.restaurant_reservation_service.dtos.BatchResult;
+import ajag.projects.restaurant_reservation_service.dtos.ReadWatermark;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationPage;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationReschedule;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
 import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.services.ReadWatermarkService;
+import ajag.projects.restaurant_reservation_service.services.ReservationEventBroadcaster;
 import ajag.projects.restaurant_reservation_service.services.ReservationService;
+import ajag.projects.restaurant_reservation_service.services.SeatCapacityService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,10 +36,20 @@ import java.util.List;
 public class ReservationController {
 
     private final ReservationService reservationService;
+    private final SeatCapacityService seatCapacityService;
+    private final ReadWatermarkService readWatermarkService;
+    private final ReservationEventBroadcaster eventBroadcaster;
+    private final ObjectMapper objectMapper;
 
-    /** This constructor is used to inject the {@link ReservationService} dependency into this class.*/
-    public ReservationController(ReservationService reservationService) {
+    /** This constructor is used to inject the dependencies ({@link ReservationService}, {@link SeatCapacityService}, {@link ReadWatermarkService},
+     * {@link ReservationEventBroadcaster}, {@link ObjectMapper}) into this class.*/
+    public ReservationController(ReservationService reservationService, SeatCapacityService seatCapacityService, ReadWatermarkService readWatermarkService,
+                                 ReservationEventBroadcaster eventBroadcaster, ObjectMapper objectMapper) {
         this.reservationService = reservationService;
+        this.seatCapacityService = seatCapacityService;
+        this.readWatermarkService = readWatermarkService;
+        this.eventBroadcaster = eventBroadcaster;
+        this.objectMapper = objectMapper;
     }
 
     /** Creates a new reservation in the system.
@@ -37,43 +65,176 @@ public class ReservationController {
         return ResponseEntity.status(HttpStatus.CREATED).body(newReservation);
     }
 
+    /** Creates many new reservations in the system at once.
+     * <p>This endpoint enables integrations (e.g., event and group bookings) to make many reservations in one request,
+     * with the same details as a single reservation. Each reservation is checked on its own and the valid ones are confirmed together,
+     * the customers are notified the same way as for a single reservation.</p>
+     *
+     * @param reservations The list of {@link Reservation} entities containing the reservation details.
+     * @return A {@link ResponseEntity} containing the {@link BatchResult} with the outcome of every reservation, in the order of the request. */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResult> createReservations(@RequestBody List<Reservation> reservations) {
+        return ResponseEntity.ok(reservationService.createReservations(reservations));
+    }
+
     /** Cancels an existing reservation in the system.
      * <p>This endpoint enables customers to change their plans and cancel their reservation using a reservation ID.
      * Then, the system confirms the cancellation and sends a notification through the customer's
      * preferred method of communication (e.g., SMS or Email). </p>
      *
      * @param id The ID of the reservation to be canceled.
+     * @param version The version of the reservation the cancellation was decided on, the cancellation is refused with 409 if it was changed since.
      * @return A {@link ResponseEntity} containing the updated {@link Reservation} entity with cancellation details.*/
     @PatchMapping("/{id}/cancel")
-    public ResponseEntity<Reservation> cancelReservation(@PathVariable Long id) {
-        Reservation canceledReservation = reservationService.cancelReservation(id);
+    public ResponseEntity<Reservation> cancelReservation(
+        @PathVariable Long id,
+        @RequestParam(required = false) Long version) {
+        Reservation canceledReservation = reservationService.cancelReservation(id, version);
         return ResponseEntity.ok(canceledReservation);
     }
 
+    /** Cancels many existing reservations in the system at once.
+     * <p>This endpoint enables the restaurant to cancel a list of reservations in one request (e.g., when closing for the night).
+     * The customers are notified the same way as for a single cancellation. Only the confirmed reservations are canceled,
+     * the others are reported as 409 and their customers are not notified again.</p>
+     *
+     * @param ids The IDs of the reservations to be canceled.
+     * @return A {@link ResponseEntity} containing the {@link BatchResult} with the outcome of every ID, in the order of the request. */
+    @PatchMapping("/batch/cancel")
+    public ResponseEntity<BatchResult> cancelReservations(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(reservationService.cancelReservations(ids));
+    }
+
+    /** Updates the reservation details of many existing reservations at once.
+     * <p>This endpoint enables the time and number of guests of many reservations to be changed in one request.
+     * The customers are notified the same way as for a single update. Only the confirmed reservations can be changed,
+     * the others are reported as 409.</p>
+     *
+     * @param changes The list of {@link ReservationReschedule} with the ID, new date and time, and new number of guests of every reservation.
+     * @return A {@link ResponseEntity} containing the {@link BatchResult} with the outcome of every change, in the order of the request. */
+    @PatchMapping("/batch/reschedule")
+    public ResponseEntity<BatchResult> rescheduleReservations(@RequestBody List<ReservationReschedule> changes) {
+        return ResponseEntity.ok(reservationService.rescheduleReservations(changes));
+    }
+
     /** View all existing reservations for a specific customer.
      * <p>This endpoint enables customers to view a list of all their upcoming reservations
      * by providing their customer ID. The returned list helps customers manage their bookings effectively. </p>
+     * <p>The response has the ETag and Last-Modified of the list. A poll that sends them back (If-None-Match or If-Modified-Since)
+     * is answered 304 Not Modified without a body, and without reading the database, until a reservation of the customer is changed.
+     * The tagged list is read from the primary database, even with a read replica, so it always holds the version it is tagged with.</p>
      *
      * @param customerId The ID of the customer whose reservations are to be retrieved.
-     * @return A list of {@link Reservation} entities representing the customer's upcoming reservations. */
+     * @param request The request, whose If-None-Match and If-Modified-Since headers are checked.
+     * @return A list of {@link ReservationSummary} records representing the customer's upcoming reservations, or nothing if not modified. */
     @GetMapping("/customer/{customerId}")
-    public List<Reservation> viewReservations(@PathVariable Long customerId) {
-        return reservationService.getCustomerReservations(customerId);
+    public List<ReservationSummary> viewReservations(@PathVariable Long customerId, WebRequest request) {
+        // The version is read before the reservations, so the response is never tagged with a version newer than what it holds
+        ReadWatermark watermark = readWatermarkService.getReservationsWatermark(customerId);
+        if (watermark == null) {
+            return reservationService.getCustomerReservations(customerId);
+        }
+        if (request.checkNotModified(watermark.eTag(), watermark.lastModified())) {
+            return null;
+        }
+        // The version is moved on when a change is committed to the primary database, a lagging replica could still hold the list before it
+        return ReadWriteRoutingDataSource.readFromPrimary(() -> reservationService.getCustomerReservations(customerId));
+    }
+
+    /** View one page of the reservations for a specific customer.
+     * <p>This endpoint returns the reservations of the customer in the same order as the full list, a page at a time.
+     * The first page is requested without a cursor, and each next page is requested with the nextCursor of the previous one,
+     * until the nextCursor is null.</p>
+     *
+     * @param customerId The ID of the customer whose reservations are to be retrieved.
+     * @param cursor The nextCursor of the previous page, omitted for the first page.
+     * @param limit The maximum number of reservations in the page, capped to the maximum page size.
+     * @return A {@link ReservationPage} containing the reservations of the page and the cursor of the next page. */
+    @GetMapping("/customer/{customerId}/page")
+    public ReservationPage viewReservationPage(
+        @PathVariable Long customerId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit) {
+        return reservationService.getCustomerReservationPage(customerId, cursor, limit);
+    }
+
+    /** Streams all existing reservations for a specific customer.
+     * <p>This endpoint returns the same JSON array as the full list, but writes each reservation to the response
+     * one page at a time, so even the longest histories don't have to fit in memory, and no database connection is held
+     * while the reservations are written to a slow client.</p>
+     *
+     * @param customerId The ID of the customer whose reservations are to be retrieved.
+     * @return A {@link ResponseEntity} containing the {@link StreamingResponseBody} writing the reservations. */
+    @GetMapping("/customer/{customerId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamReservations(@PathVariable Long customerId) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                reservationService.streamCustomerReservations(customerId, reservation -> {
+                    try {
+                        generator.writeObject(reservation);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /** Streams the reservation changes as they happen (server-sent events).
+     * <p>This endpoint enables the host-stand dashboards to be told about every reservation that is created, updated, cancelled,
+     * completed or deleted, instead of polling the reservations. Each event is named after the change (e.g., CANCELLED)
+     * and holds the customer and reservation IDs, the reservation date and the number of guests as JSON.
+     * Only the changes committed after connecting are sent, a client that falls too far behind is disconnected
+     * and should read the reservations again when it reconnects.</p>
+     *
+     * @param from The earliest reservation date and time of the changes sent, all of them if omitted.
+     * @param until The reservation date and time until which the changes are sent (excluded), all of them if omitted.
+     * @return The {@link SseEmitter} the changes are sent through, 503 (Service Unavailable) if too many clients are connected. */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamReservationEvents(
+        @RequestParam(required = false) LocalDateTime from,
+        @RequestParam(required = false) LocalDateTime until) {
+        return eventBroadcaster.subscribe(from, until);
+    }
+
+    /** Searches the earliest times a party can be booked.
+     * <p>This endpoint enables customers and the booking widget to find when there is a table for their party,
+     * e.g., the first 5 times this week with room for 6 guests. A time is returned if every slot of the dining duration
+     * starting at that time has enough seats left. The seats are only taken once the reservation is made.</p>
+     *
+     * @param guestCount The number of guests of the party.
+     * @param from The earliest date and time to search from.
+     * @param until The date and time to search until (excluded).
+     * @param limit The maximum number of times returned, 10 if omitted.
+     * @return A list of {@link AvailableSlot} records, from the earliest time. */
+    @GetMapping("/availability")
+    public List<AvailableSlot> findAvailableSlots(
+        @RequestParam Integer guestCount,
+        @RequestParam LocalDateTime from,
+        @RequestParam LocalDateTime until,
+        @RequestParam(defaultValue = "10") Integer limit) {
+        return seatCapacityService.findAvailableSlots(guestCount, from, until, limit);
     }
 
     /** Updates the reservation details of an existing reservation in the system.
-     * <p>This endpoint enables customers to update the time and number of guests in their reservation.</p>
+     * <p>This endpoint enables customers to update the time and number of guests in their reservation.
+     * Only a confirmed reservation can be changed, a cancelled or completed one is refused with 409.</p>
      *
      * @param id The ID of the reservation to be updated.
      * @param reservationDate The new date and time of the reservation.
      * @param guestCount The updated number of guests of the reservation.
+     * @param version The version of the reservation the change was decided on, the change is refused with 409 if it was changed since.
      * @return A {@link ResponseEntity} containing the updated {@link Reservation} entity.*/
     @PatchMapping("/{id}")
     public ResponseEntity<Reservation> updateReservation(
         @PathVariable Long id,
         @RequestParam LocalDateTime reservationDate,
-        @RequestParam Integer guestCount) {
-        Reservation updatedReservation = reservationService.updateReservation(id, reservationDate, guestCount);
+        @RequestParam Integer guestCount,
+        @RequestParam(required = false) Long version) {
+        Reservation updatedReservation = reservationService.updateReservation(id, reservationDate, guestCount, version);
         return ResponseEntity.ok(updatedReservation);
     }
 
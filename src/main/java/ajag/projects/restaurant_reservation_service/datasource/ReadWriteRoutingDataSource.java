@@ -0,0 +1,69 @@
+package ajag.projects.restaurant_reservation_service.datasource;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/** This data source hands out the connections of the read replica to the read-only transactions (@Transactional(readOnly = true)),
+ * and the connections of the primary database to everything else: the changes, the statements run without a transaction,
+ * the reads of a request that has to see its own changes (see {@link ReadYourWritesFilter}),
+ * and the reads tagged with a version of the primary database (see {@link #readFromPrimary(Supplier)}).
+ * It has to be wrapped in a {@link LazyConnectionDataSourceProxy}, since the transaction manager takes the connection
+ * before the transaction is marked read-only. */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /** The key of the data source a connection is taken from. */
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> primaryRequired = new ThreadLocal<>();
+
+    /** This constructor takes the primary(parameter) database and its read replica(parameter). */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /** This method sends every read of the current thread to the primary database until {@link #clearPrimaryRequired()} is called. */
+    public static void requirePrimary() {
+        primaryRequired.set(Boolean.TRUE);
+    }
+
+    public static void clearPrimaryRequired() {
+        primaryRequired.remove();
+    }
+
+    /** This method runs the reads(parameter) on the primary database, read-only transactions included,
+     * then sends the reads of the current thread back where they went before.
+     *
+     * @return what the reads(parameter) returned. */
+    public static <T> T readFromPrimary(Supplier<T> reads) {
+        boolean required = primaryRequired.get() != null;
+        requirePrimary();
+        try {
+            return reads.get();
+        } finally {
+            if (!required) {
+                clearPrimaryRequired();
+            }
+        }
+    }
+
+    /** This method returns the data source the connection about to be used by the current thread comes from. */
+    public static Target currentTarget() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && primaryRequired.get() == null ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentTarget();
+    }
+}
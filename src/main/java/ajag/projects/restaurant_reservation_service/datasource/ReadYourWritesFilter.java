@@ -0,0 +1,80 @@
+package ajag.projects.restaurant_reservation_service.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/** This filter makes a client read its own changes even though the read replica lags behind the primary database.
+ * (1) A request that may change something (anything but GET, HEAD and OPTIONS) is answered with a cookie holding the time
+ *     until which the client reads from the primary database, the read-your-writes window from now.
+ * (2) A request with that cookie, until that time, and the changing request itself, read from the primary database
+ *     (see {@link ReadWriteRoutingDataSource#requirePrimary()}), the other requests read from the replica. */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    /** Name of the cookie holding the time (in epoch milliseconds) until which the client reads from the primary database. */
+    public static final String COOKIE_NAME = "primary-reads-until";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final Duration window;
+
+    /** This constructor takes the read-your-writes window(parameter), zero turns the filter off. */
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (window.isZero()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean write = !READ_METHODS.contains(request.getMethod());
+        if (write) {
+            // The cookie is set before the response is written, so it is sent even if the change fails, which only costs a few reads on the primary
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+        }
+
+        if (!write && primaryReadsUntil(request) <= now) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReadWriteRoutingDataSource.requirePrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadWriteRoutingDataSource.clearPrimaryRequired();
+        }
+    }
+
+    private static long primaryReadsUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,65 @@
+package ajag.projects.restaurant_reservation_service.datasource;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** This class holds the settings of the read replica (reservation.datasource.replica.* in the application properties).
+ * The read-only transactions only go to the replica when its url is set. */
+@ConfigurationProperties(prefix = "reservation.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    /** JDBC url of the read replica. */
+    private String url;
+
+    private String username = "sa";
+
+    private String password = "";
+
+    /** Maximum number of connections to the read replica, on top of the ones to the primary database. */
+    private int maximumPoolSize = 10;
+
+    /** How long a client reads from the primary database after it made a change, so it reads its own change even though the replica lags behind.
+     * It should be longer than the usual lag of the replica, zero turns it off. */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public Duration getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public void setReadYourWritesWindow(Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+}
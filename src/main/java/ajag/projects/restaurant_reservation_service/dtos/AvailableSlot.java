@@ -0,0 +1,10 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+import java.time.LocalDateTime;
+
+/** This record represents a time when a party can start dining.
+ *
+ * @param start - date and time the party can be booked at
+ * @param seatsLeft - seats left in the fullest slot of the dining duration, so the largest party that can be booked at that time */
+public record AvailableSlot(LocalDateTime start, int seatsLeft) {
+}
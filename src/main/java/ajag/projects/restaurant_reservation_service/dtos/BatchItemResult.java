@@ -0,0 +1,15 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+/** This record represents the outcome of one item of a batch request.
+ *
+ * @param index - position of the item in the request
+ * @param reservationId - ID of the reservation, if known
+ * @param status - HTTP status the item would have had as a single request (e.g., 201, 200, 400, 404)
+ * @param message - reason the item failed, or null if it succeeded */
+public record BatchItemResult(int index, Long reservationId, int status, String message) {
+
+    /** This method tells whether the item succeeded. */
+    public boolean succeeded() {
+        return status < 400;
+    }
+}
@@ -0,0 +1,17 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+import java.util.List;
+
+/** This record represents the outcome of a batch request, with one result per item in the order of the request.
+ *
+ * @param succeeded - number of items that succeeded
+ * @param failed - number of items that failed
+ * @param items - result of every item */
+public record BatchResult(int succeeded, int failed, List<BatchItemResult> items) {
+
+    /** This method counts the succeeded and failed items(parameter). */
+    public static BatchResult of(List<BatchItemResult> items) {
+        int succeeded = (int) items.stream().filter(BatchItemResult::succeeded).count();
+        return new BatchResult(succeeded, items.size() - succeeded, items);
+    }
+}
@@ -0,0 +1,10 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+import java.time.LocalDateTime;
+
+/** This record represents the number of guests of the confirmed reservations at the same reservation date.
+ *
+ * @param reservationDate - date and time of the reservations
+ * @param guestCount - total number of guests of the reservations */
+public record BookedSeats(LocalDateTime reservationDate, Long guestCount) {
+}
@@ -0,0 +1,12 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+/** This record represents the counters of the customer cache since the application started.
+ *
+ * @param size - number of customers in the cache
+ * @param idHits - lookups by ID answered by the cache
+ * @param idMisses - lookups by ID that went to the database
+ * @param emailHits - lookups by email answered by the cache
+ * @param emailMisses - lookups by email that went to the database
+ * @param evictions - customers dropped from the cache because it was full or the entry expired */
+public record CustomerCacheStats(long size, long idHits, long idMisses, long emailHits, long emailMisses, long evictions) {
+}
@@ -0,0 +1,19 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+
+/** This record represents a customer as it is returned by the read endpoints, with the same fields as the {@link Customer} entity.
+ *
+ * @param id - ID of the customer
+ * @param name - name of the customer
+ * @param email - email address of the customer
+ * @param phoneNumber - phone number of the customer
+ * @param preferredComms - communication method the customer is notified through */
+public record CustomerSummary(Long id, String name, String email, String phoneNumber, PreferredComms preferredComms) {
+
+    /** This method returns the summary of the customer(parameter). */
+    public static CustomerSummary of(Customer customer) {
+        return new CustomerSummary(customer.getId(), customer.getName(), customer.getEmail(), customer.getPhoneNumber(), customer.getPreferredComms());
+    }
+}
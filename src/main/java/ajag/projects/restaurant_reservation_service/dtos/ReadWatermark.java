@@ -0,0 +1,9 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+/** This record represents the version of what a read endpoint returns, e.g., the reservation list of a customer.
+ * A poll that sends back the same ETag (If-None-Match) or a date at or after lastModified (If-Modified-Since) is answered 304 Not Modified.
+ *
+ * @param eTag - quoted ETag of the current version
+ * @param lastModified - time of the last change of the current version, in milliseconds since the epoch */
+public record ReadWatermark(String eTag, long lastModified) {
+}
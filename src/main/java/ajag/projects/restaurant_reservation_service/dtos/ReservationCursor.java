@@ -0,0 +1,40 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.exceptions.InvalidValueException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/** This record represents the position of a reservation in the reservation history of a customer,
+ * which is sorted by the status, then by the reservation date, then by the ID.
+ * The next page of the history starts right after this position.
+ *
+ * @param status - status of the last reservation of the page
+ * @param reservationDate - date and time of the last reservation of the page
+ * @param id - ID of the last reservation of the page */
+public record ReservationCursor(ReservationStatus status, LocalDateTime reservationDate, Long id) {
+
+    /** This method returns the position of the reservation(parameter). */
+    public static ReservationCursor of(ReservationSummary reservation) {
+        return new ReservationCursor(reservation.status(), reservation.reservationDate(), reservation.id());
+    }
+
+    /** This method turns the cursor into an opaque string that can be passed back in the next request. */
+    public String encode() {
+        String position = status + "|" + reservationDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** This method reads back a cursor made by {@link #encode()}.
+     * If the cursor(parameter) is not valid, the method throws an {@link InvalidValueException}. */
+    public static ReservationCursor decode(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            return new ReservationCursor(ReservationStatus.valueOf(position[0]), LocalDateTime.parse(position[1]), Long.valueOf(position[2]));
+        } catch (RuntimeException e) {
+            throw new InvalidValueException("cursor is not valid!");
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+
+
+import java.util.List;
+
+/** This record represents one page of the reservation history of a customer.
+ *
+ * @param reservations - reservations of the page
+ * @param nextCursor - cursor of the next page, or null if this is the last page */
+public record ReservationPage(List<ReservationSummary> reservations, String nextCursor) {
+}
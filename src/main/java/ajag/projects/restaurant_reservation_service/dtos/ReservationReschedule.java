@@ -0,0 +1,11 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+import java.time.LocalDateTime;
+
+/** This record represents the new details of one reservation in a batch reschedule request.
+ *
+ * @param id - ID of the reservation
+ * @param reservationDate - new date and time of the reservation
+ * @param guestCount - new number of guests of the reservation */
+public record ReservationReschedule(Long id, LocalDateTime reservationDate, Integer guestCount) {
+}
@@ -0,0 +1,37 @@
+package ajag.projects.restaurant_reservation_service.dtos;
+
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+
+import java.time.LocalDateTime;
+
+/** This record represents a reservation as it is returned by the read endpoints, with the same fields as the {@link Reservation} entity.
+ * The reservations and their customers are read together as plain values (JPQL constructor expression),
+ * so listing reservations takes one query however many there are, and no entity is loaded or serialized.
+ *
+ * @param id - ID of the reservation
+ * @param customer - customer who made the reservation
+ * @param reservationDate - date and time of the reservation
+ * @param guestCount - number of guests of the reservation
+ * @param status - status of the reservation
+ * @param createdAt - date and time the reservation was made
+ * @param lastModifiedAt - date and time the reservation was last changed
+ * @param version - version of the reservation, to be passed back when changing it */
+public record ReservationSummary(Long id, CustomerSummary customer, LocalDateTime reservationDate, Integer guestCount, ReservationStatus status,
+                                 LocalDateTime createdAt, LocalDateTime lastModifiedAt, Long version) {
+
+    /** This constructor is used by the queries of the ReservationRepository, which select the columns of the reservation and its customer one by one. */
+    public ReservationSummary(Long id, LocalDateTime reservationDate, Integer guestCount, ReservationStatus status,
+                              LocalDateTime createdAt, LocalDateTime lastModifiedAt, Long version,
+                              Long customerId, String customerName, String customerEmail, String customerPhoneNumber, PreferredComms customerPreferredComms) {
+        this(id, new CustomerSummary(customerId, customerName, customerEmail, customerPhoneNumber, customerPreferredComms),
+            reservationDate, guestCount, status, createdAt, lastModifiedAt, version);
+    }
+
+    /** This method returns the summary of the reservation(parameter) and its customer. */
+    public static ReservationSummary of(Reservation reservation) {
+        return new ReservationSummary(reservation.getId(), CustomerSummary.of(reservation.getCustomer()), reservation.getReservationDate(),
+            reservation.getGuestCount(), reservation.getStatus(), reservation.getCreatedAt(), reservation.getLastModifiedAt(), reservation.getVersion());
+    }
+}
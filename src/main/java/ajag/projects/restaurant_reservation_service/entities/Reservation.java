@@ -12,7 +12,9 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 import java.time.LocalDateTime;
 
@@ -25,7 +27,8 @@ import org.hibernate.annotations.UpdateTimestamp;
 public class Reservation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservations_seq")
+    @SequenceGenerator(name = "reservations_seq", sequenceName = "reservations_seq", allocationSize = 50) // IDs are taken 50 at a time, so inserts can be batched
     private Long id;
 
     @ManyToOne
@@ -46,6 +49,9 @@ public class Reservation {
     @UpdateTimestamp // Automatically updates with the current timestamp on updates
     private LocalDateTime lastModifiedAt;
 
+    @Version // Checked and incremented on every update, a change made from a stale copy fails instead of overwriting
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -92,4 +98,8 @@ public class Reservation {
         return lastModifiedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
 }
\ No newline at end of file
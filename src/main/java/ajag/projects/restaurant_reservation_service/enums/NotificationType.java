@@ -0,0 +1,8 @@
+package ajag.projects.restaurant_reservation_service.enums;
+
+/** Enum representing the kind of notification sent to a customer. */
+public enum NotificationType {
+    STATUS_UPDATE, // sent when the reservation is confirmed, updated or cancelled
+    REMINDER, // sent 4 hours prior to the reservation date
+    COMPLETION // sent on the reservation date
+}
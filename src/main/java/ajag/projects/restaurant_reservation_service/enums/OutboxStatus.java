@@ -0,0 +1,8 @@
+package ajag.projects.restaurant_reservation_service.enums;
+
+/** Enum representing the delivery status of a notification in the outbox. */
+public enum OutboxStatus {
+    PENDING, // Status of the notification until it is sent, including the retries after a failed attempt
+    SENT, // Status of the notification once the sender accepted it
+    FAILED // Status of the notification when every attempt to send it failed
+}
@@ -0,0 +1,10 @@
+package ajag.projects.restaurant_reservation_service.enums;
+
+/** Enum representing what happened to a reservation, see ReservationChangedEvent. */
+public enum ReservationChange {
+    CREATED, // The reservation was made
+    UPDATED, // The date and time or the number of guests of the reservation were changed
+    CANCELLED, // The reservation was canceled
+    COMPLETED, // The reservation date and time passed
+    DELETED // The reservation was deleted
+}
@@ -0,0 +1,7 @@
+package ajag.projects.restaurant_reservation_service.enums;
+
+/** Enum representing the next task of a confirmed reservation in the clustered scheduler, see ReservationTaskRepository. */
+public enum ReservationTaskType {
+    REMINDER, // The reminder sent to the customer 4 hours prior to the reservation date
+    COMPLETION // The completion of the reservation on the reservation date
+}
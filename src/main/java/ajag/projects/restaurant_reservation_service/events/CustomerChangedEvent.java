@@ -0,0 +1,10 @@
+package ajag.projects.restaurant_reservation_service.events;
+
+/** This record is the event published for every customer that is added or updated.
+ * It is published within the transaction of the change, if there is one.
+ *
+ * @param customerId - ID of the customer
+ * @param email - email address of the customer
+ * @param previousEmail - email address of the customer before the change, or null if it was not changed */
+public record CustomerChangedEvent(Long customerId, String email, String previousEmail) {
+}
@@ -0,0 +1,25 @@
+package ajag.projects.restaurant_reservation_service.events;
+
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationChange;
+
+import java.time.LocalDateTime;
+
+/** This record is the event published for every reservation that is created, changed or deleted, whichever way it happened
+ * (single and batch requests, scheduler and completion sweeper). It is published within the transaction of the change,
+ * so the listeners that must only see committed changes listen with a TransactionalEventListener.
+ * It carries the date and the guests of the reservation after the change, so the listeners don't have to read the reservation again.
+ *
+ * @param customerId - ID of the customer of the reservation
+ * @param reservationId - ID of the reservation
+ * @param change - what happened to the reservation
+ * @param reservationDate - date and time of the reservation after the change
+ * @param guestCount - number of guests of the reservation after the change */
+public record ReservationChangedEvent(Long customerId, Long reservationId, ReservationChange change, LocalDateTime reservationDate, Integer guestCount) {
+
+    /** This method returns the event of the change(parameter) of the reservation(parameter). */
+    public static ReservationChangedEvent of(Reservation reservation, ReservationChange change) {
+        return new ReservationChangedEvent(reservation.getCustomer().getId(), reservation.getId(), change,
+            reservation.getReservationDate(), reservation.getGuestCount());
+    }
+}
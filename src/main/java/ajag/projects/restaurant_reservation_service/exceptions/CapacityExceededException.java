@@ -0,0 +1,8 @@
+package ajag.projects.restaurant_reservation_service.exceptions;
+
+/** This is the exception to be thrown when a reservation needs more seats than there are left at its reservation date. */
+public class CapacityExceededException extends RuntimeException {
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package ajag.projects.restaurant_reservation_service.exceptions;
+
+/** This is the exception to be thrown when a feature that is turned off in the configuration is used, e.g., the seat capacity in CLUSTERED mode. */
+public class FeatureDisabledException extends RuntimeException {
+    public FeatureDisabledException(String message) {
+        super(message);
+    }
+}
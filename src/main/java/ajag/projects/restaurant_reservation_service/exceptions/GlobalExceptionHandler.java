@@ -1,7 +1,13 @@
 package ajag.projects.restaurant_reservation_service.exceptions;
 
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.concurrent.RejectedExecutionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
@@ -21,4 +27,41 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    /** This method catches the {@link CapacityExceededException} and gives a conflict response with the exception message in return. */
+    @ExceptionHandler(CapacityExceededException.class)
+    public ResponseEntity<String> handleCapacityExceeded(CapacityExceededException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    /** This method catches the {@link InvalidStatusException} and gives a conflict response with the exception message in return. */
+    @ExceptionHandler(InvalidStatusException.class)
+    public ResponseEntity<String> handleInvalidStatus(InvalidStatusException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    /** This method catches the {@link FeatureDisabledException} and gives a not implemented response with the exception message in return. */
+    @ExceptionHandler(FeatureDisabledException.class)
+    public ResponseEntity<String> handleFeatureDisabled(FeatureDisabledException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(ex.getMessage());
+    }
+
+    /** This method catches the {@link OptimisticLockingFailureException}, thrown when a reservation was changed by someone else
+     * while it was being changed, and gives a conflict response asking to try again on the latest version. */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("The reservation was changed by someone else! Reload it and try again.");
+    }
+
+    /** This method catches the {@link CannotCreateTransactionException} and the {@link DataAccessResourceFailureException}, thrown when
+     * no database connection was free within spring.datasource.hikari.connection-timeout (e.g., far more requests at once than connections),
+     * and the {@link RejectedExecutionException}, thrown by the reactive variant when too many changes are already waiting for a connection
+     * and when too many screens are already connected to the reservation events,
+     * and gives a service unavailable response asking to try again a second later. */
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class, RejectedExecutionException.class})
+    public ResponseEntity<String> handleNoConnection(Exception ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("The service is busy! Try again in a moment.");
+    }
+
 }
@@ -0,0 +1,8 @@
+package ajag.projects.restaurant_reservation_service.exceptions;
+
+/** This is the exception to be thrown when a reservation can't be changed in its current status, e.g., a cancelled reservation being rescheduled. */
+public class InvalidStatusException extends RuntimeException {
+    public InvalidStatusException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,30 @@
+package ajag.projects.restaurant_reservation_service.notifications;
+
+import ajag.projects.restaurant_reservation_service.entities.NotificationOutbox;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** This class represents the sending of notifications by writing them to the application log.
+ * It is the default sender of every channel until a real email or SMS provider is plugged in. */
+public class LoggingNotificationSender implements NotificationSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingNotificationSender.class);
+
+    private final PreferredComms channel;
+
+    public LoggingNotificationSender(PreferredComms channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public PreferredComms getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void send(NotificationOutbox notification) {
+        logger.info(notification.getMessage());
+    }
+}
@@ -0,0 +1,99 @@
+package ajag.projects.restaurant_reservation_service.notifications;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** This class holds the settings of the notification outbox (notification.outbox.* in the application properties). */
+@ConfigurationProperties(prefix = "notification.outbox")
+public class NotificationOutboxProperties {
+
+    /** How often the outbox is checked for notifications to send. */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /** Number of notifications of a channel read and sent per batch. */
+    private int batchSize = 100;
+
+    /** Number of attempts before a notification is given up on and marked as FAILED. */
+    private int maxAttempts = 5;
+
+    /** Wait before the first retry, it doubles on every failed attempt. */
+    private Duration initialBackoff = Duration.ofSeconds(10);
+
+    /** Longest wait between two attempts. */
+    private Duration maxBackoff = Duration.ofMinutes(30);
+
+    /** How long the sent notifications are kept in the outbox. */
+    private Duration sentRetention = Duration.ofDays(7);
+
+    /** How often the sent notifications older than the sent retention are deleted. */
+    private Duration purgeInterval = Duration.ofHours(1);
+
+    /** How long a node holds the batch of notifications it claimed, they are claimed again by any node once it expires.
+     * It should be a lot longer than sending one batch. */
+    private Duration leaseDuration = Duration.ofMinutes(5);
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public Duration getSentRetention() {
+        return sentRetention;
+    }
+
+    public void setSentRetention(Duration sentRetention) {
+        this.sentRetention = sentRetention;
+    }
+
+    public Duration getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    public void setPurgeInterval(Duration purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+
+    public Duration getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    public void setLeaseDuration(Duration leaseDuration) {
+        this.leaseDuration = leaseDuration;
+    }
+}
@@ -0,0 +1,77 @@
+package ajag.projects.restaurant_reservation_service.notifications;
+
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.NotificationType;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+/** This class renders the messages sent to the customers.
+ * Every template is parsed once when the application starts, and each {@link NotificationType} has one variant
+ * per {@link PreferredComms}, e.g. a short text for SMS. Every message is rendered in a buffer of its own, sized from its template up front,
+ * since the messages are rendered on virtual threads, where a buffer kept per thread would never be reused. */
+@Component
+public class NotificationRenderer {
+
+    private final Map<NotificationType, Map<PreferredComms, NotificationTemplate>> templates = new EnumMap<>(NotificationType.class);
+
+    public NotificationRenderer() {
+        register(NotificationType.STATUS_UPDATE, PreferredComms.EMAIL, """
+
+                Sending Notification to: {recipient}
+
+                Dear {name},
+
+                Your reservation for {guestCount} guests has been {status}.
+                Reservation Date and Time: {dateTime}
+
+                Kind Regards,
+                Us""");
+        register(NotificationType.STATUS_UPDATE, PreferredComms.SMS,
+            "Hi {name}, your reservation for {guestCount} guests on {dateTime} has been {status}.");
+
+        register(NotificationType.REMINDER, PreferredComms.EMAIL, """
+
+                Sending Reminder to: {recipient}
+
+                Dear {name},
+
+                You have a reservation for {guestCount} guests.
+                Reservation Date and Time: {dateTime}
+
+                Thanks and Kind Regards,
+                Us""");
+        register(NotificationType.REMINDER, PreferredComms.SMS,
+            "Hi {name}, reminder: you have a reservation for {guestCount} guests on {dateTime}.");
+
+        register(NotificationType.COMPLETION, PreferredComms.EMAIL, """
+
+                Sending Reminder to: {recipient}
+
+                Dear {name},
+
+                You have a reservation scheduled right now!
+                Enjoy your experience and have a great time!
+
+                Kind Regards,
+                Us""");
+        register(NotificationType.COMPLETION, PreferredComms.SMS,
+            "Hi {name}, your reservation is scheduled right now! Enjoy your experience.");
+    }
+
+    /** This method renders the message of the given type for the reservation(parameter),
+     * using the variant of the customer's communication method (see {@link NotificationTemplate#channelOf}). */
+    public String render(NotificationType type, Reservation reservation) {
+        NotificationTemplate template = templates.get(type).get(NotificationTemplate.channelOf(reservation.getCustomer()));
+        StringBuilder buffer = new StringBuilder(template.estimatedLength());
+        template.renderTo(buffer, reservation);
+        return buffer.toString();
+    }
+
+    private void register(NotificationType type, PreferredComms channel, String template) {
+        templates.computeIfAbsent(type, key -> new EnumMap<>(PreferredComms.class)).put(channel, NotificationTemplate.parse(template));
+    }
+}
@@ -0,0 +1,17 @@
+package ajag.projects.restaurant_reservation_service.notifications;
+
+import ajag.projects.restaurant_reservation_service.entities.NotificationOutbox;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+
+/** This interface represents a provider that delivers the notifications of one channel (e.g., an email or SMS gateway).
+ * Every {@link NotificationSender} bean is picked up by the notification dispatcher, one per {@link PreferredComms}. */
+public interface NotificationSender {
+
+    /** This method returns the channel this sender delivers. */
+    PreferredComms getChannel();
+
+    /** This method delivers the notification to its recipient.
+     * Throwing an exception marks the attempt as failed, and the notification is retried later on. */
+    void send(NotificationOutbox notification);
+
+}
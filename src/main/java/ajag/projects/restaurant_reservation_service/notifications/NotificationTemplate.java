@@ -0,0 +1,145 @@
+package ajag.projects.restaurant_reservation_service.notifications;
+
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/** This class is a message template that is parsed once and can then be rendered for any reservation.
+ * <p>The placeholders are written as {name} in the template text, the supported ones are listed in {@link Field}.
+ * Rendering only appends the literal parts and the field values to the given buffer,
+ * there is no format string to parse and no boxing of the values on every message.</p> */
+public final class NotificationTemplate {
+
+    /** The communication method of the customers who have no preferred one. */
+    public static final PreferredComms DEFAULT_CHANNEL = PreferredComms.EMAIL;
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("MMMM d, yyyy h:mma");
+
+    private static final String[] STATUS_TEXT = new String[ReservationStatus.values().length];
+    static {
+        for (ReservationStatus status : ReservationStatus.values()) {
+            STATUS_TEXT[status.ordinal()] = status.toString().toLowerCase();
+        }
+    }
+
+    // Each part is either a String (literal text) or a Field
+    private final Object[] parts;
+    private final int literalLength;
+
+    private NotificationTemplate(Object[] parts, int literalLength) {
+        this.parts = parts;
+        this.literalLength = literalLength;
+    }
+
+    /** This method parses the template text into its literal parts and fields. */
+    public static NotificationTemplate parse(String template) {
+        List<Object> parts = new ArrayList<>();
+        int literalLength = 0;
+        int start = 0;
+        while (start < template.length()) {
+            int open = template.indexOf('{', start);
+            if (open < 0) {
+                break;
+            }
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in template at index " + open);
+            }
+            if (open > start) {
+                parts.add(template.substring(start, open));
+                literalLength += open - start;
+            }
+            parts.add(Field.of(template.substring(open + 1, close)));
+            start = close + 1;
+        }
+        if (start < template.length()) {
+            parts.add(template.substring(start));
+            literalLength += template.length() - start;
+        }
+        return new NotificationTemplate(parts.toArray(), literalLength);
+    }
+
+    /** This method returns the expected length of a rendered message, the literal parts plus room for the field values. */
+    public int estimatedLength() {
+        return literalLength + 64;
+    }
+
+    /** This method appends the message for the reservation(parameter) to the buffer(parameter). */
+    public void renderTo(StringBuilder buffer, Reservation reservation) {
+        buffer.ensureCapacity(buffer.length() + estimatedLength());
+        for (Object part : parts) {
+            if (part instanceof String literal) {
+                buffer.append(literal);
+            } else {
+                ((Field) part).appendTo(buffer, reservation);
+            }
+        }
+    }
+
+    /** This method returns the communication method the customer receives the messages through,
+     * their preferred one or {@link #DEFAULT_CHANNEL} if they have none. */
+    public static PreferredComms channelOf(Customer customer) {
+        return customer.getPreferredComms() == null ? DEFAULT_CHANNEL : customer.getPreferredComms();
+    }
+
+    /** This method returns where the customer receives the messages, based on their communication method (see {@link #channelOf(Customer)}). */
+    public static String recipientOf(Customer customer) {
+        return channelOf(customer) == PreferredComms.EMAIL ? customer.getEmail() : customer.getPhoneNumber();
+    }
+
+    /** Enum representing the placeholders that can be used in a template. */
+    enum Field {
+        RECIPIENT("recipient") { // email address or phone number, depending on the preferred communication method
+            @Override
+            void appendTo(StringBuilder buffer, Reservation reservation) {
+                buffer.append(recipientOf(reservation.getCustomer()));
+            }
+        },
+        NAME("name") { // name of the customer
+            @Override
+            void appendTo(StringBuilder buffer, Reservation reservation) {
+                buffer.append(reservation.getCustomer().getName());
+            }
+        },
+        GUEST_COUNT("guestCount") { // number of guests of the reservation
+            @Override
+            void appendTo(StringBuilder buffer, Reservation reservation) {
+                buffer.append(reservation.getGuestCount().intValue());
+            }
+        },
+        STATUS("status") { // status of the reservation in lower case
+            @Override
+            void appendTo(StringBuilder buffer, Reservation reservation) {
+                buffer.append(STATUS_TEXT[reservation.getStatus().ordinal()]);
+            }
+        },
+        DATE_TIME("dateTime") { // date and time of the reservation, e.g. "December 9, 2025 10:30AM"
+            @Override
+            void appendTo(StringBuilder buffer, Reservation reservation) {
+                DATE_TIME_FORMATTER.formatTo(reservation.getReservationDate(), buffer);
+            }
+        };
+
+        private final String placeholder;
+
+        Field(String placeholder) {
+            this.placeholder = placeholder;
+        }
+
+        abstract void appendTo(StringBuilder buffer, Reservation reservation);
+
+        static Field of(String placeholder) {
+            for (Field field : values()) {
+                if (field.placeholder.equals(placeholder)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown placeholder in template: {" + placeholder + "}");
+        }
+    }
+}
@@ -5,12 +5,14 @@ import ajag.projects.restaurant_reservation_service.entities.Customer;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** This repository interface is used to manage {@link Customer} entities.
  * It extends {@link JpaRepository}, providing methods used to interact with the {@link Customer} entities.*/
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
-    /** This method fetches the customer data for the email provided. */
+    /** This method fetches the customer data for the email provided, in a read-only transaction (from the read replica, if there is one). */
+    @Transactional(readOnly = true)
     Optional<Customer> findByEmail(String email);
 
 }
@@ -0,0 +1,67 @@
+package ajag.projects.restaurant_reservation_service.repositories;
+
+import ajag.projects.restaurant_reservation_service.entities.NotificationOutbox;
+import ajag.projects.restaurant_reservation_service.enums.OutboxStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/** This repository interface is used to manage {@link NotificationOutbox} entities.
+ * It extends {@link JpaRepository}, providing methods used to interact with the {@link NotificationOutbox} entities.*/
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    /** This method locks one batch of notifications filtered by the status and the channel that are due for an attempt, the oldest notifications first,
+     * until the end of the transaction, and returns their ids. A notification claimed by a node (see {@link #claimByIdIn}) is only due again
+     * once its lease expired. The notifications locked by another node claiming at the same time are skipped, that node is claiming them.
+     * It is a native query, since JPQL has no SKIP LOCKED. */
+    @Query(value = """
+        SELECT id FROM notification_outbox
+        WHERE status = :status AND channel = :channel AND next_attempt_at <= :now
+          AND (lease_until IS NULL OR lease_until < :now)
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<Long> lockDueIds(@Param("status") String status,
+                          @Param("channel") String channel,
+                          @Param("now") LocalDateTime now,
+                          @Param("limit") int limit);
+
+    /** This method claims the notifications with the given ids for the owner (a node) until leaseUntil.
+     *
+     * @return the number of claimed notifications. */
+    @Modifying(clearAutomatically = true)
+    @Query("update NotificationOutbox n set n.leaseOwner = :owner, n.leaseUntil = :leaseUntil where n.id in :ids")
+    int claimByIdIn(@Param("ids") Collection<Long> ids,
+                    @Param("owner") String owner,
+                    @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /** This method locks the notifications with the given ids that the owner still holds with the lease until leaseUntil,
+     * until the end of the transaction, and returns their ids. While they are locked, they can't be claimed again by another node.
+     * The ones left out were claimed again by another node once their lease expired. */
+    @Query(value = """
+        SELECT id FROM notification_outbox
+        WHERE id IN (:ids) AND lease_owner = :owner AND lease_until = :leaseUntil
+        FOR UPDATE""", nativeQuery = true)
+    List<Long> lockClaimedIds(@Param("ids") Collection<Long> ids,
+                              @Param("owner") String owner,
+                              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /** This method fetches the notifications with the given ids, the oldest notifications first. */
+    List<NotificationOutbox> findAllByIdInOrderByIdAsc(Collection<Long> ids);
+
+    /** This method deletes the notifications with the given status that were created before the given date.
+     *
+     * @return the number of deleted notifications. */
+    @Modifying
+    @Transactional
+    @Query("delete from NotificationOutbox n where n.status = :status and n.createdAt < :before")
+    int deleteByStatusCreatedBefore(@Param("status") OutboxStatus status, @Param("before") LocalDateTime before);
+
+}
@@ -0,0 +1,130 @@
+package ajag.projects.restaurant_reservation_service.repositories;
+
+import ajag.projects.restaurant_reservation_service.dtos.CustomerSummary;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** This repository class is used to manage the archived reservations in the reservations_history table.
+ * The finished reservations are moved there from the reservations table once they are old enough, one batch at a time,
+ * and they are only read back as part of the reservation history of their customer, in the same order as the live ones
+ * (see {@link ReservationRepository#findSummariesByCustomerId}). An archived reservation can't be changed anymore.
+ * It uses plain SQL (in the transaction of the caller, if there is one), since the archived reservations are not entities. */
+@Repository
+public class ReservationArchiveRepository {
+
+    /** The statuses of the reservations that are archived, the CONFIRMED reservations always stay in the reservations table. */
+    public static final Set<ReservationStatus> ARCHIVED_STATUSES = Set.of(ReservationStatus.COMPLETED, ReservationStatus.CANCELLED);
+
+    private static final String RESERVATION_COLUMNS = "id, customer_id, reservation_date, guest_count, status, created_at, last_modified_at, version";
+
+    private static final String SUMMARY_COLUMNS = """
+        SELECT r.id, r.reservation_date, r.guest_count, r.status, r.created_at, r.last_modified_at, r.version,
+               c.id AS customer_id, c.name, c.email, c.phone_number, c.preferred_comms
+        FROM reservations_history r JOIN customers c ON c.id = r.customer_id
+        """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /** This constructor is used to inject the dependency ({@link JdbcTemplate}) into this class. */
+    public ReservationArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /** This method moves at most limit(parameter) finished reservations (see {@link #ARCHIVED_STATUSES}) with a reservation date before the before(parameter)
+     * to the reservations_history table, marked as archived at archivedAt(parameter), the earliest first.
+     * The reservations are copied and deleted in one transaction, so each one is in exactly one of the tables.
+     * The reservations locked by another node archiving at the same time are skipped, that node is archiving them.
+     *
+     * @return the number of archived reservations. */
+    @Transactional
+    public int archiveBatch(LocalDateTime before, LocalDateTime archivedAt, int limit) {
+        List<Long> ids = jdbcTemplate.queryForList("""
+                SELECT id FROM reservations
+                WHERE status IN (:statuses) AND reservation_date < :before
+                ORDER BY reservation_date, id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED""",
+            new MapSqlParameterSource("statuses", ARCHIVED_STATUSES.stream().map(ReservationStatus::name).toList())
+                .addValue("before", before)
+                .addValue("limit", limit),
+            Long.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.update("INSERT INTO reservations_history (" + RESERVATION_COLUMNS + ", archived_at) "
+                + "SELECT " + RESERVATION_COLUMNS + ", :archivedAt FROM reservations WHERE id IN (:ids)",
+            new MapSqlParameterSource("ids", ids).addValue("archivedAt", archivedAt));
+        jdbcTemplate.update("DELETE FROM reservations WHERE id IN (:ids)", Map.of("ids", ids));
+        return ids.size();
+    }
+
+    /** This method fetches the summary of all archived reservation data filtered by the customer id, the customer is read in the same query.
+     * The returned reservations are sorted by the status in descending order (COMPLETED, CANCELLED)
+     * and then by the reservation date in ascending order (starting with the earliest reservation). */
+    public List<ReservationSummary> findSummariesByCustomerId(Long customerId) {
+        return jdbcTemplate.query(SUMMARY_COLUMNS + """
+                WHERE r.customer_id = :customerId
+                ORDER BY r.status DESC, r.reservation_date, r.id""",
+            Map.of("customerId", customerId),
+            (row, rowNum) -> toSummary(row));
+    }
+
+    /** This method fetches the summary of the first page (of at most limit(parameter) reservations) of archived reservation data
+     * filtered by the customer id and the status, see {@link ReservationRepository#findSummaryPageByCustomerAndStatus}. */
+    public List<ReservationSummary> findSummaryPageByCustomerAndStatus(Long customerId, ReservationStatus status, int limit) {
+        return jdbcTemplate.query(SUMMARY_COLUMNS + """
+                WHERE r.customer_id = :customerId AND r.status = :status
+                ORDER BY r.reservation_date, r.id
+                LIMIT :limit""",
+            new MapSqlParameterSource("customerId", customerId)
+                .addValue("status", status.name())
+                .addValue("limit", limit),
+            (row, rowNum) -> toSummary(row));
+    }
+
+    /** This method fetches the summary of the next page (of at most limit(parameter) reservations) of archived reservation data
+     * filtered by the customer id and the status, starting right after the reservation with the given afterDate and afterId,
+     * see {@link ReservationRepository#findSummaryPageByCustomerAndStatusAfter}. */
+    public List<ReservationSummary> findSummaryPageByCustomerAndStatusAfter(Long customerId, ReservationStatus status,
+                                                                           LocalDateTime afterDate, Long afterId, int limit) {
+        return jdbcTemplate.query(SUMMARY_COLUMNS + """
+                WHERE r.customer_id = :customerId AND r.status = :status
+                  AND (r.reservation_date > :afterDate OR (r.reservation_date = :afterDate AND r.id > :afterId))
+                ORDER BY r.reservation_date, r.id
+                LIMIT :limit""",
+            new MapSqlParameterSource("customerId", customerId)
+                .addValue("status", status.name())
+                .addValue("afterDate", afterDate)
+                .addValue("afterId", afterId)
+                .addValue("limit", limit),
+            (row, rowNum) -> toSummary(row));
+    }
+
+    private static ReservationSummary toSummary(ResultSet row) throws SQLException {
+        String preferredComms = row.getString("preferred_comms");
+        return new ReservationSummary(
+            row.getLong("id"),
+            new CustomerSummary(row.getLong("customer_id"), row.getString("name"), row.getString("email"), row.getString("phone_number"),
+                preferredComms == null ? null : PreferredComms.valueOf(preferredComms)),
+            row.getObject("reservation_date", LocalDateTime.class),
+            row.getObject("guest_count", Integer.class),
+            ReservationStatus.valueOf(row.getString("status")),
+            row.getObject("created_at", LocalDateTime.class),
+            row.getObject("last_modified_at", LocalDateTime.class),
+            row.getLong("version"));
+    }
+}
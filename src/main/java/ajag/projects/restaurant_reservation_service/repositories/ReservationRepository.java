@@ -1,11 +1,20 @@
 package ajag.projects.restaurant_reservation_service.repositories;
 
+import ajag.projects.restaurant_reservation_service.dtos.BookedSeats;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
 import ajag.projects.restaurant_reservation_service.entities.Reservation;
 import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 /** This repository interface is used to manage {@link Reservation} entities.
  * It extends {@link JpaRepository}, providing methods used to interact with the {@link Reservation
@@ -15,10 +24,130 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
     /** This method fetches all reservation data filtered by the status. */
     List<Reservation> findAllByStatus(ReservationStatus status);
 
-    /** This method fetches all reservation data filtered by the customer id.
+    /** This method fetches the summary of all reservation data filtered by the customer id, the customer is read in the same query.
      * The returned reservations are sorted by the status in descending order (CONFIRMED, COMPLETED, CANCELLED)
      *  and then by the reservation date in ascending order (starting with the earliest reservation). */
-    List<Reservation> findAllByCustomer_IdOrderByStatusDescReservationDateAsc(Long customerId);
+    @Query("""
+        select new ajag.projects.restaurant_reservation_service.dtos.ReservationSummary(
+            r.id, r.reservationDate, r.guestCount, r.status, r.createdAt, r.lastModifiedAt, r.version,
+            c.id, c.name, c.email, c.phoneNumber, c.preferredComms)
+        from Reservation r join r.customer c
+        where c.id = :customerId
+        order by r.status desc, r.reservationDate asc, r.id asc""")
+    List<ReservationSummary> findSummariesByCustomerId(@Param("customerId") Long customerId);
 
-}
+    /** This method fetches the summary of the first page of reservation data filtered by the customer id and the status,
+     * sorted by the reservation date then by the id. The customer is read in the same query. */
+    @Query("""
+        select new ajag.projects.restaurant_reservation_service.dtos.ReservationSummary(
+            r.id, r.reservationDate, r.guestCount, r.status, r.createdAt, r.lastModifiedAt, r.version,
+            c.id, c.name, c.email, c.phoneNumber, c.preferredComms)
+        from Reservation r join r.customer c
+        where c.id = :customerId and r.status = :status
+        order by r.reservationDate asc, r.id asc""")
+    List<ReservationSummary> findSummaryPageByCustomerAndStatus(@Param("customerId") Long customerId,
+                                                                @Param("status") ReservationStatus status,
+                                                                Pageable pageable);
+
+    /** This method fetches the summary of the next page of reservation data filtered by the customer id and the status,
+     * sorted by the reservation date then by the id. The customer is read in the same query.
+     * The page starts right after the reservation with the given afterDate and afterId (keyset pagination). */
+    @Query("""
+        select new ajag.projects.restaurant_reservation_service.dtos.ReservationSummary(
+            r.id, r.reservationDate, r.guestCount, r.status, r.createdAt, r.lastModifiedAt, r.version,
+            c.id, c.name, c.email, c.phoneNumber, c.preferredComms)
+        from Reservation r join r.customer c
+        where c.id = :customerId
+          and r.status = :status
+          and (r.reservationDate > :afterDate or (r.reservationDate = :afterDate and r.id > :afterId))
+        order by r.reservationDate asc, r.id asc""")
+    List<ReservationSummary> findSummaryPageByCustomerAndStatusAfter(@Param("customerId") Long customerId,
+                                                                     @Param("status") ReservationStatus status,
+                                                                     @Param("afterDate") LocalDateTime afterDate,
+                                                                     @Param("afterId") Long afterId,
+                                                                     Pageable pageable);
+
+    /** This method sums up the guests of the reservations filtered by the status and reservation dates between from (included)
+     * and until (excluded), per reservation date. */
+    @Query("""
+        select new ajag.projects.restaurant_reservation_service.dtos.BookedSeats(r.reservationDate, sum(r.guestCount))
+        from Reservation r
+        where r.status = :status and r.reservationDate >= :from and r.reservationDate < :until
+        group by r.reservationDate""")
+    List<BookedSeats> sumGuestCountByReservationDate(@Param("status") ReservationStatus status,
+                                                     @Param("from") LocalDateTime from,
+                                                     @Param("until") LocalDateTime until);
+
+    /** This method fetches the reservation data with the given ids, the customer is fetched in the same query. */
+    @Query("select r from Reservation r join fetch r.customer where r.id in :ids")
+    List<Reservation> findAllWithCustomerByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** This method locks the reservations with the given ids and status until the end of the transaction, and returns their ids.
+     * A reservation locked by another transaction is waited for, and is left out if that transaction changed its status.
+     * The reservations are locked in the order of their ids, so two transactions locking the same ones can't deadlock. */
+    @Query(value = """
+        SELECT id FROM reservations
+        WHERE id IN (:ids) AND status = :status
+        ORDER BY id
+        FOR UPDATE""", nativeQuery = true)
+    List<Long> lockIdsByIdInAndStatus(@Param("ids") Collection<Long> ids,
+                                      @Param("status") String status);
 
+    /** This method changes the status of every reservation with the given ids that is still at the given status in a single update statement,
+     * and sets their last modified date to modifiedAt. Their version is incremented, so a copy read before is stale.
+     *
+     * @return the number of updated reservations. */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+        update Reservation r set r.status = :newStatus, r.lastModifiedAt = :modifiedAt, r.version = r.version + 1
+        where r.id in :ids and r.status = :status""")
+    int updateStatusByIdInAndStatus(@Param("ids") Collection<Long> ids,
+                                    @Param("status") ReservationStatus status,
+                                    @Param("newStatus") ReservationStatus newStatus,
+                                    @Param("modifiedAt") LocalDateTime modifiedAt);
+
+    /** This method fetches one page of reservation data filtered by the status and due before the until date.
+     * The reservations are sorted by the reservation date then by the id, and the page starts right after
+     * the reservation with the given afterDate and afterId, so the last reservation of a page is where the next one starts (keyset pagination).
+     * The customer is fetched in the same query. */
+    @Query("""
+        select r from Reservation r join fetch r.customer
+        where r.status = :status
+          and r.reservationDate < :until
+          and (r.reservationDate > :afterDate or (r.reservationDate = :afterDate and r.id > :afterId))
+        order by r.reservationDate asc, r.id asc""")
+    List<Reservation> findPageByStatusDueBefore(@Param("status") ReservationStatus status,
+                                                @Param("afterDate") LocalDateTime afterDate,
+                                                @Param("afterId") Long afterId,
+                                                @Param("until") LocalDateTime until,
+                                                Pageable pageable);
+
+    /** This method locks at most limit reservations with the given status that are due at or before the cutoff date, the earliest first,
+     * and returns their ids. The locks are held until the end of the transaction of the caller, so no one else can change these reservations
+     * in the meantime. The reservations locked by another transaction (e.g., another node sweeping at the same time) are skipped.
+     * It is a native query, since JPQL has no SKIP LOCKED. */
+    @Query(value = """
+        SELECT id FROM reservations
+        WHERE status = :status AND reservation_date <= :cutoff
+        ORDER BY reservation_date, id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<Long> lockIdsByStatusDueBefore(@Param("status") String status,
+                                        @Param("cutoff") LocalDateTime cutoff,
+                                        @Param("limit") int limit);
+
+    /** This method changes the status of the reservation with the given id to newStatus, only if it still has the given status,
+     * in a single update statement in its own transaction. Its last modified date is set to modifiedAt and its version is incremented.
+     *
+     * @return 1 if the reservation was updated, 0 if it doesn't exist or its status was changed in the meantime. */
+    @Transactional
+    @Modifying
+    @Query("""
+        update Reservation r set r.status = :newStatus, r.lastModifiedAt = :modifiedAt, r.version = r.version + 1
+        where r.id = :id and r.status = :status""")
+    int updateStatusByIdAndStatus(@Param("id") Long id,
+                                  @Param("status") ReservationStatus status,
+                                  @Param("newStatus") ReservationStatus newStatus,
+                                  @Param("modifiedAt") LocalDateTime modifiedAt);
+
+}
@@ -0,0 +1,129 @@
+package ajag.projects.restaurant_reservation_service.repositories;
+
+import ajag.projects.restaurant_reservation_service.enums.ReservationTaskType;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationSchedulerProperties;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** This repository class is used to manage the next task of the confirmed reservations in the reservation_tasks table,
+ * when the scheduler runs in {@link ReservationSchedulerProperties.Mode#CLUSTERED} mode.
+ * A task is run by the node that claimed it, for as long as its lease lasts. The tasks are claimed with SELECT ... FOR UPDATE SKIP LOCKED,
+ * so the nodes claiming at the same time never wait for each other and never get the same task.
+ * It uses plain SQL (in the transaction of the caller, if there is one), since JPQL has no SKIP LOCKED. */
+@Repository
+public class ReservationTaskRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /** This constructor is used to inject the dependency ({@link JdbcTemplate}) into this class. */
+    public ReservationTaskRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /** This method saves the task(parameter) of every reservation, replacing the task (and the lease) it had before, in JDBC batches. */
+    public void saveAll(Collection<ReservationTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                MERGE INTO reservation_tasks (reservation_id, task, due_at, lease_owner, lease_until) KEY (reservation_id)
+                VALUES (:reservationId, :task, :dueAt, NULL, NULL)""",
+            tasks.stream().map(ReservationTaskRepository::toParameters).toArray(SqlParameterSource[]::new));
+    }
+
+    /** This method saves the task(parameter) only if its reservation has no task yet, e.g., when the nodes load the confirmed reservations
+     * at the same time. The task of a reservation that already has one is left as it is, it may have been run already.
+     *
+     * @return true if the task was saved. */
+    public boolean saveIfAbsent(ReservationTask task) {
+        try {
+            return jdbcTemplate.update("""
+                    INSERT INTO reservation_tasks (reservation_id, task, due_at)
+                    SELECT :reservationId, :task, :dueAt
+                    WHERE NOT EXISTS (SELECT 1 FROM reservation_tasks WHERE reservation_id = :reservationId)""",
+                toParameters(task)) == 1;
+        } catch (DuplicateKeyException e) {
+            // Another node saved it in the meantime
+            return false;
+        }
+    }
+
+    /** This method deletes the task of every reservation with the reservationIds(parameter), whether it is claimed or not. */
+    public void deleteAllById(Collection<Long> reservationIds) {
+        if (reservationIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM reservation_tasks WHERE reservation_id IN (:reservationIds)", Map.of("reservationIds", reservationIds));
+    }
+
+    /** This method claims at most limit(parameter) tasks that are due at now(parameter), the earliest first, for the owner(parameter) until leaseUntil(parameter).
+     * A task is due if its due date has passed and it is not claimed, or the lease of the node that claimed it expired.
+     * The tasks locked by another node claiming at the same time are skipped, that node is claiming them.
+     *
+     * @return the claimed tasks, each with its lease (see {@link #lockClaimed}). */
+    @Transactional
+    public List<ReservationTask> claimDue(String owner, LocalDateTime now, LocalDateTime leaseUntil, int limit) {
+        List<ReservationTask> due = jdbcTemplate.query("""
+                SELECT reservation_id, task, due_at FROM reservation_tasks
+                WHERE due_at <= :now AND (lease_until IS NULL OR lease_until < :now)
+                ORDER BY due_at, reservation_id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED""",
+            new MapSqlParameterSource("now", now).addValue("limit", limit),
+            (row, rowNum) -> toTask(row, leaseUntil));
+        if (!due.isEmpty()) {
+            jdbcTemplate.update("UPDATE reservation_tasks SET lease_owner = :owner, lease_until = :leaseUntil WHERE reservation_id IN (:reservationIds)",
+                new MapSqlParameterSource("owner", owner)
+                    .addValue("leaseUntil", leaseUntil)
+                    .addValue("reservationIds", due.stream().map(ReservationTask::reservationId).toList()));
+        }
+        return due;
+    }
+
+    /** This method locks the claimed task(parameter) until the end of the transaction of the caller, if the owner(parameter) still holds its lease.
+     * While it is locked, it can't be claimed again by another node, nor replaced by a change of its reservation.
+     *
+     * @return false if the lease expired and the task was claimed again, or if the task was replaced or deleted in the meantime. */
+    public boolean lockClaimed(ReservationTask task, String owner) {
+        return !jdbcTemplate.queryForList("""
+                SELECT reservation_id FROM reservation_tasks
+                WHERE reservation_id = :reservationId AND lease_owner = :owner AND lease_until = :leaseUntil
+                FOR UPDATE""",
+            new MapSqlParameterSource("reservationId", task.reservationId())
+                .addValue("owner", owner)
+                .addValue("leaseUntil", task.leaseUntil()),
+            Long.class).isEmpty();
+    }
+
+    private static SqlParameterSource toParameters(ReservationTask task) {
+        return new MapSqlParameterSource("reservationId", task.reservationId())
+            .addValue("task", task.type().name())
+            .addValue("dueAt", task.dueAt());
+    }
+
+    private static ReservationTask toTask(ResultSet row, LocalDateTime leaseUntil) throws SQLException {
+        return new ReservationTask(row.getLong("reservation_id"), ReservationTaskType.valueOf(row.getString("task")),
+            row.getObject("due_at", LocalDateTime.class), leaseUntil);
+    }
+
+    /** This record is the next task of a reservation, with the end of its lease once it is claimed (null otherwise). */
+    public record ReservationTask(Long reservationId, ReservationTaskType type, LocalDateTime dueAt, LocalDateTime leaseUntil) {
+
+        public static ReservationTask of(Long reservationId, ReservationTaskType type, LocalDateTime dueAt) {
+            return new ReservationTask(reservationId, type, dueAt, null);
+        }
+    }
+}
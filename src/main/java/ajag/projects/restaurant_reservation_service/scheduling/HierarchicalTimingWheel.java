@@ -0,0 +1,215 @@
+package ajag.projects.restaurant_reservation_service.scheduling;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** This class is a hierarchical timing wheel used to fire the reservation reminders and completions.
+ * <p>Each level has 64 buckets. A bucket of level 0 covers one tick, a bucket of level 1 covers 64 ticks,
+ * a bucket of level 2 covers 64*64 ticks, and so on. A task is put in the lowest level that can hold its deadline,
+ * and is moved down one level at a time (cascaded) as the wheel turns, until it lands in level 0 and is fired.
+ * This makes scheduling and cancelling O(1) no matter how many tasks are pending.</p>
+ * <p>A single driver thread turns the wheel and hands the due tasks to the worker {@link Executor},
+ * so a slow task never delays the wheel itself.</p> */
+public class HierarchicalTimingWheel implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 5;
+
+    // With 1 second ticks, 5 levels of 64 buckets cover around 34 years.
+    // Deadlines further than that are parked in the last level and cascaded again when their bucket comes up.
+    private static final long MAX_SPAN = 1L << (WHEEL_BITS * LEVELS);
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final long startMillis;
+    private final Executor workers;
+    private final WheelBucket[][] buckets = new WheelBucket[LEVELS][WHEEL_SIZE];
+    private final Object lock = new Object();
+
+    // These fields are guarded by the lock.
+    private long currentTick;
+    private int pending;
+
+    private volatile boolean running;
+    private Thread driver;
+
+    /** This constructor creates a wheel that turns every tickMillis and runs the due tasks on the workers(parameter).
+     * The wheel accepts tasks right away but only fires them once {@link #start()} is called. */
+    public HierarchicalTimingWheel(Clock clock, long tickMillis, Executor workers) {
+        if (tickMillis <= 0) { throw new IllegalArgumentException("tickMillis should be greater than 0!"); }
+        this.clock = clock;
+        this.tickMillis = tickMillis;
+        this.startMillis = clock.millis();
+        this.workers = workers;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                buckets[level][slot] = new WheelBucket();
+            }
+        }
+    }
+
+    /** This method starts the driver thread that turns the wheel. */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        driver = Thread.ofPlatform().name("reservation-timing-wheel").daemon().start(this::runDriver);
+    }
+
+    /** This method stops the driver thread. Pending tasks are dropped and won't be fired. */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (driver != null) {
+            driver.interrupt();
+            try {
+                driver.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            driver = null;
+        }
+    }
+
+    /** This method schedules the task(parameter) to be run once the deadline(parameter) is reached.
+     * If the deadline is already in the past, the task is handed to the workers right away.
+     *
+     * @return the {@link WheelTimeout} that can be used to cancel the task. */
+    public WheelTimeout schedule(Runnable task, Instant deadline) {
+        long deadlineTick = Math.max(0, Math.ceilDiv(deadline.toEpochMilli() - startMillis, tickMillis));
+        WheelTimeout timeout = new WheelTimeout(this, task, deadline, deadlineTick);
+
+        boolean placed;
+        synchronized (lock) {
+            placed = place(timeout);
+            if (placed) {
+                pending++;
+            } else {
+                timeout.state = WheelTimeout.EXPIRED;
+            }
+        }
+        if (!placed) {
+            dispatch(timeout);
+        }
+        return timeout;
+    }
+
+    /** This method returns the number of tasks waiting to be fired. */
+    public int size() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    boolean cancel(WheelTimeout timeout) {
+        synchronized (lock) {
+            if (timeout.state != WheelTimeout.PENDING) {
+                return false;
+            }
+            timeout.state = WheelTimeout.CANCELLED;
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+                pending--;
+            }
+            return true;
+        }
+    }
+
+    /** This method turns the wheel up to the given time and fires everything that is due.
+     * It is what the driver thread calls on every tick, and is exposed for tests and benchmarks
+     * that need to turn the wheel without waiting for the clock. */
+    public void advanceTo(long epochMillis) {
+        long targetTick = Math.floorDiv(epochMillis - startMillis, tickMillis);
+        List<WheelTimeout> expired = new ArrayList<>();
+        synchronized (lock) {
+            while (currentTick < targetTick) {
+                tick(expired);
+            }
+            pending -= expired.size();
+        }
+        for (WheelTimeout timeout : expired) {
+            dispatch(timeout);
+        }
+    }
+
+    private void runDriver() {
+        while (running) {
+            long now = clock.millis();
+            advanceTo(now);
+
+            long nextTickMillis = startMillis + (Math.floorDiv(now - startMillis, tickMillis) + 1) * tickMillis;
+            long sleepMillis = nextTickMillis - clock.millis();
+            if (sleepMillis > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(sleepMillis));
+            }
+        }
+    }
+
+    /** This method moves the wheel forward by one tick.
+     * The buckets of the higher levels that come up on this tick are cascaded first (top to bottom),
+     * then everything left in the current level 0 bucket is due. */
+    private void tick(List<WheelTimeout> expired) {
+        currentTick++;
+
+        int topLevel = 0;
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            topLevel = level;
+        }
+        for (int level = topLevel; level >= 1; level--) {
+            bucketFor(level, currentTick).drain(timeout -> {
+                if (!place(timeout)) {
+                    timeout.state = WheelTimeout.EXPIRED;
+                    expired.add(timeout);
+                }
+            });
+        }
+        bucketFor(0, currentTick).drain(timeout -> {
+            timeout.state = WheelTimeout.EXPIRED;
+            expired.add(timeout);
+        });
+    }
+
+    /** This method puts the timeout in the bucket matching its deadline.
+     *
+     * @return false if the deadline is already reached and the timeout should be fired instead. */
+    private boolean place(WheelTimeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta <= 0) {
+            return false;
+        }
+        long placementTick = delta < MAX_SPAN ? timeout.deadlineTick : currentTick + MAX_SPAN - 1;
+        int level = (63 - Long.numberOfLeadingZeros(placementTick - currentTick)) / WHEEL_BITS;
+        bucketFor(level, placementTick).add(timeout);
+        return true;
+    }
+
+    private WheelBucket bucketFor(int level, long tick) {
+        return buckets[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+    }
+
+    private void dispatch(WheelTimeout timeout) {
+        workers.execute(() -> {
+            try {
+                timeout.getTask().run();
+            } catch (RuntimeException e) {
+                logger.error("Scheduled task failed. Deadline: {}", timeout.getDeadline(), e);
+            }
+        });
+    }
+}
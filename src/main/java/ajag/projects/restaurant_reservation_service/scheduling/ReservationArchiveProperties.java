@@ -0,0 +1,54 @@
+package ajag.projects.restaurant_reservation_service.scheduling;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** This class holds the settings of the reservation archive (reservation.archive.* in the application properties). */
+@ConfigurationProperties(prefix = "reservation.archive")
+public class ReservationArchiveProperties {
+
+    /** Whether the finished reservations are moved to the reservations_history table. */
+    private boolean enabled = true;
+
+    /** How long after its reservation date a COMPLETED or CANCELLED reservation is moved to the reservations_history table. */
+    private Duration minAge = Duration.ofDays(90);
+
+    /** How often the finished reservations are archived. */
+    private Duration interval = Duration.ofHours(1);
+
+    /** Number of reservations moved per transaction. */
+    private int batchSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getMinAge() {
+        return minAge;
+    }
+
+    public void setMinAge(Duration minAge) {
+        this.minAge = minAge;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
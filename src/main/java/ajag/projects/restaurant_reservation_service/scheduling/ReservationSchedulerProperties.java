@@ -0,0 +1,195 @@
+package ajag.projects.restaurant_reservation_service.scheduling;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** This class holds the settings of the reservation scheduler (reservation.scheduler.* in the application properties). */
+@ConfigurationProperties(prefix = "reservation.scheduler")
+public class ReservationSchedulerProperties {
+
+    /** Whether the due tasks are kept in the memory of this node or shared with the other nodes through the database. */
+    private Mode mode = Mode.LOCAL;
+
+    /** Name of this node as the owner of the tasks it claims in {@link Mode#CLUSTERED} mode, and of the notifications it sends,
+     * it has to be unique within the cluster. */
+    private String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    /** How often the due tasks are claimed in {@link Mode#CLUSTERED} mode. */
+    private Duration claimInterval = Duration.ofSeconds(1);
+
+    /** Number of due tasks claimed at a time in {@link Mode#CLUSTERED} mode. */
+    private int claimBatchSize = 100;
+
+    /** How long a claimed task is held by its node in {@link Mode#CLUSTERED} mode, it is claimed again by any node once it expires.
+     * It should be a lot longer than running one batch of tasks. */
+    private Duration leaseDuration = Duration.ofMinutes(1);
+
+    /** How often the timing wheel turns. */
+    private long tickMillis = 1000;
+
+    /** Number of worker threads running the due tasks, when virtual threads are not used. */
+    private int workerThreads = 4;
+
+    /** Run every due task on its own virtual thread instead of the worker threads. */
+    private boolean virtualThreads = false;
+
+    /** Maximum number of due tasks using the database at the same time. */
+    private int maxConcurrentDbWork = 4;
+
+    /** Only the confirmed reservations due within this window are loaded and scheduled. */
+    private Duration loadWindow = Duration.ofHours(24);
+
+    /** How often the next slice of the load window is loaded. It should be a lot shorter than the load window. */
+    private Duration refillInterval = Duration.ofMinutes(15);
+
+    /** Number of reservations read from the database per page while loading. */
+    private int loadPageSize = 500;
+
+    /** How the due reservations are set to COMPLETED. */
+    private CompletionMode completionMode = CompletionMode.PER_RESERVATION;
+
+    /** How often the due reservations are completed in {@link CompletionMode#BULK} mode. */
+    private Duration completionSweepInterval = Duration.ofSeconds(30);
+
+    /** Number of due reservations completed and notified per batch (and transaction) in {@link CompletionMode#BULK} mode. */
+    private int completionBatchSize = 500;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Duration getClaimInterval() {
+        return claimInterval;
+    }
+
+    public void setClaimInterval(Duration claimInterval) {
+        this.claimInterval = claimInterval;
+    }
+
+    public int getClaimBatchSize() {
+        return claimBatchSize;
+    }
+
+    public void setClaimBatchSize(int claimBatchSize) {
+        this.claimBatchSize = claimBatchSize;
+    }
+
+    public Duration getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    public void setLeaseDuration(Duration leaseDuration) {
+        this.leaseDuration = leaseDuration;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public void setTickMillis(long tickMillis) {
+        this.tickMillis = tickMillis;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getMaxConcurrentDbWork() {
+        return maxConcurrentDbWork;
+    }
+
+    public void setMaxConcurrentDbWork(int maxConcurrentDbWork) {
+        this.maxConcurrentDbWork = maxConcurrentDbWork;
+    }
+
+    public Duration getLoadWindow() {
+        return loadWindow;
+    }
+
+    public void setLoadWindow(Duration loadWindow) {
+        this.loadWindow = loadWindow;
+    }
+
+    public Duration getRefillInterval() {
+        return refillInterval;
+    }
+
+    public void setRefillInterval(Duration refillInterval) {
+        this.refillInterval = refillInterval;
+    }
+
+    public int getLoadPageSize() {
+        return loadPageSize;
+    }
+
+    public void setLoadPageSize(int loadPageSize) {
+        this.loadPageSize = loadPageSize;
+    }
+
+    public CompletionMode getCompletionMode() {
+        return completionMode;
+    }
+
+    public void setCompletionMode(CompletionMode completionMode) {
+        this.completionMode = completionMode;
+    }
+
+    public Duration getCompletionSweepInterval() {
+        return completionSweepInterval;
+    }
+
+    public void setCompletionSweepInterval(Duration completionSweepInterval) {
+        this.completionSweepInterval = completionSweepInterval;
+    }
+
+    public int getCompletionBatchSize() {
+        return completionBatchSize;
+    }
+
+    public void setCompletionBatchSize(int completionBatchSize) {
+        this.completionBatchSize = completionBatchSize;
+    }
+
+    /** Enum representing where the due tasks of the reservations are kept.
+     * Only the tasks and the notification outbox are shared between the nodes in CLUSTERED mode. The seat capacity and the read watermarks
+     * only see the changes made through their own node, so a node refuses to start in CLUSTERED mode unless they are turned off
+     * (reservation.capacity.enabled=false, read-watermark.enabled=false). The customer cache is kept per node too,
+     * a customer changed through another node is read from it for up to customer.cache.ttl. */
+    public enum Mode {
+        LOCAL, // every task is scheduled in the timing wheel of this node, only one node can run
+        CLUSTERED // every task is saved in the reservation_tasks table, the nodes claim the due ones with a lease so each one runs once
+    }
+
+    /** Enum representing how the due reservations are set to COMPLETED. */
+    public enum CompletionMode {
+        PER_RESERVATION, // every reservation has its own completion task that saves it when it is due
+        BULK // each sweep completes the due reservations one batch at a time, with one update statement and one transaction per batch
+    }
+}
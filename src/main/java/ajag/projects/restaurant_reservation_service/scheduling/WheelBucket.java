@@ -0,0 +1,55 @@
+package ajag.projects.restaurant_reservation_service.scheduling;
+
+import java.util.function.Consumer;
+
+/** This class represents one slot of a {@link HierarchicalTimingWheel} level.
+ * It is a doubly linked list of {@link WheelTimeout} so adding and removing a timeout are both O(1).
+ * It is not thread-safe, the owning wheel guards every access with its lock. */
+final class WheelBucket {
+
+    private WheelTimeout head;
+    private WheelTimeout tail;
+
+    void add(WheelTimeout timeout) {
+        timeout.bucket = this;
+        timeout.prev = tail;
+        timeout.next = null;
+        if (tail == null) {
+            head = timeout;
+        } else {
+            tail.next = timeout;
+        }
+        tail = timeout;
+    }
+
+    void remove(WheelTimeout timeout) {
+        if (timeout.prev == null) {
+            head = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next == null) {
+            tail = timeout.prev;
+        } else {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.bucket = null;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /** This method empties the bucket and hands every timeout that was in it to the consumer. */
+    void drain(Consumer<WheelTimeout> consumer) {
+        WheelTimeout timeout = head;
+        head = null;
+        tail = null;
+        while (timeout != null) {
+            WheelTimeout next = timeout.next;
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+            consumer.accept(timeout);
+            timeout = next;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ajag.projects.restaurant_reservation_service.scheduling;
+
+import java.time.Instant;
+
+/** This class represents a single task registered in the {@link HierarchicalTimingWheel}.
+ * It is returned by {@link HierarchicalTimingWheel#schedule(Runnable, Instant)} and is used to cancel the task
+ * before it is fired. It is also the node of the doubly linked list inside a wheel bucket, which is what makes
+ * cancelling an O(1) operation. */
+public final class WheelTimeout {
+
+    static final int PENDING = 0;
+    static final int CANCELLED = 1;
+    static final int EXPIRED = 2;
+
+    private final HierarchicalTimingWheel wheel;
+    private final Runnable task;
+    private final Instant deadline;
+    final long deadlineTick;
+
+    // These fields are guarded by the lock of the wheel that owns this timeout.
+    volatile int state = PENDING;
+    WheelBucket bucket;
+    WheelTimeout prev;
+    WheelTimeout next;
+
+    WheelTimeout(HierarchicalTimingWheel wheel, Runnable task, Instant deadline, long deadlineTick) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadline = deadline;
+        this.deadlineTick = deadlineTick;
+    }
+
+    /** This method cancels the task so it won't be fired.
+     *
+     * @return true if the task was still pending and is now cancelled, false if it was already fired or cancelled. */
+    public boolean cancel() {
+        return wheel.cancel(this);
+    }
+
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    public boolean isExpired() {
+        return state == EXPIRED;
+    }
+
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    Runnable getTask() {
+        return task;
+    }
+}
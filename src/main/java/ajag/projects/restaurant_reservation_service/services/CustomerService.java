@@ -1,57 +1,211 @@
 package ajag.projects.restaurant_reservation_service.services;
 
+import ajag.projects.restaurant_reservation_service.dtos.CustomerCacheStats;
 import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.events.CustomerChangedEvent;
 import ajag.projects.restaurant_reservation_service.exceptions.NotFoundException;
 import ajag.projects.restaurant_reservation_service.repositories.CustomerRepository;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /** This service class is responsible for handling customer-related operations.
- * It uses {@link CustomerRepository} to perform CRUD operations on the {@link Customer} entity. */
+ * It uses {@link CustomerRepository} to perform CRUD operations on the {@link Customer} entity.
+ * <p>The customers are cached by ID, with an index from their email to their ID, so the lookups by ID and by email
+ * don't go to the database every time. The cache is bounded in size and each entry expires after a while,
+ * and it is refreshed whenever a customer is added or updated through this service.</p>
+ * <p>A {@link CustomerChangedEvent} is published for every customer added or updated.</p> */
 @Service
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
+    private final Cache<Long, Customer> customersById;
+    private final Cache<String, Long> customerIdsByEmail;
+    private final ApplicationEventPublisher eventPublisher;
 
-    /** This constructor is used to inject the {@link CustomerRepository} dependency into this class.*/
-    public CustomerService(CustomerRepository customerRepository) {
+    /** This constructor is used to inject the dependencies ({@link CustomerRepository}, {@link ApplicationEventPublisher}) into this class.
+     * The cache holds up to maxSize(parameter) customers, each for at most ttl(parameter) after it was cached. */
+    public CustomerService(CustomerRepository customerRepository, ApplicationEventPublisher eventPublisher,
+                           @Value("${customer.cache.max-size:10000}") long maxSize,
+                           @Value("${customer.cache.ttl:PT10M}") Duration ttl) {
         this.customerRepository = customerRepository;
+        this.eventPublisher = eventPublisher;
+        this.customersById = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.customerIdsByEmail = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
     }
 
     /** This method is used to add new customer in the system. It saves the customer(parameter) in the database.
      *
      * @param customer - request entity containing the details of the customer. */
     public Customer addCustomer(Customer customer) {
-        return customerRepository.save(customer);
+        Customer savedCustomer = customerRepository.save(customer);
+        cache(savedCustomer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(savedCustomer.getId(), savedCustomer.getEmail(), null));
+        return savedCustomer;
+    }
+
+    /** This method is used to add many new customers in the system at once. It saves the customers(parameter) in the database together.
+     *
+     * @param customers - request entities containing the details of the customers. */
+    public List<Customer> addCustomers(List<Customer> customers) {
+        List<Customer> savedCustomers = customerRepository.saveAll(customers);
+        for (Customer savedCustomer : savedCustomers) {
+            cache(savedCustomer);
+            eventPublisher.publishEvent(new CustomerChangedEvent(savedCustomer.getId(), savedCustomer.getEmail(), null));
+        }
+        return savedCustomers;
+    }
+
+    /** This method is used to get the customer entities using the ids(parameter).
+     * The customers that are not cached are read from the database with a single query.
+     *
+     * @param ids - IDs of the customers.
+     * @return the customers found, by their ID. */
+    public Map<Long, Customer> findAllById(Collection<Long> ids) {
+        Map<Long, Customer> customers = new HashMap<>(customersById.getAllPresent(ids));
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            if (!customers.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            for (Customer customer : customerRepository.findAllById(missingIds)) {
+                customers.put(customer.getId(), customer);
+                cache(customer);
+            }
+        }
+        return customers;
     }
 
     /** This method is used to get the customer entity using the email(parameter).
+     * A customer that is not cached is read in a read-only transaction (from the read replica, if there is one),
+     * the cached ones don't need a transaction at all.
      *
      * @param email - email address of the customer. */
     public Optional<Customer> findByEmail(String email) {
-        return customerRepository.findByEmail(email);
+        Optional<Customer> cachedCustomer = findCachedByEmail(email);
+        if (cachedCustomer.isPresent()) {
+            return cachedCustomer;
+        }
+
+        Optional<Customer> customer = customerRepository.findByEmail(email);
+        customer.ifPresent(this::cache);
+        return customer;
+    }
+
+    /** This method is used to get the customer entity using the email(parameter), only if it is cached.
+     * It never goes to the database, e.g., for the reactive variant which reads the customer itself on a miss (and caches it).
+     *
+     * @param email - email address of the customer. */
+    public Optional<Customer> findCachedByEmail(String email) {
+        Long id = customerIdsByEmail.getIfPresent(email);
+        if (id != null) {
+            // The lookup by ID is not counted in the stats, it is part of this lookup by email
+            Customer customer = customersById.asMap().get(id);
+            if (customer != null && Objects.equals(email, customer.getEmail())) {
+                return Optional.of(customer);
+            }
+        }
+        return Optional.empty();
     }
 
     /** This method is used to get the customer entity using the id(parameter).
      *
      * @param id - ID of the customer. */
     public Optional<Customer> findById(Long id) {
-        return customerRepository.findById(id);
+        Customer cachedCustomer = customersById.getIfPresent(id);
+        if (cachedCustomer != null) {
+            return Optional.of(cachedCustomer);
+        }
+
+        Optional<Customer> customer = customerRepository.findById(id);
+        customer.ifPresent(this::cache);
+        return customer;
     }
 
     /** This method is used to update the details of a customer.
      * It checks the existence of a customer using the id of the customer(parameter).
      * (1) If it does NOT exist, the method throws a {@link NotFoundException}.
      * (2) If it does exist, the method saves the customer(parameter) in the database.
+     * The cache is refreshed with the saved customer, and the old email no longer points to it if it was changed.
+     * The check and the change are made in the same transaction, so the check reads the primary database and not a read replica that lags behind.
      *
      * @param customer - request entity containing the details of the customer. */
+    @Transactional
     public Customer updateCustomer(Customer customer) {
-        if (!customerRepository.existsById(customer.getId())) {
-            throw new NotFoundException("Customer not found! ID: " + customer.getId());
+        Customer existingCustomer = customerRepository.findById(customer.getId())
+            .orElseThrow(() -> new NotFoundException("Customer not found! ID: " + customer.getId()));
+        String previousEmail = existingCustomer.getEmail();
+
+        Customer updatedCustomer = customerRepository.save(customer);
+
+        if (previousEmail != null && !previousEmail.equals(updatedCustomer.getEmail())) {
+            customerIdsByEmail.invalidate(previousEmail);
+        }
+        cache(updatedCustomer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(updatedCustomer.getId(), updatedCustomer.getEmail(),
+            Objects.equals(previousEmail, updatedCustomer.getEmail()) ? null : previousEmail));
+        return updatedCustomer;
+    }
+
+    /** This method returns the hit, miss and eviction counters of the customer cache. */
+    public CustomerCacheStats getCacheStats() {
+        CacheStats idStats = customersById.stats();
+        CacheStats emailStats = customerIdsByEmail.stats();
+        return new CustomerCacheStats(
+            customersById.estimatedSize(),
+            idStats.hitCount(),
+            idStats.missCount(),
+            emailStats.hitCount(),
+            emailStats.missCount(),
+            idStats.evictionCount() + emailStats.evictionCount());
+    }
+
+    /** This method empties the customer cache, the next lookups go to the database. */
+    public void clearCache() {
+        customersById.invalidateAll();
+        customerIdsByEmail.invalidateAll();
+    }
+
+    /** This method puts the customer in the cache. When called within a transaction (e.g., creating a reservation
+     * with a new customer), it waits for the commit so a rolled back customer never ends up in the cache. */
+    public void cache(Customer customer) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putInCache(customer);
+                }
+            });
+        } else {
+            putInCache(customer);
+        }
+    }
+
+    private void putInCache(Customer customer) {
+        customersById.put(customer.getId(), customer);
+        if (customer.getEmail() != null) {
+            customerIdsByEmail.put(customer.getEmail(), customer.getId());
         }
-        return customerRepository.save(customer);
     }
 
 }
@@ -1,96 +1,98 @@
 package ajag.projects.restaurant_reservation_service.services;
 
-import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.NotificationOutbox;
 import ajag.projects.restaurant_reservation_service.entities.Reservation;
-import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.enums.NotificationType;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationRenderer;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationTemplate;
+import ajag.projects.restaurant_reservation_service.repositories.NotificationOutboxRepository;
 
-import java.time.format.DateTimeFormatter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-/** This service class is responsible for sending notification and reminders to the customer through their preferred communication method. */
+/** This service class is responsible for sending notification and reminders to the customer through their preferred communication method.
+ * The messages are not sent right away, they are saved in the outbox (in the transaction of the caller, if there is one)
+ * and are delivered in the background by the {@link NotificationDispatcher}.
+ * The notifications saved are counted per type (reservation.notifications) and the saves are timed (reservation.notifications.enqueue). */
 @Service
 public class MessagingService {
 
-    private static final Logger logger = LoggerFactory.getLogger(MessagingService.class);
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationRenderer notificationRenderer;
+    private final Map<NotificationType, Counter> enqueuedNotifications = new EnumMap<>(NotificationType.class);
+    private final Timer enqueueTimer;
+    private final Timer batchEnqueueTimer;
+
+    /** This constructor is used to inject the dependencies ({@link NotificationOutboxRepository}, {@link NotificationRenderer}, {@link MeterRegistry}) into this class.
+     * The meters are registered once here, so sending a notification does not look them up. */
+    public MessagingService(NotificationOutboxRepository outboxRepository, NotificationRenderer notificationRenderer, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.notificationRenderer = notificationRenderer;
+        for (NotificationType type : NotificationType.values()) {
+            enqueuedNotifications.put(type, Counter.builder("reservation.notifications")
+                .description("Notifications saved in the outbox")
+                .tag("type", type.name())
+                .register(meterRegistry));
+        }
+        this.enqueueTimer = enqueueTimer(meterRegistry, "single");
+        this.batchEnqueueTimer = enqueueTimer(meterRegistry, "batch");
+    }
 
     /** This method represents the sending of notifications when reservations are confirmed and/or canceled. */
     protected void sendNotification(Reservation reservation) {
-        Customer customer = reservation.getCustomer();
-        String preferredComms = customer.getPreferredComms() == PreferredComms.EMAIL ? customer.getEmail() : customer.getPhoneNumber();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMMM d, yyyy h:mma");
-        String reservationDateTime = reservation.getReservationDate().format(formatter);
-
-        String notification = String.format("""
-            
-                Sending Notification to: %s
-                
-                Dear %s,
-                
-                Your reservation for %d guests has been %s.
-                Reservation Date and Time: %s
-                
-                Kind Regards,
-                Us""",
-            preferredComms,
-            customer.getName(),
-            reservation.getGuestCount(),
-            reservation.getStatus().toString().toLowerCase(),
-            reservationDateTime
-        );
+        enqueue(reservation, NotificationType.STATUS_UPDATE);
+    }
 
-        logger.info(notification);
+    /** This method represents the sending of notifications for many reservations at once (batch create, cancel and reschedule).
+     * The messages are saved in the outbox together, so the inserts are sent in JDBC batches. */
+    protected void sendNotifications(List<Reservation> reservations) {
+        List<NotificationOutbox> notifications = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations) {
+            notifications.add(createNotification(reservation, NotificationType.STATUS_UPDATE));
+        }
+        batchEnqueueTimer.record(() -> outboxRepository.saveAll(notifications));
+        enqueuedNotifications.get(NotificationType.STATUS_UPDATE).increment(notifications.size());
     }
 
     /** This method represents the sending of reminders 4 hours prior to the reservation date. */
     protected void sendReservationReminder(Reservation reservation) {
-        Customer customer = reservation.getCustomer();
-        String preferredComms = customer.getPreferredComms() == PreferredComms.EMAIL ? customer.getEmail() : customer.getPhoneNumber();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMMM d, yyyy h:mma");
-        String reservationDateTime = reservation.getReservationDate().format(formatter);
-
-        String reminder = String.format("""
-                
-                Sending Reminder to: %s
-                
-                Dear %s,
-                
-                You have a reservation for %d guests.
-                Reservation Date and Time: %s
-                
-                Thanks and Kind Regards,
-                Us""",
-            preferredComms,
-            customer.getName(),
-            reservation.getGuestCount(),
-            reservationDateTime
-        );
-
-        logger.info(reminder);
+        enqueue(reservation, NotificationType.REMINDER);
     }
 
     /** This method represents the sending of reminders in the reservation date. */
     public void sendReservationCompletion(Reservation reservation) {
-        Customer customer = reservation.getCustomer();
-        String preferredComms = customer.getPreferredComms() == PreferredComms.EMAIL ? customer.getEmail() : customer.getPhoneNumber();
+        enqueue(reservation, NotificationType.COMPLETION);
+    }
 
-        String notification = String.format("""
-                
-                Sending Reminder to: %s
-                
-                Dear %s,
-                
-                You have a reservation scheduled right now!
-                Enjoy your experience and have a great time!
-                
-                Kind Regards,
-                Us""",
-            preferredComms,
-            customer.getName()
-        );
+    /** This method renders the message and saves it in the outbox, to be sent through the customer's preferred communication method. */
+    private void enqueue(Reservation reservation, NotificationType type) {
+        NotificationOutbox notification = createNotification(reservation, type);
+        enqueueTimer.record(() -> outboxRepository.save(notification));
+        enqueuedNotifications.get(type).increment();
+    }
+
+    private static Timer enqueueTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("reservation.notifications.enqueue")
+            .description("Time to save notifications in the outbox")
+            .tag("mode", mode)
+            .register(meterRegistry);
+    }
 
-        logger.info(notification);
+    private NotificationOutbox createNotification(Reservation reservation, NotificationType type) {
+        NotificationOutbox notification = new NotificationOutbox();
+        notification.setReservationId(reservation.getId());
+        notification.setType(type);
+        notification.setChannel(NotificationTemplate.channelOf(reservation.getCustomer()));
+        notification.setRecipient(NotificationTemplate.recipientOf(reservation.getCustomer()));
+        notification.setMessage(notificationRenderer.render(type, reservation));
+        return notification;
     }
 }
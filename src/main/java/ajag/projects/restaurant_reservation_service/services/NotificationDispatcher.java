@@ -0,0 +1,181 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.entities.NotificationOutbox;
+import ajag.projects.restaurant_reservation_service.enums.OutboxStatus;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationOutboxProperties;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationSender;
+import ajag.projects.restaurant_reservation_service.repositories.NotificationOutboxRepository;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationSchedulerProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PreDestroy;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** This service class is responsible for sending the notifications saved in the outbox.
+ * Each channel is drained on its own thread, one batch at a time, so a slow SMS provider does not hold back the emails.
+ * A failed notification is retried with an exponential backoff until it runs out of attempts.
+ * Every attempt is timed per channel and outcome (notifications.send).
+ * <p>Several nodes can send the same outbox: every node claims a batch of the due notifications with a lease
+ * (SELECT ... FOR UPDATE SKIP LOCKED, the same way as the tasks of the CLUSTERED scheduler), so two nodes never send the same notification,
+ * and saves their new status only if it still holds the lease once it locks them. The notifications of a node that stopped
+ * are claimed again by the other nodes once their lease expires, so a notification is sent at least once.</p> */
+@Service
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final Map<PreferredComms, NotificationSender> senders = new EnumMap<>(PreferredComms.class);
+    private final NotificationOutboxProperties properties;
+    private final String nodeId;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService channelExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<PreferredComms, Timer> sentTimers = new EnumMap<>(PreferredComms.class);
+    private final Map<PreferredComms, Timer> failedTimers = new EnumMap<>(PreferredComms.class);
+
+    /** This constructor is used to inject the dependencies ({@link NotificationOutboxRepository},
+     * every {@link NotificationSender}, {@link NotificationOutboxProperties}, {@link ReservationSchedulerProperties} for the name of this node,
+     * {@link TransactionTemplate}, {@link MeterRegistry}) into this class.*/
+    public NotificationDispatcher(NotificationOutboxRepository outboxRepository, List<NotificationSender> senders, NotificationOutboxProperties properties,
+                                  ReservationSchedulerProperties schedulerProperties, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.properties = properties;
+        this.nodeId = schedulerProperties.getNodeId();
+        this.transactionTemplate = transactionTemplate;
+        for (NotificationSender sender : senders) {
+            this.senders.put(sender.getChannel(), sender);
+            this.sentTimers.put(sender.getChannel(), sendTimer(meterRegistry, sender.getChannel(), "success"));
+            this.failedTimers.put(sender.getChannel(), sendTimer(meterRegistry, sender.getChannel(), "failure"));
+        }
+    }
+
+    /** This method sends every notification that is due, the channels in parallel. */
+    @Scheduled(fixedDelayString = "${notification.outbox.poll-interval:PT1S}")
+    public void dispatchPendingNotifications() {
+        CompletableFuture.allOf(senders.values().stream()
+                .map(sender -> CompletableFuture.runAsync(() -> drainChannel(sender), channelExecutor))
+                .toArray(CompletableFuture[]::new))
+            .join();
+    }
+
+    /** This method deletes the sent notifications that are older than the retention, on every purge-interval. */
+    @Scheduled(fixedDelayString = "${notification.outbox.purge-interval:PT1H}")
+    public void purgeSentNotifications() {
+        outboxRepository.deleteByStatusCreatedBefore(OutboxStatus.SENT, LocalDateTime.now().minus(properties.getSentRetention()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channelExecutor.shutdown();
+    }
+
+    private void drainChannel(NotificationSender sender) {
+        int batchSize;
+        do {
+            batchSize = dispatchBatch(sender);
+        } while (batchSize == properties.getBatchSize());
+    }
+
+    /** This method claims one batch of due notifications of the sender's channel, sends them, then saves their new status in one go.
+     * The batch is claimed and saved in two short transactions, so no database connection is held while the notifications are sent.
+     *
+     * @return the number of notifications in the batch. */
+    protected int dispatchBatch(NotificationSender sender) {
+        // The column keeps microseconds, so the lease is truncated to be matched exactly by lockClaimedIds
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        LocalDateTime leaseUntil = now.plus(properties.getLeaseDuration());
+        List<NotificationOutbox> batch = transactionTemplate.execute(status -> claimBatch(sender.getChannel(), now, leaseUntil));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        for (NotificationOutbox notification : batch) {
+            attempt(sender, notification, now);
+        }
+        transactionTemplate.executeWithoutResult(status -> saveClaimed(batch, leaseUntil));
+        return batch.size();
+    }
+
+    /** This method claims at most batch-size notifications of the channel(parameter) that are due at now(parameter) for this node until leaseUntil(parameter).
+     *
+     * @return the claimed notifications, the oldest first. */
+    private List<NotificationOutbox> claimBatch(PreferredComms channel, LocalDateTime now, LocalDateTime leaseUntil) {
+        List<Long> ids = outboxRepository.lockDueIds(OutboxStatus.PENDING.name(), channel.name(), now, properties.getBatchSize());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        outboxRepository.claimByIdIn(ids, nodeId, leaseUntil);
+        return outboxRepository.findAllByIdInOrderByIdAsc(ids);
+    }
+
+    /** This method saves the new status of the notifications of the batch(parameter) that this node still holds, and lets go of their lease.
+     * The others were claimed again by another node once their lease expired, that node saves them instead. */
+    private void saveClaimed(List<NotificationOutbox> batch, LocalDateTime leaseUntil) {
+        Set<Long> held = new HashSet<>(outboxRepository.lockClaimedIds(batch.stream().map(NotificationOutbox::getId).toList(), nodeId, leaseUntil));
+        List<NotificationOutbox> kept = batch.stream().filter(notification -> held.contains(notification.getId())).toList();
+        for (NotificationOutbox notification : kept) {
+            notification.setLeaseOwner(null);
+            notification.setLeaseUntil(null);
+        }
+        outboxRepository.saveAll(kept);
+        if (kept.size() < batch.size()) {
+            logger.warn("The lease of {} notifications expired while they were sent, they were claimed again", batch.size() - kept.size());
+        }
+    }
+
+    private void attempt(NotificationSender sender, NotificationOutbox notification, LocalDateTime now) {
+        notification.setAttempts(notification.getAttempts() + 1);
+        long start = System.nanoTime();
+        try {
+            sender.send(notification);
+            sentTimers.get(sender.getChannel()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            notification.setStatus(OutboxStatus.SENT);
+            notification.setLastError(null);
+        } catch (RuntimeException e) {
+            failedTimers.get(sender.getChannel()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            String error = String.valueOf(e.getMessage());
+            notification.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+            if (notification.getAttempts() >= properties.getMaxAttempts()) {
+                notification.setStatus(OutboxStatus.FAILED);
+                logger.warn("Notification {} failed after {} attempts", notification.getId(), notification.getAttempts(), e);
+            } else {
+                notification.setNextAttemptAt(now.plus(backoff(notification.getAttempts())));
+            }
+        }
+    }
+
+    private static Timer sendTimer(MeterRegistry meterRegistry, PreferredComms channel, String outcome) {
+        return Timer.builder("notifications.send")
+            .description("Time to hand a notification to its channel")
+            .tag("channel", channel.name())
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    /** This method returns the wait before the next attempt, it doubles after every failed attempt up to the max backoff. */
+    private Duration backoff(int attempts) {
+        Duration backoff = properties.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : backoff;
+    }
+}
@@ -0,0 +1,83 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.dtos.ReadWatermark;
+import ajag.projects.restaurant_reservation_service.events.CustomerChangedEvent;
+import ajag.projects.restaurant_reservation_service.events.ReservationChangedEvent;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/** This service class keeps the current version ({@link ReadWatermark}) of the reservation list of every customer and of every customer lookup,
+ * so a poll of an unchanged list or customer is answered 304 Not Modified without reading the database or serializing anything.
+ * <p>A version is made the first time it is asked for, and replaced by a new one once a change of the reservations or of the customer
+ * is committed ({@link ReservationChangedEvent}, {@link CustomerChangedEvent}). As the new version is only made after the commit,
+ * a response can never be sent with a version that is newer than the rows it was read from.
+ * The ETags start with an ID of this run of the application, so an ETag from before a restart is never taken for a current one.
+ * The versions are only kept in memory, up to max-size of each kind and each one until it is not asked for during the ttl,
+ * a version that was dropped is made again, which costs one full response.</p>
+ * <p>Like the seat capacity, the versions only see the changes made through this instance of the application, so a node would keep answering
+ * 304 Not Modified after a change made through another node. With read-watermark.enabled=false (required in CLUSTERED mode)
+ * no version is kept and every read gets a full response.</p> */
+@Service
+public class ReadWatermarkService {
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong lastVersion = new AtomicLong();
+    private final Cache<Long, ReadWatermark> reservationWatermarks;
+    private final Cache<String, ReadWatermark> customerWatermarks;
+    private final boolean enabled;
+
+    /** This constructor sets the most versions kept of each kind to maxSize(parameter), each one for ttl(parameter) after it was last asked for.
+     * If enabled(parameter) is false, no version is kept. */
+    public ReadWatermarkService(@Value("${read-watermark.enabled:true}") boolean enabled,
+                                @Value("${read-watermark.max-size:100000}") long maxSize,
+                                @Value("${read-watermark.ttl:PT1H}") Duration ttl) {
+        this.enabled = enabled;
+        this.reservationWatermarks = Caffeine.newBuilder().maximumSize(maxSize).expireAfterAccess(ttl).build();
+        this.customerWatermarks = Caffeine.newBuilder().maximumSize(maxSize).expireAfterAccess(ttl).build();
+    }
+
+    /** This method returns the current version of the reservation list of the customer with the customerId(parameter), or null if they are turned off. */
+    public ReadWatermark getReservationsWatermark(Long customerId) {
+        return enabled ? reservationWatermarks.get(customerId, id -> nextWatermark(null)) : null;
+    }
+
+    /** This method returns the current version of the customer with the email(parameter), or null if they are turned off. */
+    public ReadWatermark getCustomerWatermark(String email) {
+        return enabled ? customerWatermarks.get(email, id -> nextWatermark(null)) : null;
+    }
+
+    /** This method replaces the version of the reservation list of the customer once the change is committed (or right away without a transaction). */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        reservationWatermarks.asMap().computeIfPresent(event.customerId(), (id, watermark) -> nextWatermark(watermark));
+    }
+
+    /** This method replaces the version of the customer, under its current and previous email, once the change is committed (or right away without a transaction). */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (event.email() != null) {
+            customerWatermarks.asMap().computeIfPresent(event.email(), (email, watermark) -> nextWatermark(watermark));
+        }
+        if (event.previousEmail() != null) {
+            customerWatermarks.asMap().computeIfPresent(event.previousEmail(), (email, watermark) -> nextWatermark(watermark));
+        }
+    }
+
+    /** This method makes a new version, modified now. The HTTP dates only have seconds, so the new version is at least
+     * one second after the previous(parameter) one, otherwise an If-Modified-Since of the previous version would match it. */
+    private ReadWatermark nextWatermark(ReadWatermark previous) {
+        long lastModified = System.currentTimeMillis();
+        if (previous != null) {
+            lastModified = Math.max(lastModified, (previous.lastModified() / 1000 + 1) * 1000);
+        }
+        return new ReadWatermark("\"" + runId + "-" + Long.toString(lastVersion.incrementAndGet(), 36) + "\"", lastModified);
+    }
+}
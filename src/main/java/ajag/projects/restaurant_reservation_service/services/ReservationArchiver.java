@@ -0,0 +1,68 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.repositories.ReservationArchiveRepository;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationArchiveProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/** This service class is responsible for moving the finished reservations (COMPLETED and CANCELLED) to the reservations_history table
+ * once their reservation date is older than the min age, so the reservations table only keeps what the scheduler and the recent history need.
+ * They are moved one batch at a time, each batch in its own short transaction, so the reservations table is never locked for long.
+ * The archived reservations are counted (reservation.archived). */
+@Service
+public class ReservationArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationArchiver.class);
+
+    private final ReservationArchiveRepository archiveRepository;
+    private final ReservationArchiveProperties properties;
+    private final Counter archivedCounter;
+
+    /** This constructor is used to inject the dependencies ({@link ReservationArchiveRepository}, {@link ReservationArchiveProperties},
+     * {@link MeterRegistry}) into this class.*/
+    public ReservationArchiver(ReservationArchiveRepository archiveRepository, ReservationArchiveProperties properties, MeterRegistry meterRegistry) {
+        this.archiveRepository = archiveRepository;
+        this.properties = properties;
+        this.archivedCounter = Counter.builder("reservation.archived")
+            .description("Finished reservations moved to the reservations_history table")
+            .register(meterRegistry);
+    }
+
+    /** This method archives the finished reservations on every interval, it does nothing unless the archive is enabled. */
+    @Scheduled(fixedDelayString = "${reservation.archive.interval:PT1H}")
+    public void scheduledArchive() {
+        if (properties.isEnabled()) {
+            archiveFinishedReservations();
+        }
+    }
+
+    /** This method moves every finished reservation with a reservation date older than the min age to the reservations_history table,
+     * batch-size reservations per transaction, until there is none left.
+     *
+     * @return the number of archived reservations. */
+    public int archiveFinishedReservations() {
+        LocalDateTime archivedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        LocalDateTime before = archivedAt.minus(properties.getMinAge());
+        int archived = 0;
+        int batchSize;
+        do {
+            batchSize = archiveRepository.archiveBatch(before, archivedAt, properties.getBatchSize());
+            archivedCounter.increment(batchSize);
+            archived += batchSize;
+        } while (batchSize == properties.getBatchSize());
+
+        if (archived > 0) {
+            logger.info("Archived {} reservations finished before {}", archived, before);
+        }
+        return archived;
+    }
+}
@@ -0,0 +1,91 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationChange;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.events.ReservationChangedEvent;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationSchedulerProperties;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** This service class is responsible for completing the due reservations when the scheduler runs in
+ * {@link ReservationSchedulerProperties.CompletionMode#BULK} completion mode.
+ * Instead of one transaction per reservation, every sweep completes the due reservations one batch at a time,
+ * with a single update statement and a short transaction per batch, so only one batch of reservations is ever held in memory. */
+@Service
+public class ReservationCompletionSweeper {
+
+    private final ReservationRepository reservationRepository;
+    private final ReservationSchedulingService schedulerService;
+    private final MessagingService messagingService;
+    private final ReservationSchedulerProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    /** This constructor is used to inject the dependencies ({@link ReservationRepository}, {@link ReservationSchedulingService},
+     * {@link MessagingService}, {@link ReservationSchedulerProperties}, {@link ApplicationEventPublisher}, {@link TransactionTemplate}) into this class.*/
+    public ReservationCompletionSweeper(ReservationRepository reservationRepository, ReservationSchedulingService schedulerService,
+                                        MessagingService messagingService, ReservationSchedulerProperties properties,
+                                        ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate) {
+        this.reservationRepository = reservationRepository;
+        this.schedulerService = schedulerService;
+        this.messagingService = messagingService;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /** This method runs the sweep on every completion-sweep-interval, it does nothing unless the BULK completion mode is on. */
+    @Scheduled(fixedDelayString = "${reservation.scheduler.completion-sweep-interval:PT30S}")
+    public void scheduledSweep() {
+        if (properties.getCompletionMode() == ReservationSchedulerProperties.CompletionMode.BULK) {
+            sweepCompletedReservations();
+        }
+    }
+
+    /** This method completes every CONFIRMED reservation that is due, completion-batch-size reservations at a time, until there is none left.
+     * Each batch is committed on its own (see {@link #completeBatch}), so the notifications and the completions
+     * (see {@link ReservationChangedEvent}) of a batch are delivered once it is committed.
+     *
+     * @return the number of completed reservations. */
+    public int sweepCompletedReservations() {
+        LocalDateTime sweepTime = LocalDateTime.now();
+        int completed = 0;
+        int batchSize;
+        do {
+            batchSize = transactionTemplate.execute(status -> completeBatch(sweepTime));
+            completed += batchSize;
+        } while (batchSize == properties.getCompletionBatchSize());
+        return completed;
+    }
+
+    /** This method, in the transaction of the caller,
+     * (1) locks the next batch of CONFIRMED reservations due at or before the sweepTime(parameter),
+     *     skipping the ones locked by another node sweeping at the same time,
+     * (2) sets them to COMPLETED with one update statement,
+     * (3) reads them back by their ids, drops whatever is left of their schedules, sends the completion notification to their customers
+     *     and publishes the completions.
+     * The reservations can't be changed by anyone else until the transaction ends, so the ones read back are exactly the ones it completed.
+     *
+     * @return the number of completed reservations. */
+    private int completeBatch(LocalDateTime sweepTime) {
+        List<Long> ids = reservationRepository.lockIdsByStatusDueBefore(ReservationStatus.CONFIRMED.name(), sweepTime, properties.getCompletionBatchSize());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        reservationRepository.updateStatusByIdInAndStatus(ids, ReservationStatus.CONFIRMED, ReservationStatus.COMPLETED, LocalDateTime.now());
+        for (Reservation reservation : reservationRepository.findAllWithCustomerByIdIn(ids)) {
+            schedulerService.cancelReservationSchedule(reservation.getId());
+            messagingService.sendReservationCompletion(reservation);
+            eventPublisher.publishEvent(ReservationChangedEvent.of(reservation, ReservationChange.COMPLETED));
+        }
+        return ids.size();
+    }
+}
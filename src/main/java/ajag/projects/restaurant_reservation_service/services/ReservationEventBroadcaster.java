@@ -0,0 +1,205 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.events.ReservationChangedEvent;
+import ajag.projects.restaurant_reservation_service.exceptions.InvalidValueException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/** This service class pushes every committed reservation change ({@link ReservationChangedEvent}) to the connected screens as server-sent events,
+ * e.g., the host-stand dashboards, instead of having them poll the reservations.
+ * <p>The events are only kept in memory and fanned out to the subscribers of this instance of the application, none is read from the database.
+ * Each event is turned into JSON once, then handed to the buffer of every subscriber whose date range it falls in, without waiting,
+ * so the thread that committed the change is never held back by the subscribers. Each subscriber has its own virtual thread
+ * that writes its buffer to its connection. A subscriber that falls behind by more than buffer-size events is disconnected
+ * (slow-consumer drop policy), its client then reconnects and reads the reservations again, instead of holding back the others
+ * or making the buffers grow without bound.</p>
+ * <p>The connected subscribers and the dropped ones are measured (reservation.events.subscribers, reservation.events.dropped).</p> */
+@Service
+public class ReservationEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationEventBroadcaster.class);
+
+    /** Marks the end of the buffer of a subscriber that is closed. */
+    private static final Message CLOSE = new Message(null, null, null);
+
+    /** Keeps the connections open through the proxies that close the idle ones. */
+    private static final Message HEARTBEAT = new Message(null, null, "heartbeat");
+
+    private final ObjectMapper objectMapper;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService subscriberExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("reservation-events-", 0).factory());
+    private final AtomicLong lastEventId = new AtomicLong();
+    private final Counter droppedCounter;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Duration timeout;
+
+    /** This constructor is used to inject the dependencies ({@link ObjectMapper}, {@link MeterRegistry}) into this class.
+     * Every subscriber buffers at most bufferSize(parameter) events, at most maxSubscribers(parameter) are connected at the same time,
+     * and each connection is closed after the timeout(parameter), the clients reconnect on their own. */
+    public ReservationEventBroadcaster(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                       @Value("${reservation.events.buffer-size:256}") int bufferSize,
+                                       @Value("${reservation.events.max-subscribers:1000}") int maxSubscribers,
+                                       @Value("${reservation.events.timeout:PT1H}") Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.droppedCounter = Counter.builder("reservation.events.dropped")
+            .description("Subscribers of the reservation events disconnected for falling behind")
+            .register(meterRegistry);
+        meterRegistry.gauge("reservation.events.subscribers", subscribers, Set::size);
+    }
+
+    /** This method connects a new subscriber to the reservation changes with a reservation date between from(parameter) (included)
+     * and until(parameter) (excluded), either of them can be null to leave the range open on that side.
+     * Only the changes committed after the subscription are sent.
+     * If the range is empty, the method throws an {@link InvalidValueException}.
+     * If maxSubscribers are already connected, the method throws a {@link RejectedExecutionException}.
+     *
+     * @return the connection the events are sent through. */
+    public SseEmitter subscribe(LocalDateTime from, LocalDateTime until) {
+        if (from != null && until != null && !until.isAfter(from)) { throw new InvalidValueException("until should be after from!"); }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new RejectedExecutionException("Too many subscribers to the reservation events");
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, from, until, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscribers.add(subscriber);
+        subscriberExecutor.execute(subscriber::run);
+        return emitter;
+    }
+
+    /** This method hands the reservation change to every subscriber it is of interest to, once it is committed (or right away without a transaction).
+     * It never waits, a subscriber with a full buffer is disconnected instead. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            logger.warn("Reservation change {} of reservation {} could not be sent", event.change(), event.reservationId(), e);
+            return;
+        }
+        Message message = new Message(Long.toString(lastEventId.incrementAndGet()), event.change().name(), data);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.accepts(event) && !subscriber.offer(message)) {
+                droppedCounter.increment();
+                subscriber.close();
+            }
+        }
+    }
+
+    /** This method sends a heartbeat to every subscriber whose buffer has room for it, on every heartbeat-interval. */
+    @Scheduled(fixedDelayString = "${reservation.events.heartbeat-interval:PT15S}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(HEARTBEAT);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(Subscriber::close);
+        subscriberExecutor.shutdown();
+    }
+
+    /** This record is one server-sent event, turned into text once for all the subscribers, or a heartbeat comment if it has no name. */
+    private record Message(String id, String name, String data) {
+    }
+
+    /** This class is one connected screen, with its date range and the buffer of the events not sent to it yet. */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final LocalDateTime from;
+        private final LocalDateTime until;
+        private final BlockingQueue<Message> buffer;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, LocalDateTime from, LocalDateTime until, BlockingQueue<Message> buffer) {
+            this.emitter = emitter;
+            this.from = from;
+            this.until = until;
+            this.buffer = buffer;
+        }
+
+        private boolean accepts(ReservationChangedEvent event) {
+            LocalDateTime reservationDate = event.reservationDate();
+            return (from == null || (reservationDate != null && !reservationDate.isBefore(from)))
+                && (until == null || (reservationDate != null && reservationDate.isBefore(until)));
+        }
+
+        /** This method adds the message(parameter) to the buffer without waiting.
+         *
+         * @return false if the buffer is full. */
+        private boolean offer(Message message) {
+            return closed.get() || buffer.offer(message);
+        }
+
+        /** This method stops the subscriber, its thread ends the connection once it sees it.
+         * The buffer is emptied first, so the end is never held back by the events still waiting.
+         * Only the first of the concurrent calls (the broadcast, the heartbeat, the connection callbacks) does it. */
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                buffer.clear();
+                buffer.offer(CLOSE);
+            }
+        }
+
+        /** This method writes the buffer to the connection, one event at a time, until the subscriber is closed or the client is gone. */
+        private void run() {
+            try {
+                Message message;
+                while ((message = buffer.take()) != CLOSE && !closed.get()) {
+                    if (message.name() == null) {
+                        emitter.send(SseEmitter.event().comment(message.data()));
+                    } else {
+                        emitter.send(SseEmitter.event().id(message.id()).name(message.name()).data(message.data()));
+                    }
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // The client is gone, or the connection was already completed
+                close();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -2,127 +2,478 @@ package ajag.projects.restaurant_reservation_service.services;
 
 import ajag.projects.restaurant_reservation_service.entities.Customer;
 import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationChange;
 import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.enums.ReservationTaskType;
+import ajag.projects.restaurant_reservation_service.events.ReservationChangedEvent;
 import ajag.projects.restaurant_reservation_service.repositories.CustomerRepository;
 import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationTaskRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationTaskRepository.ReservationTask;
+import ajag.projects.restaurant_reservation_service.scheduling.HierarchicalTimingWheel;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationSchedulerProperties;
+import ajag.projects.restaurant_reservation_service.scheduling.WheelTimeout;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import jakarta.annotation.PostConstruct;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
-import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.support.CronTrigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /** This service class is responsible for handling the schedules for the reservation.
- * It uses {@link CustomerRepository} to perform CRUD operations on the {@link Customer} entity. */
+ * It uses {@link CustomerRepository} to perform CRUD operations on the {@link Customer} entity.
+ * <p>The schedules are changed from the request threads (create/update/cancel) and from the worker threads
+ * running the due tasks at the same time, so every change to the registry of scheduled tasks is atomic per reservation.</p>
+ * <p>The number of reservations with a pending task (reservation.scheduler.pending.tasks), how late every task fired
+ * (reservation.scheduler.fire.lag) and how long it ran (reservation.scheduler.task.duration) are published as metrics,
+ * the timers are tagged with the task (reminder or completion).</p>
+ * <p>The schedules in memory are only changed once the transaction of the caller is committed, and never if it is rolled back
+ * (e.g., on the version check at commit), so they never run ahead of the reservations in the database.</p>
+ * <p>In {@link ReservationSchedulerProperties.Mode#CLUSTERED} mode the tasks are not kept in memory but in the reservation_tasks table
+ * (see {@link ReservationTaskRepository}), so several nodes can run against the same database: every node claims a batch of the due tasks
+ * with a lease, and a task only runs if its node still holds the lease once it locks it, in the same transaction as the notification it saves.
+ * The tasks of a node that stopped are claimed again by the other nodes once their lease expires.</p> */
 @Service
 public class ReservationSchedulingService {
 
-    private final TaskScheduler taskScheduler;
+    private static final Logger logger = LoggerFactory.getLogger(ReservationSchedulingService.class);
+
+    /** Oldest reservation date looked at when loading, any confirmed reservation before it is long overdue anyway. */
+    private static final LocalDateTime LOAD_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /** Latest reservation date looked at when loading in CLUSTERED mode, where every reservation is loaded at once. */
+    private static final LocalDateTime LOAD_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    /** This variable stores all active scheduled tasks (sending reminder/completing reservation). */
+    private final Map<Long, ScheduledTask> scheduledTasks = new ConcurrentHashMap<>();
+
+    private final HierarchicalTimingWheel timingWheel;
     private final ReservationRepository reservationRepository;
+    private final ReservationTaskRepository taskRepository;
     private final MessagingService messagingService;
+    private final ReservationSchedulerProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor taskExecutor;
+    private final Semaphore dbPermits;
+    private final TaskMetrics reminderMetrics;
+    private final TaskMetrics completionMetrics;
+
+    /** Reservations due at or after this date are not scheduled yet, they are loaded by the next refill.
+     * It is null until the reservations are initialized, in which case every reservation is scheduled. */
+    private volatile LocalDateTime loadedUntil;
 
-    /** This constructor is used to inject the dependencies ({@link TaskScheduler},
-     * {@link ReservationRepository}, {@link MessagingService}) into this class.*/
-    public ReservationSchedulingService(TaskScheduler taskScheduler, ReservationRepository reservationRepository, MessagingService messagingService) {
-        this.taskScheduler = taskScheduler;
+    /** This constructor is used to inject the dependencies ({@link HierarchicalTimingWheel}, {@link ReservationRepository}, {@link ReservationTaskRepository},
+     * {@link MessagingService}, {@link ReservationSchedulerProperties}, {@link ApplicationEventPublisher}, {@link TransactionTemplate},
+     * the worker threads of the due tasks, {@link MeterRegistry}) into this class.
+     * The max-concurrent-db-work setting caps how many due tasks can use the database at the same time,
+     * so a wave of due reservations can't drain the connection pool used by the requests. */
+    public ReservationSchedulingService(HierarchicalTimingWheel timingWheel, ReservationRepository reservationRepository, ReservationTaskRepository taskRepository,
+                                        MessagingService messagingService, ReservationSchedulerProperties properties, ApplicationEventPublisher eventPublisher,
+                                        TransactionTemplate transactionTemplate, @Qualifier("reservationTaskExecutor") Executor reservationTaskExecutor,
+                                        MeterRegistry meterRegistry) {
+        this.timingWheel = timingWheel;
         this.reservationRepository = reservationRepository;
+        this.taskRepository = taskRepository;
         this.messagingService = messagingService;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.taskExecutor = reservationTaskExecutor;
+        this.dbPermits = new Semaphore(properties.getMaxConcurrentDbWork());
+        this.reminderMetrics = TaskMetrics.register(meterRegistry, "reminder");
+        this.completionMetrics = TaskMetrics.register(meterRegistry, "completion");
+        Gauge.builder("reservation.scheduler.pending.tasks", scheduledTasks, Map::size)
+            .description("Reservations with a reminder or completion scheduled")
+            .register(meterRegistry);
     }
 
-    /** This variable stores all active scheduled tasks (sending reminder/completing reservation). */
-    private final Map<Long, ScheduledFuture<?>> scheduledTasks = new HashMap<>();
-
-    /** Initialize confirmed reservations from the database and schedule them on application startup. */
+    /** Initialize the confirmed reservations due within the load window from the database and schedule them on application startup.
+     * The reservations further ahead are loaded later on by {@link #refillReservations()}.
+     * In CLUSTERED mode there is no load window, the task of every confirmed reservation that has none yet is saved instead
+     * (the ones saved before are left as they are, they are shared with the other nodes). */
     @PostConstruct
     public void initializeReservations() {
-        List<Reservation> reservations = reservationRepository.findAllByStatus(ReservationStatus.CONFIRMED);
-        for (Reservation reservation : reservations) {
-            addReservationSchedules(reservation);
+        if (isClustered()) {
+            loadReservations(LOAD_START, LOAD_END);
+            return;
+        }
+        LocalDateTime until = LocalDateTime.now().plus(properties.getLoadWindow());
+        loadedUntil = until;
+        loadReservations(LOAD_START, until);
+    }
+
+    /** This method moves the load window forward and schedules the confirmed reservations that are now inside it.
+     * It starts two refill intervals before the previous end of the window, so a reservation created while the window
+     * was moving is not missed. The ones that are already scheduled are left as they are. */
+    @Scheduled(fixedDelayString = "${reservation.scheduler.refill-interval:PT15M}", initialDelayString = "${reservation.scheduler.refill-interval:PT15M}")
+    public void refillReservations() {
+        if (isClustered()) {
+            return;
         }
+        LocalDateTime from = loadedUntil.minus(properties.getRefillInterval().multipliedBy(2));
+        LocalDateTime until = LocalDateTime.now().plus(properties.getLoadWindow());
+        loadedUntil = until;
+        loadReservations(from, until);
+    }
+
+    /** This method pages through the confirmed reservations due between from(parameter) and until(parameter),
+     * so only one page of reservations is read from the database at a time. */
+    private void loadReservations(LocalDateTime from, LocalDateTime until) {
+        PageRequest page = PageRequest.ofSize(properties.getLoadPageSize());
+        LocalDateTime afterDate = from;
+        Long afterId = 0L;
+        List<Reservation> reservations;
+        do {
+            reservations = reservationRepository.findPageByStatusDueBefore(ReservationStatus.CONFIRMED, afterDate, afterId, until, page);
+            for (Reservation reservation : reservations) {
+                if (isClustered()) {
+                    nextTask(reservation).ifPresent(taskRepository::saveIfAbsent);
+                } else if (!scheduledTasks.containsKey(reservation.getId())) {
+                    scheduleReservation(reservation);
+                }
+            }
+            if (!reservations.isEmpty()) {
+                Reservation last = reservations.get(reservations.size() - 1);
+                afterDate = last.getReservationDate();
+                afterId = last.getId();
+            }
+        } while (reservations.size() == page.getPageSize());
+    }
+
+    /** This method claims the due tasks on every claim-interval and runs them on the worker threads, one batch at a time,
+     * until there are no more due tasks. It does nothing unless the CLUSTERED mode is on.
+     * A task that fails keeps its lease, it is run again (by any node) once the lease expires. */
+    @Scheduled(fixedDelayString = "${reservation.scheduler.claim-interval:PT1S}")
+    public void runDueTasks() {
+        if (!isClustered()) {
+            return;
+        }
+        List<ReservationTask> claimed;
+        do {
+            // The column keeps microseconds, so the lease is truncated to be matched exactly by lockClaimed
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            claimed = taskRepository.claimDue(properties.getNodeId(), now, now.plus(properties.getLeaseDuration()), properties.getClaimBatchSize());
+            CompletableFuture.allOf(claimed.stream()
+                    .map(task -> CompletableFuture.runAsync(() -> runClaimedTask(task), taskExecutor)
+                        .exceptionally(e -> {
+                            logger.warn("The {} of reservation {} failed, it is run again once its lease expires", task.type(), task.reservationId(), e);
+                            return null;
+                        }))
+                    .toArray(CompletableFuture[]::new))
+                .join();
+        } while (claimed.size() == properties.getClaimBatchSize());
+    }
+
+    /** This method runs the claimed task(parameter) in its own transaction, measured like the tasks of the timing wheel.
+     * The task is locked first and stops there if this node does not hold its lease anymore, so it runs once even if its lease expired
+     * and another node claimed it. It then
+     * (1) for a reminder, sends the reminder to the customer (saved in the notification outbox) and replaces the task with the completion
+     *     of the reservation, or deletes it in BULK completion mode,
+     * (2) for a completion, deletes the task, sets the reservation status to COMPLETED only if it is still CONFIRMED,
+     *     sends the completion to the customer and publishes the completion, see ReservationChangedEvent.
+     * A task whose reservation is not CONFIRMED anymore (e.g., deleted) is just deleted. */
+    private void runClaimedTask(ReservationTask task) {
+        boolean reminder = task.type() == ReservationTaskType.REMINDER;
+        Instant deadline = task.dueAt().atZone(ZoneId.systemDefault()).toInstant();
+        (reminder ? reminderMetrics : completionMetrics).run(() -> withDbPermit(() -> transactionTemplate.executeWithoutResult(status -> {
+            if (!taskRepository.lockClaimed(task, properties.getNodeId())) {
+                return;
+            }
+            Long reservationId = task.reservationId();
+            if (reminder) {
+                Optional<Reservation> reservation = reservationRepository.findById(reservationId)
+                    .filter(current -> current.getStatus() == ReservationStatus.CONFIRMED);
+                if (reservation.isEmpty() || isBulkCompletion()) {
+                    taskRepository.deleteAllById(List.of(reservationId));
+                } else {
+                    taskRepository.saveAll(List.of(ReservationTask.of(reservationId, ReservationTaskType.COMPLETION, reservation.get().getReservationDate())));
+                }
+                reservation.ifPresent(messagingService::sendReservationReminder);
+                return;
+            }
+
+            taskRepository.deleteAllById(List.of(reservationId));
+            // The reservation is read once it is completed, so it is not saved again over the completion with its old version
+            if (reservationRepository.updateStatusByIdAndStatus(reservationId, ReservationStatus.CONFIRMED,
+                ReservationStatus.COMPLETED, LocalDateTime.now()) == 0) {
+                return;
+            }
+            reservationRepository.findById(reservationId).ifPresent(completed -> {
+                messagingService.sendReservationCompletion(completed);
+                eventPublisher.publishEvent(ReservationChangedEvent.of(completed, ReservationChange.COMPLETED));
+            });
+        })), deadline);
+    }
+
+    /** This method returns the next task of the reservation(parameter) in CLUSTERED mode, chosen the same way as in {@link #addReservationSchedules(Reservation)}:
+     * the reminder if it is not past the 4-hour mark before the reservation yet, the completion otherwise (none in BULK completion mode). */
+    private Optional<ReservationTask> nextTask(Reservation reservation) {
+        if (LocalDateTime.now().isBefore(reservation.getReservationDate().minusHours(4))) {
+            return Optional.of(ReservationTask.of(reservation.getId(), ReservationTaskType.REMINDER, reservation.getReservationDate().minusHours(4)));
+        }
+        return isBulkCompletion()
+            ? Optional.empty()
+            : Optional.of(ReservationTask.of(reservation.getId(), ReservationTaskType.COMPLETION, reservation.getReservationDate()));
+    }
+
+    /** This method returns the number of reservations that currently have a task scheduled. */
+    public int getPendingTaskCount() {
+        return scheduledTasks.size();
     }
 
     /** This method schedules the tasks that will either
      * (1) send a reminder 4 hours prior the reservation or
      * (2) complete the reservation by setting its status to COMPLETED.
-     * Then adds it to the list of active scheduled tasks. */
-    private void scheduleReservationTask(Runnable task, Long reservationId, String cronExpression) {
-        ScheduledFuture<?> future = taskScheduler.schedule(task, new CronTrigger(cronExpression));
-        scheduledTasks.put(reservationId, future);
+     * Then adds it to the list of active scheduled tasks, replacing (and cancelling) the task that was there before.
+     * If replacing(parameter) is given, the task is only scheduled if that is still the registered task of the reservation,
+     * this is how a reminder that fires after its reservation was cancelled does not bring the completion back.
+     * The task is measured with the metrics(parameter) of its kind when it runs. */
+    private void scheduleReservationTask(TaskMetrics metrics, Function<ScheduledTask, Runnable> taskFactory, Long reservationId, LocalDateTime fireTime,
+                                         ScheduledTask replacing) {
+        Instant deadline = fireTime.atZone(ZoneId.systemDefault()).toInstant();
+        scheduledTasks.compute(reservationId, (id, current) -> {
+            if (replacing != null && current != replacing) {
+                return current;
+            }
+            if (current != null) {
+                current.cancel();
+            }
+            ScheduledTask scheduledTask = new ScheduledTask();
+            Runnable task = taskFactory.apply(scheduledTask);
+            scheduledTask.timeout = timingWheel.schedule(() -> metrics.run(task, deadline), deadline);
+            return scheduledTask;
+        });
     }
 
-    /** This method creates the runnable tasks and calls the method scheduleReservationTask to add a schedule. */
+    /** This method schedules the tasks of the reservation(parameter) once the transaction of the caller is committed, see {@link #scheduleReservation}.
+     * In CLUSTERED mode the next task is saved in the reservation_tasks table instead (in the transaction of the caller). */
     protected void addReservationSchedules(Reservation reservation) {
+        if (isClustered()) {
+            addReservationSchedules(List.of(reservation));
+            return;
+        }
+        afterCommit(() -> scheduleReservation(reservation));
+    }
+
+    /** This method creates the runnable tasks and calls the method scheduleReservationTask to add a schedule.
+     * Reservations after the load window are skipped, they are scheduled once the window reaches them. */
+    private void scheduleReservation(Reservation reservation) {
+        LocalDateTime horizon = loadedUntil;
+        if (horizon != null && !reservation.getReservationDate().isBefore(horizon)) {
+            return;
+        }
 
         // This is the task for the reservation completion.
         // When this task is run, it
-        // (1) sets the reservation status to COMPLETED and saves it to the database,
-        // (2) cancels the current schedule for the task so it won't run twice
-        // (3) sends a reminder to the customer about his/her reservation right now
-        Runnable completeTask = () -> {
-            reservation.setStatus(ReservationStatus.COMPLETED);
-            reservationRepository.save(reservation);
+        // (1) removes itself from the active schedules, if it is not there anymore the reservation was canceled or updated so it stops here
+        // (2) sets the reservation status to COMPLETED in the database, only if it is still CONFIRMED there
+        //     (the reservation held by the task may be stale, e.g., canceled in the meantime) and stops here otherwise,
+        // (3) sends a reminder to the customer about his/her reservation right now (saved in the notification outbox, so it uses the database too)
+        //     and publishes the completion, see ReservationChangedEvent.
+        // Steps (2) and (3) run in one transaction, so the reservation is never completed without its notification.
+        Function<ScheduledTask, Runnable> completeTask = self -> () -> {
+            if (!scheduledTasks.remove(reservation.getId(), self)) {
+                return;
+            }
 
-            cancelReservationSchedule(reservation.getId());
+            withDbPermit(() -> transactionTemplate.executeWithoutResult(status -> {
+                if (reservationRepository.updateStatusByIdAndStatus(reservation.getId(), ReservationStatus.CONFIRMED,
+                    ReservationStatus.COMPLETED, LocalDateTime.now()) == 0) {
+                    return;
+                }
+                reservation.setStatus(ReservationStatus.COMPLETED);
 
-            messagingService.sendReservationCompletion(reservation);
+                messagingService.sendReservationCompletion(reservation);
+                eventPublisher.publishEvent(ReservationChangedEvent.of(reservation, ReservationChange.COMPLETED));
+            }));
         };
 
         // This is the task for the reservation reminder
         // When this task is run, it
-        // (1) sends a reminder to the customer that s/he has a reservation 4 hours from now
-        // (2) cancels the current schedule for the task so it won't run twice
-        // (3) schedule the task for completing the reservation
-        Runnable reminderTask = () -> {
-            messagingService.sendReservationReminder(reservation);
+        // (1) checks it is still the active schedule, if not the reservation was canceled or updated so it stops here
+        // (2) sends a reminder to the customer that s/he has a reservation 4 hours from now
+        // (3) replaces itself with the task for completing the reservation,
+        //     or just removes itself in BULK completion mode since the reservation is completed by the ReservationCompletionSweeper
+        Function<ScheduledTask, Runnable> reminderTask = self -> () -> {
+            if (scheduledTasks.get(reservation.getId()) != self) {
+                return;
+            }
 
-            cancelReservationSchedule(reservation.getId());
+            withDbPermit(() -> messagingService.sendReservationReminder(reservation));
 
-            scheduleReservationTask(completeTask, reservation.getId(), getCronExpression(reservation.getReservationDate()));
+            if (isBulkCompletion()) {
+                scheduledTasks.remove(reservation.getId(), self);
+            } else {
+                scheduleReservationTask(completionMetrics, completeTask, reservation.getId(), reservation.getReservationDate(), self);
+            }
         };
 
         // If the current time is before the 4-hour mark before the reservation,
         // then the reminderTask will be added to the schedules.
-        // But if it's already past that then the completeTask will be scheduled instead.
+        // But if it's already past that then the completeTask will be scheduled instead (unless it's left to the sweeper in BULK completion mode).
         if(LocalDateTime.now().isBefore(reservation.getReservationDate().minusHours(4))) {
-            scheduleReservationTask(reminderTask, reservation.getId(), getCronExpression(reservation.getReservationDate().minusHours(4)));
-        } else {
-            scheduleReservationTask(completeTask, reservation.getId(), getCronExpression(reservation.getReservationDate()));
+            scheduleReservationTask(reminderMetrics, reminderTask, reservation.getId(), reservation.getReservationDate().minusHours(4), null);
+        } else if (!isBulkCompletion()) {
+            scheduleReservationTask(completionMetrics, completeTask, reservation.getId(), reservation.getReservationDate(), null);
         }
 
     }
 
+    /** This method schedules the tasks of every reservation(parameter) in one pass, see {@link #addReservationSchedules(Reservation)}. */
+    protected void addReservationSchedules(Collection<Reservation> reservations) {
+        if (isClustered()) {
+            taskRepository.saveAll(reservations.stream().map(this::nextTask).flatMap(Optional::stream).toList());
+            return;
+        }
+        for (Reservation reservation : reservations) {
+            addReservationSchedules(reservation);
+        }
+    }
+
     /** This method cancels the current schedule of the reservation and creates a new one for the new reservation. */
 	protected void updateReservationReminder(Reservation reservation) {
         cancelReservationSchedule(reservation.getId());
 		addReservationSchedules(reservation);
 	}
 
-    /** This method cancels the current schedule of the reservation. */
+    /** This method replaces the schedules of every reservation(parameter) in one pass, see {@link #updateReservationReminder(Reservation)}. */
+    protected void updateReservationReminders(Collection<Reservation> reservations) {
+        if (isClustered()) {
+            cancelReservationSchedules(reservations.stream().map(Reservation::getId).toList());
+            addReservationSchedules(reservations);
+            return;
+        }
+        for (Reservation reservation : reservations) {
+            updateReservationReminder(reservation);
+        }
+    }
+
+    /** This method cancels the current schedule of every reservation with the reservationIds(parameter) in one pass. */
+    protected void cancelReservationSchedules(Collection<Long> reservationIds) {
+        if (isClustered()) {
+            taskRepository.deleteAllById(reservationIds);
+            return;
+        }
+        for (Long reservationId : reservationIds) {
+            cancelReservationSchedule(reservationId);
+        }
+    }
+
+    /** This method cancels the current schedule of the reservation once the transaction of the caller is committed.
+     * In CLUSTERED mode its task is deleted from the reservation_tasks table instead (in the transaction of the caller). */
 	protected void cancelReservationSchedule(Long reservationId) {
-		ScheduledFuture<?> future = scheduledTasks.get(reservationId);
-		if (future != null) {
-			future.cancel(false);
-			scheduledTasks.remove(reservationId);
-		}
+        if (isClustered()) {
+            taskRepository.deleteAllById(List.of(reservationId));
+            return;
+        }
+        afterCommit(() -> {
+            ScheduledTask scheduledTask = scheduledTasks.remove(reservationId);
+            if (scheduledTask != null) {
+                scheduledTask.cancel();
+            }
+        });
 	}
 
-    /** This method help create the cron expression to be used in scheduling the reservation tasks created.
-     * It converts the given LocalDateTime to String with the cron pattern. */
-    private String getCronExpression(LocalDateTime reservation) {
+    /** This method runs the change(parameter) to the schedules in memory after the commit of the current transaction, and never after a rollback.
+     * Without a transaction, the change is already final, so it is run right away. */
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private boolean isClustered() {
+        return properties.getMode() == ReservationSchedulerProperties.Mode.CLUSTERED;
+    }
+
+    private boolean isBulkCompletion() {
+        return properties.getCompletionMode() == ReservationSchedulerProperties.CompletionMode.BULK;
+    }
+
+    /** This method runs the database work of a due task once a permit is available. */
+    private void withDbPermit(Runnable work) {
+        dbPermits.acquireUninterruptibly();
+        try {
+            work.run();
+        } finally {
+            dbPermits.release();
+        }
+    }
 
-        int minute = reservation.getMinute();
-        int hour = reservation.getHour();
-        int dayOfMonth = reservation.getDayOfMonth();
-        int month = reservation.getMonthValue();
-        int dayOfWeek = reservation.getDayOfWeek().getValue(); // 1=Monday, ..., 7=Sunday
+    /** This record holds the timers of one kind of task (reminder or completion), registered once so running a task does not look them up. */
+    private record TaskMetrics(Timer fireLag, Timer duration) {
 
-        return String.format("0 %d %d %d %d %d", minute, hour, dayOfMonth, month, dayOfWeek);
+        private static TaskMetrics register(MeterRegistry meterRegistry, String task) {
+            return new TaskMetrics(
+                Timer.builder("reservation.scheduler.fire.lag")
+                    .description("Time between the intended fire time of a task and the moment it started running")
+                    .tag("task", task)
+                    .register(meterRegistry),
+                Timer.builder("reservation.scheduler.task.duration")
+                    .description("Time a due task ran, waiting for a database permit included")
+                    .tag("task", task)
+                    .register(meterRegistry));
+        }
+
+        /** This method runs the task(parameter), recording how late it started compared to the deadline(parameter) and how long it ran.
+         * A task that was scheduled after its deadline (e.g., an overdue reservation loaded on startup) is counted as late as well. */
+        private void run(Runnable task, Instant deadline) {
+            fireLag.record(Math.max(0, System.currentTimeMillis() - deadline.toEpochMilli()), TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /** This class is the entry of a reservation in the active schedules.
+     * The due task keeps a reference to its own entry so it can tell whether it was replaced or canceled in the meantime. */
+    private static final class ScheduledTask {
+
+        private volatile WheelTimeout timeout;
+
+        private void cancel() {
+            WheelTimeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
     }
 
-}
\ No newline at end of file
+}
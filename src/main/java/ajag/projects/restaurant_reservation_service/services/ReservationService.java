@@ -1,38 +1,113 @@
 package ajag.projects.restaurant_reservation_service.services;
 
+import ajag.projects.restaurant_reservation_service.dtos.BatchItemResult;
+import ajag.projects.restaurant_reservation_service.dtos.BatchResult;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationCursor;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationPage;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationReschedule;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
 import ajag.projects.restaurant_reservation_service.entities.Customer;
 import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationChange;
 import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.events.ReservationChangedEvent;
+import ajag.projects.restaurant_reservation_service.exceptions.CapacityExceededException;
+import ajag.projects.restaurant_reservation_service.exceptions.InvalidStatusException;
+import ajag.projects.restaurant_reservation_service.exceptions.InvalidValueException;
 import ajag.projects.restaurant_reservation_service.exceptions.NotFoundException;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationArchiveRepository;
 import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
 
+import io.micrometer.core.annotation.Timed;
+
+import jakarta.persistence.EntityManager;
+
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /** This service class is responsible for handling reservation-related operations.
- * It uses {@link ReservationRepository} to perform CRUD operations on the {@link Reservation} entity. */
+ * It uses {@link ReservationRepository} to perform CRUD operations on the {@link Reservation} entity.
+ * Every public method is timed (reservation.service, tagged with the method and the exception thrown, if any). */
 @Service
+@Timed("reservation.service")
 public class ReservationService {
 
+    /** The order of the statuses in the reservation history of a customer (same as sorting the status in descending order). */
+    private static final List<ReservationStatus> HISTORY_STATUS_ORDER =
+        List.of(ReservationStatus.CONFIRMED, ReservationStatus.COMPLETED, ReservationStatus.CANCELLED);
+
+    /** The order of the reservation history of a customer, by the status, then by the reservation date, then by the ID. */
+    private static final Comparator<ReservationSummary> HISTORY_ORDER =
+        Comparator.comparing((ReservationSummary reservation) -> HISTORY_STATUS_ORDER.indexOf(reservation.status()))
+            .thenComparing(ReservationSummary::reservationDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ReservationSummary::id);
+
     private final ReservationRepository reservationRepository;
+    private final ReservationArchiveRepository archiveRepository;
     private final CustomerService customerService;
     private final ReservationSchedulingService schedulerService;
     private final MessagingService messagingService;
+    private final SeatCapacityService seatCapacityService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int defaultHistoryPageSize;
+    private final int maxHistoryPageSize;
+    private final int maxBatchSize;
+    private final int maxLockAttempts;
 
-    /** This constructor is used to inject the dependencies ({@link ReservationRepository},
-     * {@link CustomerService}, {@link ReservationSchedulingService}, {@link MessagingService}) into this class.*/
-    public ReservationService(ReservationRepository reservationRepository, CustomerService customerService, ReservationSchedulingService schedulerService, MessagingService messagingService) {
+    /** This constructor is used to inject the dependencies ({@link ReservationRepository}, {@link ReservationArchiveRepository}, {@link CustomerService},
+     * {@link ReservationSchedulingService}, {@link MessagingService}, {@link SeatCapacityService}, {@link EntityManager}, {@link TransactionTemplate},
+     * {@link ApplicationEventPublisher}) into this class. A {@link ReservationChangedEvent} is published for every reservation created, changed or deleted.
+     * The pages of the reservation history have defaultHistoryPageSize(parameter) reservations unless asked otherwise,
+     * and never more than maxHistoryPageSize(parameter). The batch requests have at most maxBatchSize(parameter) items.
+     * A cancellation that conflicts with another change is tried at most maxLockAttempts(parameter) times. */
+    public ReservationService(ReservationRepository reservationRepository, ReservationArchiveRepository archiveRepository, CustomerService customerService, ReservationSchedulingService schedulerService, MessagingService messagingService,
+                              SeatCapacityService seatCapacityService, EntityManager entityManager, TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${reservation.history.default-page-size:50}") int defaultHistoryPageSize,
+                              @Value("${reservation.history.max-page-size:200}") int maxHistoryPageSize,
+                              @Value("${reservation.batch.max-size:5000}") int maxBatchSize,
+                              @Value("${reservation.optimistic-lock.max-attempts:3}") int maxLockAttempts) {
         this.reservationRepository = reservationRepository;
+        this.archiveRepository = archiveRepository;
         this.customerService = customerService;
         this.schedulerService = schedulerService;
         this.messagingService = messagingService;
+        this.seatCapacityService = seatCapacityService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.eventPublisher = eventPublisher;
+        this.defaultHistoryPageSize = defaultHistoryPageSize;
+        this.maxHistoryPageSize = maxHistoryPageSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLockAttempts = maxLockAttempts;
     }
 
     /** This method is used to add a new reservation in the system
-     * It first checks if a customer ID (reservation.customer.id) is provided in the reservation(parameter).
+     * It first takes the seats of the reservation, a {@link CapacityExceededException} is thrown if there are not enough seats left.
+     * Then it checks if a customer ID (reservation.customer.id) is provided in the reservation(parameter).
      * (1) If the customer ID is provided, the method will try to find the existing customer using that ID.
      *      If found, the method will link the reservation to that customer.
      *      If NOT found, a {@link NotFoundException} is thrown.
@@ -41,10 +116,13 @@ public class ReservationService {
      * After determining the correct customer, the reservation is saved in the database.
      * Then new task schedules related to the saved reservation will be created as well.
      * Lastly, the customer will be notified of the confirmed reservations using the sendNotification method.
+     * The notification is saved in the outbox within the same transaction and is delivered in the background.
      *
      * @param reservation - request entity containing the details of the reservation and the linked customer. */
     @Transactional
     public Reservation createReservation(Reservation reservation) {
+        seatCapacityService.reserve(reservation);
+
         Long customerId = reservation.getCustomer().getId();
 
         if(customerId == null){
@@ -60,74 +138,453 @@ public class ReservationService {
 
         schedulerService.addReservationSchedules(savedReservation);
         messagingService.sendNotification(savedReservation);
+        publishChange(savedReservation, ReservationChange.CREATED);
 
         return savedReservation;
     }
 
+    /** This method is used to add many new reservations in the system at once (e.g., group bookings).
+     * Each reservation is checked the same way as in {@link #createReservation}, the ones that fail are reported and left out:
+     * (1) If no customer is provided, or the reservation date or guest count is missing, the item fails with 400.
+     * (2) If the customer ID is provided but the customer is NOT found, the item fails with 404.
+     * (3) If there are not enough seats left at the reservation date, the item fails with 409.
+     * The customers referenced by ID are read with a single query, the new customers are saved together
+     * (reservations with the same new customer email share one new customer), and then all the valid reservations are saved together,
+     * which the database receives as JDBC batches. Their schedules are added in one pass and their notifications are saved together,
+     * all in the same transaction.
+     *
+     * @param reservations - request entities containing the details of the reservations and the linked customers. */
+    @Transactional
+    public BatchResult createReservations(List<Reservation> reservations) {
+        checkBatchSize(reservations.size());
+        BatchItemResult[] results = new BatchItemResult[reservations.size()];
+
+        Set<Long> customerIds = new HashSet<>();
+        for (Reservation reservation : reservations) {
+            if (reservation.getCustomer() != null && reservation.getCustomer().getId() != null) {
+                customerIds.add(reservation.getCustomer().getId());
+            }
+        }
+        Map<Long, Customer> existingCustomers = customerIds.isEmpty() ? Map.of() : customerService.findAllById(customerIds);
+
+        Map<String, Customer> newCustomersByEmail = new HashMap<>();
+        List<Customer> newCustomers = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        List<Reservation> accepted = new ArrayList<>();
+        for (int i = 0; i < reservations.size(); i++) {
+            Reservation reservation = reservations.get(i);
+            Customer customer = reservation.getCustomer();
+            if (customer == null || reservation.getReservationDate() == null || reservation.getGuestCount() == null) {
+                results[i] = new BatchItemResult(i, null, 400, "customer, reservationDate and guestCount are required!");
+                continue;
+            }
+
+            Customer existingCustomer = null;
+            if (customer.getId() != null) {
+                existingCustomer = existingCustomers.get(customer.getId());
+                if (existingCustomer == null) {
+                    results[i] = new BatchItemResult(i, null, 404, "Customer not found! ID: " + customer.getId());
+                    continue;
+                }
+            }
+
+            try {
+                seatCapacityService.reserve(reservation);
+            } catch (CapacityExceededException e) {
+                results[i] = new BatchItemResult(i, null, 409, e.getMessage());
+                continue;
+            } catch (InvalidValueException e) {
+                results[i] = new BatchItemResult(i, null, 400, e.getMessage());
+                continue;
+            }
+
+            if (existingCustomer != null) {
+                reservation.setCustomer(existingCustomer);
+            } else if (customer.getEmail() != null) {
+                reservation.setCustomer(newCustomersByEmail.computeIfAbsent(customer.getEmail(), email -> {
+                    newCustomers.add(customer);
+                    return customer;
+                }));
+            } else {
+                newCustomers.add(customer);
+            }
+            acceptedIndexes.add(i);
+            accepted.add(reservation);
+        }
+
+        customerService.addCustomers(newCustomers);
+        List<Reservation> savedReservations = reservationRepository.saveAll(accepted);
+
+        schedulerService.addReservationSchedules(savedReservations);
+        messagingService.sendNotifications(savedReservations);
+        publishChanges(savedReservations, ReservationChange.CREATED);
+
+        for (int i = 0; i < savedReservations.size(); i++) {
+            int index = acceptedIndexes.get(i);
+            results[index] = new BatchItemResult(index, savedReservations.get(i).getId(), 201, null);
+        }
+        return BatchResult.of(Arrays.asList(results));
+    }
+
     /** This method is used to cancel a reservation.
      * It searches for the reservation using the id(parameter).
      * (1) If NOT found, the method throws a {@link NotFoundException}.
-     * (2) If found, the method sets that existing reservation's status to 'CANCELLED'
+     * (2) If the expectedVersion(parameter) is provided but the reservation was changed since, an {@link ObjectOptimisticLockingFailureException} is thrown.
+     * (3) If found, the method sets that existing reservation's status to 'CANCELLED'
      *     then saves the updated version in the database.
-     * Then the task schedules related to the canceled reservation will be canceled as well.
+     * Then the task schedules related to the canceled reservation will be canceled as well, and its seats are given back (if it was confirmed),
+     * both once the cancellation is committed, so an attempt that fails at commit leaves them as they were.
      * Lastly, the customer will be notified of the cancellation using the sendNotification method.
+     * A cancellation means the same whatever the reservation was changed to, so if the reservation is changed by someone else
+     * at the same time (and no expectedVersion is provided), the cancellation is tried again on the latest version, up to max-attempts times.
      *
-     * @param id - ID of the reservation. */
-    public Reservation cancelReservation(Long id) {
+     * @param id - ID of the reservation.
+     * @param expectedVersion - version of the reservation the cancellation was decided on, or null to cancel the latest version */
+    public Reservation cancelReservation(Long id, Long expectedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> cancel(id, expectedVersion));
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (expectedVersion != null || attempt >= maxLockAttempts) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Reservation cancel(Long id, Long expectedVersion) {
         Reservation reservation = reservationRepository.findById(id)
             .orElseThrow(() -> new NotFoundException("Reservation not found! ID: " + id));
+        checkVersion(reservation, expectedVersion);
 
+        if (reservation.getStatus() == ReservationStatus.CONFIRMED) {
+            seatCapacityService.release(reservation);
+        }
         reservation.setStatus(ReservationStatus.CANCELLED);
         Reservation canceledReservation = reservationRepository.save(reservation);
 
         schedulerService.cancelReservationSchedule(canceledReservation.getId());
         messagingService.sendNotification(canceledReservation);
+        publishChange(canceledReservation, ReservationChange.CANCELLED);
 
         return canceledReservation;
     }
 
-    /** This method is used to get all the reservation entities using the customerId(parameter).
+    /** This method is used to cancel many reservations at once (e.g., closing the restaurant for the night).
+     * The confirmed reservations with the ids(parameter) are locked, then set to 'CANCELLED' with a single update statement.
+     * The ids that do NOT exist are reported as 404, and the reservations that are no longer confirmed (e.g., already cancelled or completed)
+     * as 409, they are left as they are and their customers are NOT notified again.
+     * Then the schedules of the canceled reservations are canceled in one pass and their notifications are saved together,
+     * all in the same transaction. Their seats are given back once the cancellation is committed.
+     *
+     * @param ids - IDs of the reservations. */
+    @Transactional
+    public BatchResult cancelReservations(List<Long> ids) {
+        checkBatchSize(ids.size());
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+
+        Map<Long, Reservation> found = Map.of();
+        Set<Long> canceledIds = Set.of();
+        List<Reservation> canceledReservations = new ArrayList<>();
+        if (!uniqueIds.isEmpty()) {
+            // Locked first, so the confirmed ones can't be changed by anyone else before they are canceled
+            canceledIds = new HashSet<>(reservationRepository.lockIdsByIdInAndStatus(uniqueIds, ReservationStatus.CONFIRMED.name()));
+            found = byId(reservationRepository.findAllWithCustomerByIdIn(uniqueIds));
+            if (!canceledIds.isEmpty()) {
+                reservationRepository.updateStatusByIdInAndStatus(canceledIds, ReservationStatus.CONFIRMED, ReservationStatus.CANCELLED, LocalDateTime.now());
+            }
+            for (Reservation reservation : found.values()) {
+                if (canceledIds.contains(reservation.getId())) {
+                    seatCapacityService.release(reservation);
+                    reservation.setStatus(ReservationStatus.CANCELLED); // Detached by the update, so only the notification sees it
+                    canceledReservations.add(reservation);
+                }
+            }
+        }
+
+        schedulerService.cancelReservationSchedules(canceledIds);
+        messagingService.sendNotifications(canceledReservations);
+        publishChanges(canceledReservations, ReservationChange.CANCELLED);
+
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (!found.containsKey(id)) {
+                results.add(new BatchItemResult(i, id, 404, "Reservation not found! ID: " + id));
+            } else if (!canceledIds.contains(id)) {
+                results.add(new BatchItemResult(i, id, 409, "Only confirmed reservations can be canceled! ID: " + id));
+            } else {
+                results.add(new BatchItemResult(i, id, 200, null));
+            }
+        }
+        return BatchResult.of(results);
+    }
+
+    /** This method is used to get the summary of all the reservations using the customerId(parameter), the archived ones included.
+     * The reservations and the customer are read with a single query per table, however many reservations the customer has,
+     * and the archived reservations are merged into the live ones in the order of the history.
+     * It is read-only, so it is read from the read replica if there is one.
      *
      * @param customerId - ID of the customer that is linked to the reservation. */
-    public List<Reservation> getCustomerReservations(Long customerId) {
-        return reservationRepository.findAllByCustomer_IdOrderByStatusDescReservationDateAsc(customerId);
+    @Transactional(readOnly = true)
+    public List<ReservationSummary> getCustomerReservations(Long customerId) {
+        List<ReservationSummary> reservations = reservationRepository.findSummariesByCustomerId(customerId);
+        List<ReservationSummary> archived = archiveRepository.findSummariesByCustomerId(customerId);
+        return archived.isEmpty() ? reservations : mergeInHistoryOrder(reservations, archived, Integer.MAX_VALUE);
+    }
+
+    /** This method is used to get the summary of one page of the reservations using the customerId(parameter),
+     * in the same order as {@link #getCustomerReservations}.
+     * (1) If the cursor(parameter) is NOT provided, the page starts with the first reservation of the customer.
+     * (2) If the cursor(parameter) is provided, the page starts right after the reservation it points to.
+     * The page has at most limit(parameter) reservations (or the default page size), capped to the maximum page size.
+     * Each status is read with its own keyset query, so every page costs the same no matter how far into the history it is.
+     * The finished statuses are also read from the archive with the same keyset query, and the two are merged.
+     * The queries share one read-only transaction, so they are read from the read replica if there is one.
+     *
+     * @param customerId - ID of the customer that is linked to the reservation.
+     * @param cursor - nextCursor of the previous page, or null for the first page.
+     * @param limit - maximum number of reservations in the page, or null for the default page size. */
+    @Transactional(readOnly = true)
+    public ReservationPage getCustomerReservationPage(Long customerId, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultHistoryPageSize : limit;
+        if (pageSize <= 0) { throw new InvalidValueException("limit should be greater than 0!"); }
+        pageSize = Math.min(pageSize, maxHistoryPageSize);
+
+        ReservationCursor after = cursor == null ? null : ReservationCursor.decode(cursor);
+        int firstStatus = after == null ? 0 : HISTORY_STATUS_ORDER.indexOf(after.status());
+
+        List<ReservationSummary> reservations = new ArrayList<>(pageSize);
+        for (int i = firstStatus; i < HISTORY_STATUS_ORDER.size() && reservations.size() < pageSize; i++) {
+            ReservationStatus status = HISTORY_STATUS_ORDER.get(i);
+            PageRequest page = PageRequest.ofSize(pageSize - reservations.size());
+            boolean continued = after != null && i == firstStatus;
+            List<ReservationSummary> statusPage = continued
+                ? reservationRepository.findSummaryPageByCustomerAndStatusAfter(customerId, status, after.reservationDate(), after.id(), page)
+                : reservationRepository.findSummaryPageByCustomerAndStatus(customerId, status, page);
+            if (ReservationArchiveRepository.ARCHIVED_STATUSES.contains(status)) {
+                List<ReservationSummary> archived = continued
+                    ? archiveRepository.findSummaryPageByCustomerAndStatusAfter(customerId, status, after.reservationDate(), after.id(), page.getPageSize())
+                    : archiveRepository.findSummaryPageByCustomerAndStatus(customerId, status, page.getPageSize());
+                if (!archived.isEmpty()) {
+                    statusPage = mergeInHistoryOrder(statusPage, archived, page.getPageSize());
+                }
+            }
+            reservations.addAll(statusPage);
+        }
+
+        String nextCursor = reservations.size() < pageSize ? null : ReservationCursor.of(reservations.get(reservations.size() - 1)).encode();
+        return new ReservationPage(reservations, nextCursor);
+    }
+
+    /** This method hands the summary of every reservation of the customerId(parameter) to the consumer(parameter), one at a time,
+     * in the same order as {@link #getCustomerReservations}, the archived ones included.
+     * The reservations are read in pages of maxHistoryPageSize with {@link #getCustomerReservationPage}, each in its own short read-only transaction,
+     * and a page is only handed to the consumer once its transaction has ended. So no database connection is held while the consumer waits,
+     * e.g., on a slow client, and the memory used stays the same no matter how long the history of the customer is.
+     * As with the pages, a reservation changed while it is streamed may be handed over at its old or its new place in the order.
+     *
+     * @param customerId - ID of the customer that is linked to the reservation.
+     * @param consumer - receives the reservations, e.g., to write them to the response. */
+    public void streamCustomerReservations(Long customerId, Consumer<ReservationSummary> consumer) {
+        String cursor = null;
+        do {
+            String after = cursor;
+            ReservationPage page = readOnlyTransactionTemplate.execute(status -> getCustomerReservationPage(customerId, after, maxHistoryPageSize));
+            page.reservations().forEach(consumer);
+            cursor = page.nextCursor();
+        } while (cursor != null);
     }
 
     /** This method is used to update the details of a reservation.
      * It searches for the reservation using the id(parameter).
      * (1) If NOT found, the method throws a {@link NotFoundException}.
-     * (2) If found, the method updates the value of the reservationDate and guestCount of that existing reservation
+     * (2) If the expectedVersion(parameter) is provided but the reservation was changed since, an {@link ObjectOptimisticLockingFailureException} is thrown.
+     * (3) If the reservation is NOT confirmed (e.g., cancelled or completed), an {@link InvalidStatusException} is thrown, so its reminder is never set again.
+     * (4) If found, the method updates the value of the reservationDate and guestCount of that existing reservation
      *     then saves the updated version in the database.
-     * Then the task schedules related to the updated reservation will be updated as well.
+     *     If the reservation is changed by someone else before this change is committed, an {@link ObjectOptimisticLockingFailureException} is thrown
+     *     instead of overwriting that change.
+     * The seats the reservation needs after the change are taken first, a {@link CapacityExceededException}
+     * is thrown if there are not enough seats left. The seats it no longer needs are given back once the change is committed.
+     * Then the task schedules related to the updated reservation will be updated as well, once the change is committed.
      * Lastly, the customer will be notified that these changes are confirmed using the sendNotification method.
      *
      * @param id - ID of the reservation.
      * @param reservationDate - date and time of the reservation
-     * @param guestCount - number of guests for the reservation*/
-    public Reservation updateReservation(Long id, LocalDateTime reservationDate, Integer guestCount) {
+     * @param guestCount - number of guests for the reservation
+     * @param expectedVersion - version of the reservation the change was decided on, or null to change the latest version */
+    @Transactional
+    public Reservation updateReservation(Long id, LocalDateTime reservationDate, Integer guestCount, Long expectedVersion) {
         Reservation reservation = reservationRepository.findById(id)
             .orElseThrow(() -> new NotFoundException("Reservation not found! ID: " + id));
+        checkVersion(reservation, expectedVersion);
+        if (reservation.getStatus() != ReservationStatus.CONFIRMED) {
+            throw new InvalidStatusException("Only confirmed reservations can be rescheduled! ID: " + id);
+        }
 
+        LocalDateTime previousDate = reservation.getReservationDate();
+        Integer previousGuestCount = reservation.getGuestCount();
         reservation.setReservationDate(reservationDate);
         reservation.setGuestCount(guestCount);
+        seatCapacityService.change(previousDate, previousGuestCount, reservation);
 
         Reservation updatedReservation = reservationRepository.save(reservation);
 
         schedulerService.updateReservationReminder(updatedReservation);
         messagingService.sendNotification(updatedReservation);
+        publishChange(updatedReservation, ReservationChange.UPDATED);
 
         return updatedReservation;
     }
 
+    /** This method is used to update the details of many reservations at once.
+     * The reservations are read with a single query and each one is changed the same way as in {@link #updateReservation}:
+     * (1) If the reservation is NOT found, the item fails with 404.
+     * (2) If the reservation is NOT confirmed (e.g., cancelled or completed), the item fails with 409, so its reminder is never set again.
+     * (3) If the new reservationDate or guestCount is NOT valid, or the same reservation is in the batch twice, the item fails with 400.
+     * (4) If there are not enough seats left at the new reservationDate, the item fails with 409.
+     * The changed reservations are saved together, which the database receives as JDBC batches of updates.
+     * Then their schedules are replaced in one pass and their notifications are saved together, all in the same transaction.
+     *
+     * @param changes - ID, new reservationDate and new guestCount of every reservation. */
+    @Transactional
+    public BatchResult rescheduleReservations(List<ReservationReschedule> changes) {
+        checkBatchSize(changes.size());
+        Set<Long> ids = new HashSet<>();
+        for (ReservationReschedule change : changes) {
+            if (change.id() != null) {
+                ids.add(change.id());
+            }
+        }
+        Map<Long, Reservation> reservations = ids.isEmpty() ? Map.of() : byId(reservationRepository.findAllWithCustomerByIdIn(ids));
+
+        Set<Long> seenIds = new HashSet<>();
+        List<Reservation> updatedReservations = new ArrayList<>();
+        List<BatchItemResult> results = new ArrayList<>(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            ReservationReschedule change = changes.get(i);
+            Reservation reservation = reservations.get(change.id());
+            if (reservation == null) {
+                results.add(new BatchItemResult(i, change.id(), 404, "Reservation not found! ID: " + change.id()));
+                continue;
+            }
+            if (!seenIds.add(change.id())) {
+                results.add(new BatchItemResult(i, change.id(), 400, "Reservation is in the batch more than once! ID: " + change.id()));
+                continue;
+            }
+            if (reservation.getStatus() != ReservationStatus.CONFIRMED) {
+                results.add(new BatchItemResult(i, change.id(), 409, "Only confirmed reservations can be rescheduled! ID: " + change.id()));
+                continue;
+            }
+            if (change.reservationDate() == null || change.guestCount() == null) {
+                results.add(new BatchItemResult(i, change.id(), 400, "reservationDate and guestCount are required!"));
+                continue;
+            }
+
+            LocalDateTime previousDate = reservation.getReservationDate();
+            Integer previousGuestCount = reservation.getGuestCount();
+            try {
+                reservation.setReservationDate(change.reservationDate());
+                reservation.setGuestCount(change.guestCount());
+                seatCapacityService.change(previousDate, previousGuestCount, reservation);
+            } catch (InvalidValueException e) {
+                entityManager.refresh(reservation); // Undoes the change if only the date was valid
+                results.add(new BatchItemResult(i, change.id(), 400, e.getMessage()));
+                continue;
+            } catch (CapacityExceededException e) {
+                entityManager.refresh(reservation);
+                results.add(new BatchItemResult(i, change.id(), 409, e.getMessage()));
+                continue;
+            }
+            updatedReservations.add(reservation);
+            results.add(new BatchItemResult(i, change.id(), 200, null));
+        }
+
+        reservationRepository.saveAll(updatedReservations);
+
+        schedulerService.updateReservationReminders(updatedReservations);
+        messagingService.sendNotifications(updatedReservations);
+        publishChanges(updatedReservations, ReservationChange.UPDATED);
+
+        return BatchResult.of(results);
+    }
+
     /** This method is used to delete a reservation.
      * It searches for the reservation using the id(parameter).
      * (1) If NOT found, the method throws a {@link NotFoundException}.
-     * (2) If found, the method deletes that existing reservation.
+     * (2) If found, the method deletes that existing reservation, and gives back its seats if it was confirmed.
+     * The task schedules of the deleted reservation are canceled as well, once the deletion is committed.
+     * The reservation is read and deleted in the same transaction, so it is read from the primary database and not from a read replica.
      *
      * @param id - ID of the reservation. */
+    @Transactional
     public void deleteReservationById(Long id) {
         Reservation reservation = reservationRepository.findById(id)
             .orElseThrow(() -> new NotFoundException("Reservation not found! ID: " + id));
         reservationRepository.delete(reservation);
+        if (reservation.getStatus() == ReservationStatus.CONFIRMED) {
+            seatCapacityService.release(reservation);
+        }
+        schedulerService.cancelReservationSchedule(id);
+        publishChange(reservation, ReservationChange.DELETED);
+    }
+
+    /** This method publishes the change(parameter) of the reservation(parameter), see {@link ReservationChangedEvent}. */
+    private void publishChange(Reservation reservation, ReservationChange change) {
+        eventPublisher.publishEvent(ReservationChangedEvent.of(reservation, change));
+    }
+
+    private void publishChanges(List<Reservation> reservations, ReservationChange change) {
+        for (Reservation reservation : reservations) {
+            publishChange(reservation, change);
+        }
+    }
+
+    /** This method merges the reservations(parameter) and the archived(parameter) reservations, each already in the order of the history,
+     * and returns the first limit(parameter) of them. */
+    private static List<ReservationSummary> mergeInHistoryOrder(List<ReservationSummary> reservations, List<ReservationSummary> archived, int limit) {
+        List<ReservationSummary> merged = new ArrayList<>(reservations.size() + archived.size());
+        mergeInHistoryOrder(reservations.iterator(), archived.iterator(), merged::add);
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    /** This method hands the reservations of both iterators, each already in the order of the history, to the consumer(parameter)
+     * in the order of the history, reading only one reservation ahead in each. */
+    private static void mergeInHistoryOrder(Iterator<ReservationSummary> first, Iterator<ReservationSummary> second, Consumer<ReservationSummary> consumer) {
+        ReservationSummary nextFirst = first.hasNext() ? first.next() : null;
+        ReservationSummary nextSecond = second.hasNext() ? second.next() : null;
+        while (nextFirst != null || nextSecond != null) {
+            if (nextSecond == null || (nextFirst != null && HISTORY_ORDER.compare(nextFirst, nextSecond) <= 0)) {
+                consumer.accept(nextFirst);
+                nextFirst = first.hasNext() ? first.next() : null;
+            } else {
+                consumer.accept(nextSecond);
+                nextSecond = second.hasNext() ? second.next() : null;
+            }
+        }
+    }
+
+    /** This method throws an {@link InvalidValueException} if the batch is empty or bigger than the maximum batch size. */
+    private void checkBatchSize(int size) {
+        if (size == 0) { throw new InvalidValueException("The batch should not be empty!"); }
+        if (size > maxBatchSize) { throw new InvalidValueException("The batch should not have more than " + maxBatchSize + " items!"); }
+    }
+
+    /** This method throws an {@link ObjectOptimisticLockingFailureException} if the expectedVersion(parameter) is provided
+     * and the reservation(parameter) is at another version. */
+    private static void checkVersion(Reservation reservation, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(reservation.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Reservation.class, reservation.getId());
+        }
+    }
+
+    private static Map<Long, Reservation> byId(List<Reservation> reservations) {
+        Map<Long, Reservation> reservationsById = new HashMap<>();
+        for (Reservation reservation : reservations) {
+            reservationsById.put(reservation.getId(), reservation);
+        }
+        return reservationsById;
     }
 }
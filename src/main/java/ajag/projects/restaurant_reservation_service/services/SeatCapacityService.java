@@ -0,0 +1,150 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.capacity.SeatBooking;
+import ajag.projects.restaurant_reservation_service.capacity.SeatCapacityEngine;
+import ajag.projects.restaurant_reservation_service.capacity.SeatCapacityProperties;
+import ajag.projects.restaurant_reservation_service.dtos.AvailableSlot;
+import ajag.projects.restaurant_reservation_service.dtos.BookedSeats;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.exceptions.CapacityExceededException;
+import ajag.projects.restaurant_reservation_service.exceptions.FeatureDisabledException;
+import ajag.projects.restaurant_reservation_service.exceptions.InvalidValueException;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
+
+import jakarta.annotation.PostConstruct;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/** This service class is responsible for keeping the reservations within the seats of the restaurant.
+ * It uses the {@link SeatCapacityEngine} to take and give back the seats of the confirmed reservations, without going to the database.
+ * The seats are taken right away, so two requests can never book the same last seats, and given back once the change is committed:
+ * (1) If the transaction is rolled back, the seats taken are given back.
+ * (2) If the transaction is committed, the seats that are no longer needed (canceled or moved reservations) are given back.
+ * <p>The seats only see the reservations changed through this node. With reservation.capacity.enabled=false (required in CLUSTERED mode)
+ * the reservations are only checked for their date and number of guests, and the availability can't be searched.</p> */
+@Service
+public class SeatCapacityService {
+
+    private final SeatCapacityEngine engine;
+    private final SeatCapacityProperties properties;
+    private final ReservationRepository reservationRepository;
+
+    /** This constructor is used to inject the dependencies ({@link SeatCapacityEngine}, {@link SeatCapacityProperties}, {@link ReservationRepository}) into this class. */
+    public SeatCapacityService(SeatCapacityEngine engine, SeatCapacityProperties properties, ReservationRepository reservationRepository) {
+        this.engine = engine;
+        this.properties = properties;
+        this.reservationRepository = reservationRepository;
+    }
+
+    /** Load the seats of the confirmed reservations of the bookable days from the database on application startup,
+     * including the ones from yesterday that are still dining after midnight.
+     * No day further ahead needs to be loaded later on, since no reservation can be made for a day before it is bookable. */
+    @PostConstruct
+    public void initializeBookedSeats() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime from = LocalDate.now().atStartOfDay().minus(properties.getDiningDuration());
+        LocalDateTime until = LocalDate.now().plusDays(properties.getBookingHorizonDays()).atStartOfDay();
+        for (BookedSeats bookedSeats : reservationRepository.sumGuestCountByReservationDate(ReservationStatus.CONFIRMED, from, until)) {
+            engine.add(new SeatBooking(bookedSeats.reservationDate(), Math.toIntExact(bookedSeats.guestCount())));
+        }
+    }
+
+    /** This method returns the earliest times from the date from(parameter) to the date until(parameter) (excluded)
+     * when a party of guestCount(parameter) guests can be booked, at most limit(parameter) of them.
+     * They are found in the seats kept in memory, the database is not queried.
+     * (1) If the guestCount is NOT greater than 0, or more than the seats of the restaurant, an {@link InvalidValueException} is thrown.
+     * (2) If the date range or the limit is NOT valid, an {@link InvalidValueException} is thrown.
+     * (3) If the seat capacity is turned off, a {@link FeatureDisabledException} is thrown. */
+    public List<AvailableSlot> findAvailableSlots(int guestCount, LocalDateTime from, LocalDateTime until, int limit) {
+        if (!properties.isEnabled()) { throw new FeatureDisabledException("The seat capacity is turned off (reservation.capacity.enabled=false)!"); }
+        if (guestCount <= 0) { throw new InvalidValueException("guestCount should be greater than 0!"); }
+        if (guestCount > engine.getSeatsPerSlot()) { throw new InvalidValueException("guestCount should not be more than " + engine.getSeatsPerSlot() + "!"); }
+        if (!until.isAfter(from)) { throw new InvalidValueException("until should be after from!"); }
+        if (limit <= 0 || limit > properties.getAvailabilityMaxResults()) {
+            throw new InvalidValueException("limit should be between 1 and " + properties.getAvailabilityMaxResults() + "!");
+        }
+        return engine.findAvailableSlots(from, until, guestCount, limit);
+    }
+
+    /** This method takes the seats of the new reservation(parameter).
+     * (1) If its dining time is NOT within the bookable days, an {@link InvalidValueException} is thrown.
+     * (2) If a slot of its dining time doesn't have enough seats left, a {@link CapacityExceededException} is thrown. */
+    public void reserve(Reservation reservation) {
+        SeatBooking booking = bookingOf(reservation);
+        checkBookable(booking);
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!engine.tryBook(booking)) {
+            throw new CapacityExceededException("Not enough seats left for " + booking.seats() + " guests at " + booking.start() + "!");
+        }
+        afterCompletion(() -> { }, () -> engine.release(booking));
+    }
+
+    /** This method takes the seats that the confirmed reservation(parameter) needs after it was moved or resized,
+     * on top of the seats it held before at the previousDate(parameter) for previousGuestCount(parameter) guests.
+     * The seats it no longer needs are given back after the commit. The exceptions are the same as {@link #reserve}. */
+    public void change(LocalDateTime previousDate, Integer previousGuestCount, Reservation reservation) {
+        SeatBooking previous = new SeatBooking(previousDate, previousGuestCount);
+        SeatBooking booking = bookingOf(reservation);
+        checkBookable(booking);
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!engine.tryChange(previous, booking)) {
+            throw new CapacityExceededException("Not enough seats left for " + booking.seats() + " guests at " + booking.start() + "!");
+        }
+        afterCompletion(() -> engine.releaseChange(previous, booking), () -> engine.releaseChange(booking, previous));
+    }
+
+    /** This method gives back the seats of the confirmed reservation(parameter) once it is canceled or deleted. */
+    public void release(Reservation reservation) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        SeatBooking booking = bookingOf(reservation);
+        afterCompletion(() -> engine.release(booking), () -> { });
+    }
+
+    private void checkBookable(SeatBooking booking) {
+        LocalDateTime lastMinute = booking.start().plus(properties.getDiningDuration()).minusMinutes(1);
+        if (!engine.isBookable(booking.start()) || !engine.isBookable(lastMinute)) {
+            throw new InvalidValueException("reservationDate should be within the next " + properties.getBookingHorizonDays() + " days!");
+        }
+    }
+
+    private static SeatBooking bookingOf(Reservation reservation) {
+        if (reservation.getReservationDate() == null || reservation.getGuestCount() == null) {
+            throw new InvalidValueException("reservationDate and guestCount are required!");
+        }
+        return new SeatBooking(reservation.getReservationDate(), reservation.getGuestCount());
+    }
+
+    /** This method runs the committed(parameter) action after the commit and the rolledBack(parameter) action after the rollback
+     * of the current transaction. Without a transaction, the change is already final, so the committed action is run right away. */
+    private static void afterCompletion(Runnable committed, Runnable rolledBack) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        committed.run();
+                    } else {
+                        rolledBack.run();
+                    }
+                }
+            });
+        } else {
+            committed.run();
+        }
+    }
+}
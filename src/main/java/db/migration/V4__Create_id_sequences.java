@@ -0,0 +1,40 @@
+package db.migration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/** This migration moves the ID generation of the customers, reservations and notification outbox from the identity columns
+ * to sequences, so Hibernate can hand out IDs from memory and batch the inserts.
+ * Each sequence is incremented by 50 (the allocationSize of the entities, Hibernate takes a block of 50 IDs per call)
+ * and starts after the IDs already in the table. It is written in Java because the start of each sequence depends on the data.
+ * The sequences also become the default of the ID columns, so rows inserted with plain SQL don't collide with the blocks of Hibernate. */
+public class V4__Create_id_sequences extends BaseJavaMigration {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            createSequence(statement, "customers", "customers_seq");
+            createSequence(statement, "reservations", "reservations_seq");
+            createSequence(statement, "notification_outbox", "notification_outbox_seq");
+        }
+    }
+
+    private void createSequence(Statement statement, String table, String sequence) throws SQLException {
+        long maxId;
+        try (ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            result.next();
+            maxId = result.getLong(1);
+        }
+
+        // The first call returns the highest ID of the first block, so the first block is (maxId + 1) to (maxId + 50)
+        statement.execute("CREATE SEQUENCE " + sequence + " START WITH " + (maxId + ALLOCATION_SIZE) + " INCREMENT BY " + ALLOCATION_SIZE);
+        statement.execute("ALTER TABLE " + table + " ALTER COLUMN id DROP IDENTITY");
+        statement.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT NEXT VALUE FOR " + sequence);
+    }
+}
@@ -0,0 +1,15 @@
+CREATE TABLE notification_outbox (
+      id BIGINT AUTO_INCREMENT PRIMARY KEY,
+      reservation_id INT,
+      type VARCHAR(20) NOT NULL,
+      channel VARCHAR(20) NOT NULL,
+      recipient VARCHAR(100),
+      message VARCHAR(2000) NOT NULL,
+      status VARCHAR(20) NOT NULL,
+      attempts INT NOT NULL DEFAULT 0,
+      next_attempt_at TIMESTAMP NOT NULL,
+      last_error VARCHAR(500),
+      created_at TIMESTAMP
+);
+
+CREATE INDEX idx_notification_outbox_dispatch ON notification_outbox (status, channel, next_attempt_at);
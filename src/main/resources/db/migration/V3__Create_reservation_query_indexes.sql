@@ -0,0 +1,11 @@
+-- Customer history (ReservationRepository.findSummariesByCustomerId, findSummaryPageByCustomerAndStatus, findSummaryPageByCustomerAndStatusAfter):
+-- filtered by the customer, sorted by the status then by the reservation date, with the id as the keyset tie breaker
+CREATE INDEX idx_reservations_customer_status_date ON reservations (customer_id, status, reservation_date, id);
+
+-- Scheduler load window, bulk completion, seat capacity and archive (ReservationRepository.findPageByStatusDueBefore, lockIdsByStatusDueBefore,
+-- sumGuestCountByReservationDate, ReservationArchiveRepository.archiveBatch):
+-- filtered by the status and a range of reservation dates, paged by (reservation_date, id)
+CREATE INDEX idx_reservations_status_date ON reservations (status, reservation_date, id);
+
+-- Outbox purge (NotificationOutboxRepository.deleteByStatusCreatedBefore): filtered by the status and a range of creation dates
+CREATE INDEX idx_notification_outbox_purge ON notification_outbox (status, created_at);
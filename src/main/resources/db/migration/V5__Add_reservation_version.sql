@@ -0,0 +1,3 @@
+-- Optimistic locking (Reservation.version): every update of a reservation checks and increments its version,
+-- so a change made from a stale copy is refused instead of silently overwriting the change made in the meantime
+ALTER TABLE reservations ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,13 @@
+-- Clustered scheduler (reservation.scheduler.mode=CLUSTERED): the next task (REMINDER or COMPLETION) of every confirmed reservation.
+-- A node claims a due task by setting itself as the lease owner until lease_until, a task whose lease expired (e.g., its node died)
+-- is claimed again by another node. There is no foreign key, the task is saved before the reservation is flushed.
+CREATE TABLE reservation_tasks (
+      reservation_id BIGINT PRIMARY KEY,
+      task VARCHAR(20) NOT NULL,
+      due_at TIMESTAMP NOT NULL,
+      lease_owner VARCHAR(100),
+      lease_until TIMESTAMP
+);
+
+-- Claim (ReservationTaskRepository.claimDue): the due tasks, the earliest first
+CREATE INDEX idx_reservation_tasks_due ON reservation_tasks (due_at, reservation_id);
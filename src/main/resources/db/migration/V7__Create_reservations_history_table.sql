@@ -0,0 +1,19 @@
+-- Archive (ReservationArchiveRepository): the COMPLETED and CANCELLED reservations older than reservation.archive.min-age are moved here,
+-- so the reservations table and its indexes only hold the confirmed reservations and the recent history. The IDs are kept as they were
+CREATE TABLE reservations_history (
+      id INT PRIMARY KEY,
+      customer_id INT NOT NULL,
+      reservation_date TIMESTAMP,
+      guest_count INT,
+      status VARCHAR(20),
+      created_at TIMESTAMP,
+      last_modified_at TIMESTAMP,
+      version BIGINT NOT NULL,
+      archived_at TIMESTAMP NOT NULL,
+      FOREIGN KEY (customer_id) REFERENCES customers(id)
+);
+
+-- Customer history (ReservationArchiveRepository.findSummariesByCustomerId, findSummaryPageByCustomerAndStatus, findSummaryPageByCustomerAndStatusAfter,
+-- the pages of which the history stream is read too):
+-- the same order as idx_reservations_customer_status_date, so the archived history is read the way the live one is
+CREATE INDEX idx_reservations_history_customer_status_date ON reservations_history (customer_id, status, reservation_date, id);
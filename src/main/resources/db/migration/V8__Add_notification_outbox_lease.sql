@@ -0,0 +1,4 @@
+-- A node claims a batch of due notifications by setting itself as the lease owner until lease_until (NotificationDispatcher),
+-- a notification whose lease expired (e.g., its node stopped while sending it) is claimed again by another node.
+ALTER TABLE notification_outbox ADD COLUMN lease_owner VARCHAR(100);
+ALTER TABLE notification_outbox ADD COLUMN lease_until TIMESTAMP;
@@ -0,0 +1,67 @@
+package ajag.projects.restaurant_reservation_service.reactive;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/** This class sets up the reactive variant next to the services of the application, which keep using JDBC and JPA:
+ * (1) the JDBC DataSource and the JPA transaction manager, which Spring Boot leaves out once an R2DBC ConnectionFactory is configured,
+ * (2) the scheduler the blocking service calls run on, so they never block the Netty event loop, and
+ * (3) the Netty server and the CORS mapping of the frontend (the same as WebConfig). */
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfig implements WebFluxConfigurer {
+
+    /** The JDBC connection pool of the services, configured with spring.datasource.* as in the Spring MVC application. */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /** The transaction manager of the @Transactional services. Spring Boot also sets up an R2DBC transaction manager,
+     * which the reads don't need (each one is a single statement, as in the Spring MVC application). */
+    @Bean
+    @Primary
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+
+    /** The threads the blocking service calls (every change, and the reads the services cache) run on.
+     * There are as many as JDBC connections, so a thread never waits for a connection, and the calls beyond them wait in a queue
+     * of at most maxQueued(parameter) calls, without holding a thread. */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(HikariDataSource dataSource, @Value("${reactive.blocking.max-queued:100000}") int maxQueued) {
+        return Schedulers.newBoundedElastic(dataSource.getMaximumPoolSize(), maxQueued, "reservation-jdbc");
+    }
+
+    /** The requests are served by Netty, even though Tomcat is on the classpath of the application. */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        registry.addMapping("/**")
+                .allowedOrigins("http://localhost:3000")
+                .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE")
+                .allowedHeaders("*")
+                .allowCredentials(true);
+    }
+}
@@ -0,0 +1,33 @@
+package ajag.projects.restaurant_reservation_service.reactive;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/** This class starts the reactive variant of the application (./gradlew bootRunReactive), which serves the same /reservations and /customers
+ * endpoints with Spring WebFlux on Netty instead of Spring MVC on Tomcat. It runs every service of the application (reservations, customers,
+ * scheduler, notification outbox, seat capacity) and only replaces the controllers, so it must be started with the "reactive" profile
+ * (application-reactive.properties). */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EnableScheduling
+@ComponentScan(basePackageClasses = RestaurantReservationServiceApplication.class, excludeFilters = {
+    @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+    @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class),
+    // The Spring MVC application and its controllers, WebFlux would map their endpoints a second time
+    @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = RestaurantReservationServiceApplication.class),
+    @ComponentScan.Filter(type = FilterType.REGEX, pattern = "ajag\\.projects\\.restaurant_reservation_service\\.controllers\\..*")
+})
+public class ReactiveReservationServiceApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveReservationServiceApplication.class).profiles("reactive").run(args);
+    }
+}
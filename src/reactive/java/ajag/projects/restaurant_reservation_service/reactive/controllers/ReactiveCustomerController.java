@@ -0,0 +1,70 @@
+package ajag.projects.restaurant_reservation_service.reactive.controllers;
+
+import ajag.projects.restaurant_reservation_service.controllers.CustomerController;
+import ajag.projects.restaurant_reservation_service.dtos.CustomerCacheStats;
+import ajag.projects.restaurant_reservation_service.dtos.CustomerSummary;
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.reactive.services.ReactiveReservationService;
+import ajag.projects.restaurant_reservation_service.services.CustomerService;
+import ajag.projects.restaurant_reservation_service.services.ReadWatermarkService;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+/** This controller class is used to create the non-blocking REST APIs for managing customers, with the same endpoints, parameters
+ * and responses as the {@link CustomerController} of the Spring MVC application. See {@link ReactiveReservationService}. */
+@RestController
+@RequestMapping("/customers")
+public class ReactiveCustomerController {
+
+    private final ReactiveReservationService reservationService;
+    private final CustomerService customerService;
+    private final ReadWatermarkService readWatermarkService;
+
+    /** This constructor is used to inject the dependencies ({@link ReactiveReservationService}, {@link CustomerService}, {@link ReadWatermarkService})
+     * into this class.*/
+    public ReactiveCustomerController(ReactiveReservationService reservationService, CustomerService customerService,
+                                      ReadWatermarkService readWatermarkService) {
+        this.reservationService = reservationService;
+        this.customerService = customerService;
+        this.readWatermarkService = readWatermarkService;
+    }
+
+    /** Adds a new customer to the system, see {@link CustomerController#addCustomer}. */
+    @PostMapping
+    public Mono<Customer> addCustomer(@RequestBody Customer customer) {
+        return reservationService.addCustomer(customer);
+    }
+
+    /** Retrieves a customer by their email, see {@link CustomerController#getCustomer}.
+     * The customer is read from the customer cache, or with R2DBC if it is not cached. An unchanged customer polled with its ETag
+     * is answered 304 Not Modified without a body. */
+    @GetMapping("/{email}")
+    public Mono<CustomerSummary> getCustomer(@PathVariable String email, ServerWebExchange exchange) {
+        if (exchange.checkNotModified(readWatermarkService.getCustomerWatermark(email).eTag())) {
+            return Mono.empty();
+        }
+        return reservationService.findCustomerByEmail(email);
+    }
+
+    /** Retrieves the counters of the customer cache, see {@link CustomerController#getCacheStats}. */
+    @GetMapping("/cache/stats")
+    public CustomerCacheStats getCacheStats() {
+        return customerService.getCacheStats();
+    }
+
+    /** Updates the details of an existing customer, see {@link CustomerController#updateCustomer}. */
+    @PutMapping
+    public Mono<Customer> updateCustomer(@RequestBody Customer customer) {
+        return reservationService.updateCustomer(customer);
+    }
+
+}
@@ -0,0 +1,135 @@
+package ajag.projects.restaurant_reservation_service.reactive.controllers;
+
+import ajag.projects.restaurant_reservation_service.controllers.ReservationController;
+import ajag.projects.restaurant_reservation_service.dtos.AvailableSlot;
+import ajag.projects.restaurant_reservation_service.dtos.BatchResult;
+import ajag.projects.restaurant_reservation_service.dtos.ReadWatermark;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationPage;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationReschedule;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.reactive.services.ReactiveReservationService;
+import ajag.projects.restaurant_reservation_service.services.ReadWatermarkService;
+import ajag.projects.restaurant_reservation_service.services.SeatCapacityService;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** This controller class is used to create the non-blocking REST APIs for managing reservations, with the same endpoints, parameters
+ * and responses as the {@link ReservationController} of the Spring MVC application. See {@link ReactiveReservationService}. */
+@RestController
+@RequestMapping("/reservations")
+public class ReactiveReservationController {
+
+    private final ReactiveReservationService reservationService;
+    private final SeatCapacityService seatCapacityService;
+    private final ReadWatermarkService readWatermarkService;
+
+    /** This constructor is used to inject the dependencies ({@link ReactiveReservationService}, {@link SeatCapacityService}, {@link ReadWatermarkService})
+     * into this class.*/
+    public ReactiveReservationController(ReactiveReservationService reservationService, SeatCapacityService seatCapacityService,
+                                         ReadWatermarkService readWatermarkService) {
+        this.reservationService = reservationService;
+        this.seatCapacityService = seatCapacityService;
+        this.readWatermarkService = readWatermarkService;
+    }
+
+    /** Creates a new reservation in the system, see {@link ReservationController#createReservation}. */
+    @PostMapping
+    public Mono<ResponseEntity<Reservation>> createReservation(@RequestBody Reservation reservation) {
+        return reservationService.createReservation(reservation)
+            .map(newReservation -> ResponseEntity.status(HttpStatus.CREATED).body(newReservation));
+    }
+
+    /** Creates many new reservations in the system at once, see {@link ReservationController#createReservations}. */
+    @PostMapping("/batch")
+    public Mono<BatchResult> createReservations(@RequestBody List<Reservation> reservations) {
+        return reservationService.createReservations(reservations);
+    }
+
+    /** Cancels an existing reservation in the system, see {@link ReservationController#cancelReservation}. */
+    @PatchMapping("/{id}/cancel")
+    public Mono<Reservation> cancelReservation(
+        @PathVariable Long id,
+        @RequestParam(required = false) Long version) {
+        return reservationService.cancelReservation(id, version);
+    }
+
+    /** Cancels many existing reservations in the system at once, see {@link ReservationController#cancelReservations}. */
+    @PatchMapping("/batch/cancel")
+    public Mono<BatchResult> cancelReservations(@RequestBody List<Long> ids) {
+        return reservationService.cancelReservations(ids);
+    }
+
+    /** Updates the reservation details of many existing reservations at once, see {@link ReservationController#rescheduleReservations}. */
+    @PatchMapping("/batch/reschedule")
+    public Mono<BatchResult> rescheduleReservations(@RequestBody List<ReservationReschedule> changes) {
+        return reservationService.rescheduleReservations(changes);
+    }
+
+    /** View all existing reservations for a specific customer, see {@link ReservationController#viewReservations}.
+     * An unchanged list polled with its ETag or Last-Modified is answered 304 Not Modified without reading the database. */
+    @GetMapping("/customer/{customerId}")
+    public Mono<List<ReservationSummary>> viewReservations(@PathVariable Long customerId, ServerWebExchange exchange) {
+        // The version is read before the reservations, so the response is never tagged with a version newer than what it holds
+        ReadWatermark watermark = readWatermarkService.getReservationsWatermark(customerId);
+        if (exchange.checkNotModified(watermark.eTag(), Instant.ofEpochMilli(watermark.lastModified()))) {
+            return Mono.empty();
+        }
+        return reservationService.getCustomerReservations(customerId).collectList();
+    }
+
+    /** View one page of the reservations for a specific customer, see {@link ReservationController#viewReservationPage}. */
+    @GetMapping("/customer/{customerId}/page")
+    public Mono<ReservationPage> viewReservationPage(
+        @PathVariable Long customerId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit) {
+        return reservationService.getCustomerReservationPage(customerId, cursor, limit);
+    }
+
+    /** Streams all existing reservations for a specific customer, see {@link ReservationController#streamReservations}.
+     * Each reservation is written to the JSON array of the response as soon as it is read from the database. */
+    @GetMapping("/customer/{customerId}/stream")
+    public Flux<ReservationSummary> streamReservations(@PathVariable Long customerId) {
+        return reservationService.getCustomerReservations(customerId);
+    }
+
+    /** Searches the earliest times a party can be booked, see {@link ReservationController#findAvailableSlots}.
+     * The seats are kept in memory, so the search never waits for the database. */
+    @GetMapping("/availability")
+    public List<AvailableSlot> findAvailableSlots(
+        @RequestParam Integer guestCount,
+        @RequestParam LocalDateTime from,
+        @RequestParam LocalDateTime until,
+        @RequestParam(defaultValue = "10") Integer limit) {
+        return seatCapacityService.findAvailableSlots(guestCount, from, until, limit);
+    }
+
+    /** Updates the reservation details of an existing reservation in the system, see {@link ReservationController#updateReservation}. */
+    @PatchMapping("/{id}")
+    public Mono<Reservation> updateReservation(
+        @PathVariable Long id,
+        @RequestParam LocalDateTime reservationDate,
+        @RequestParam Integer guestCount,
+        @RequestParam(required = false) Long version) {
+        return reservationService.updateReservation(id, reservationDate, guestCount, version);
+    }
+
+    /** Deletes an existing reservation in the system, see {@link ReservationController#deleteReservation}. */
+    @DeleteMapping("/{id}")
+    public Mono<String> deleteReservation(@PathVariable Long id) {
+        return reservationService.deleteReservationById(id)
+            .thenReturn("Reservation successfully deleted! ID: " + id);
+    }
+
+}
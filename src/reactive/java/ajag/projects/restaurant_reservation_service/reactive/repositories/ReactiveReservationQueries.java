@@ -0,0 +1,129 @@
+package ajag.projects.restaurant_reservation_service.reactive.repositories;
+
+import ajag.projects.restaurant_reservation_service.dtos.CustomerSummary;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationArchiveRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+
+import java.time.LocalDateTime;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** This repository class reads the reservations and customers with R2DBC, without blocking a thread while the database answers.
+ * The queries are the same as the ones of the {@link ReservationRepository} (same columns, filters and order),
+ * so the reactive endpoints return exactly what the Spring MVC ones return. Like the Spring MVC ones, they also read the archived reservations
+ * ({@link ReservationArchiveRepository}), with a UNION ALL of both tables that is filtered in each of them so both their indexes are used. */
+@Repository
+public class ReactiveReservationQueries {
+
+    private static final String RESERVATION_COLUMNS = "id, customer_id, reservation_date, guest_count, status, created_at, last_modified_at, version";
+
+    private final DatabaseClient databaseClient;
+
+    /** This constructor is used to inject the dependency ({@link ConnectionFactory}, configured with spring.r2dbc.*) into this class. */
+    public ReactiveReservationQueries(ConnectionFactory connectionFactory) {
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+    }
+
+    /** This method reads the summary of all reservation data filtered by the customer id, the customer is read in the same query.
+     * The reservations are sorted by the status in descending order (CONFIRMED, COMPLETED, CANCELLED)
+     * and then by the reservation date in ascending order, see {@link ReservationRepository#findSummariesByCustomerId}. */
+    public Flux<ReservationSummary> findSummariesByCustomerId(Long customerId) {
+        return databaseClient.sql(summariesWhere("customer_id = :customerId") + """
+                ORDER BY r.status DESC, r.reservation_date, r.id""")
+            .bind("customerId", customerId)
+            .map(ReactiveReservationQueries::toSummary)
+            .all();
+    }
+
+    /** This method reads the summary of the first page (of at most limit reservations) of reservation data filtered by the customer id and the status,
+     * see {@link ReservationRepository#findSummaryPageByCustomerAndStatus}. */
+    public Flux<ReservationSummary> findSummaryPageByCustomerAndStatus(Long customerId, ReservationStatus status, int limit) {
+        return databaseClient.sql(summariesWhere("customer_id = :customerId AND status = :status") + """
+                ORDER BY r.reservation_date, r.id
+                LIMIT :limit""")
+            .bind("customerId", customerId)
+            .bind("status", status.name())
+            .bind("limit", limit)
+            .map(ReactiveReservationQueries::toSummary)
+            .all();
+    }
+
+    /** This method reads the summary of the next page (of at most limit reservations) of reservation data filtered by the customer id and the status,
+     * starting right after the reservation with the given afterDate and afterId, see {@link ReservationRepository#findSummaryPageByCustomerAndStatusAfter}. */
+    public Flux<ReservationSummary> findSummaryPageByCustomerAndStatusAfter(Long customerId, ReservationStatus status,
+                                                                           LocalDateTime afterDate, Long afterId, int limit) {
+        return databaseClient.sql(summariesWhere("""
+                customer_id = :customerId AND status = :status
+                  AND (reservation_date > :afterDate OR (reservation_date = :afterDate AND id > :afterId))""") + """
+                ORDER BY r.reservation_date, r.id
+                LIMIT :limit""")
+            .bind("customerId", customerId)
+            .bind("status", status.name())
+            .bind("afterDate", afterDate)
+            .bind("afterId", afterId)
+            .bind("limit", limit)
+            .map(ReactiveReservationQueries::toSummary)
+            .all();
+    }
+
+    /** This method reads the customer with the given email, as a detached {@link Customer} entity so it can be cached like the ones read with JPA. */
+    public Mono<Customer> findCustomerByEmail(String email) {
+        return databaseClient.sql("SELECT id, name, email, phone_number, preferred_comms FROM customers WHERE email = :email")
+            .bind("email", email)
+            .map(row -> {
+                Customer customer = new Customer();
+                customer.setId(toLong(row.get("id")));
+                customer.setName(row.get("name", String.class));
+                customer.setEmail(row.get("email", String.class));
+                customer.setPhoneNumber(row.get("phone_number", String.class));
+                customer.setPreferredComms(toPreferredComms(row.get("preferred_comms", String.class)));
+                return customer;
+            })
+            .one();
+    }
+
+    /** This method returns the query of the live and the archived reservations matching the filter(parameter), with their customer. */
+    private static String summariesWhere(String filter) {
+        return """
+            SELECT r.id, r.reservation_date, r.guest_count, r.status, r.created_at, r.last_modified_at, r.version,
+                   c.id AS customer_id, c.name, c.email, c.phone_number, c.preferred_comms
+            FROM (SELECT %1$s FROM reservations WHERE %2$s
+                  UNION ALL
+                  SELECT %1$s FROM reservations_history WHERE %2$s) r
+            JOIN customers c ON c.id = r.customer_id
+            """.formatted(RESERVATION_COLUMNS, filter);
+    }
+
+    private static ReservationSummary toSummary(Readable row) {
+        return new ReservationSummary(
+            toLong(row.get("id")),
+            new CustomerSummary(toLong(row.get("customer_id")), row.get("name", String.class), row.get("email", String.class),
+                row.get("phone_number", String.class), toPreferredComms(row.get("preferred_comms", String.class))),
+            row.get("reservation_date", LocalDateTime.class),
+            row.get("guest_count", Integer.class),
+            ReservationStatus.valueOf(row.get("status", String.class)),
+            row.get("created_at", LocalDateTime.class),
+            row.get("last_modified_at", LocalDateTime.class),
+            toLong(row.get("version")));
+    }
+
+    /** The ID columns are INT or BIGINT depending on the table, both are returned as a Long. */
+    private static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    private static PreferredComms toPreferredComms(String value) {
+        return value == null ? null : PreferredComms.valueOf(value);
+    }
+}
@@ -0,0 +1,167 @@
+package ajag.projects.restaurant_reservation_service.reactive.services;
+
+import ajag.projects.restaurant_reservation_service.dtos.BatchResult;
+import ajag.projects.restaurant_reservation_service.dtos.CustomerSummary;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationCursor;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationPage;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationReschedule;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.exceptions.InvalidValueException;
+import ajag.projects.restaurant_reservation_service.reactive.repositories.ReactiveReservationQueries;
+import ajag.projects.restaurant_reservation_service.services.CustomerService;
+import ajag.projects.restaurant_reservation_service.services.ReservationService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/** This service class is responsible for the reservation and customer operations of the reactive variant.
+ * <p>The reads (reservation lists and pages, customer lookups) go to the database with R2DBC and never block a thread.</p>
+ * <p>The changes are made by the {@link ReservationService} and the {@link CustomerService} themselves, on the blocking scheduler,
+ * so they keep exactly the same semantics: the seat capacity checks, the optimistic locking and retries, the reminder and completion schedules,
+ * the notifications saved in the outbox within the same transaction, and the changes published once committed
+ * (all of which rely on the JDBC transaction of the calling thread). The event loop only waits for their result.</p> */
+@Service
+public class ReactiveReservationService {
+
+    /** The order of the statuses in the reservation history of a customer, the same as in {@link ReservationService}. */
+    private static final List<ReservationStatus> HISTORY_STATUS_ORDER =
+        List.of(ReservationStatus.CONFIRMED, ReservationStatus.COMPLETED, ReservationStatus.CANCELLED);
+
+    private final ReactiveReservationQueries queries;
+    private final ReservationService reservationService;
+    private final CustomerService customerService;
+    private final Scheduler blockingScheduler;
+    private final int defaultHistoryPageSize;
+    private final int maxHistoryPageSize;
+
+    /** This constructor is used to inject the dependencies ({@link ReactiveReservationQueries}, {@link ReservationService}, {@link CustomerService},
+     * the blocking {@link Scheduler}) into this class. The pages of the reservation history are sized the same way as in {@link ReservationService}. */
+    public ReactiveReservationService(ReactiveReservationQueries queries, ReservationService reservationService, CustomerService customerService,
+                                      Scheduler blockingScheduler,
+                                      @Value("${reservation.history.default-page-size:50}") int defaultHistoryPageSize,
+                                      @Value("${reservation.history.max-page-size:200}") int maxHistoryPageSize) {
+        this.queries = queries;
+        this.reservationService = reservationService;
+        this.customerService = customerService;
+        this.blockingScheduler = blockingScheduler;
+        this.defaultHistoryPageSize = defaultHistoryPageSize;
+        this.maxHistoryPageSize = maxHistoryPageSize;
+    }
+
+    /** This method creates the reservation(parameter), see {@link ReservationService#createReservation}. */
+    public Mono<Reservation> createReservation(Reservation reservation) {
+        return blocking(() -> reservationService.createReservation(reservation));
+    }
+
+    /** This method creates the reservations(parameter) at once, see {@link ReservationService#createReservations}. */
+    public Mono<BatchResult> createReservations(List<Reservation> reservations) {
+        return blocking(() -> reservationService.createReservations(reservations));
+    }
+
+    /** This method cancels the reservation with the id(parameter), see {@link ReservationService#cancelReservation}. */
+    public Mono<Reservation> cancelReservation(Long id, Long expectedVersion) {
+        return blocking(() -> reservationService.cancelReservation(id, expectedVersion));
+    }
+
+    /** This method cancels the reservations with the ids(parameter) at once, see {@link ReservationService#cancelReservations}. */
+    public Mono<BatchResult> cancelReservations(List<Long> ids) {
+        return blocking(() -> reservationService.cancelReservations(ids));
+    }
+
+    /** This method changes the reservations at once, see {@link ReservationService#rescheduleReservations}. */
+    public Mono<BatchResult> rescheduleReservations(List<ReservationReschedule> changes) {
+        return blocking(() -> reservationService.rescheduleReservations(changes));
+    }
+
+    /** This method changes the date and guest count of the reservation with the id(parameter), see {@link ReservationService#updateReservation}. */
+    public Mono<Reservation> updateReservation(Long id, LocalDateTime reservationDate, Integer guestCount, Long expectedVersion) {
+        return blocking(() -> reservationService.updateReservation(id, reservationDate, guestCount, expectedVersion));
+    }
+
+    /** This method deletes the reservation with the id(parameter), see {@link ReservationService#deleteReservationById}. */
+    public Mono<Void> deleteReservationById(Long id) {
+        return blocking(() -> {
+            reservationService.deleteReservationById(id);
+            return null;
+        }).then();
+    }
+
+    /** This method is used to get the summary of all the reservations using the customerId(parameter), with a single query,
+     * in the same order as {@link ReservationService#getCustomerReservations}. The reservations are emitted as they are read. */
+    public Flux<ReservationSummary> getCustomerReservations(Long customerId) {
+        return queries.findSummariesByCustomerId(customerId);
+    }
+
+    /** This method is used to get the summary of one page of the reservations using the customerId(parameter), the same way as
+     * {@link ReservationService#getCustomerReservationPage}: each status is read with its own keyset query, one after the other,
+     * until the page is full.
+     *
+     * @param customerId - ID of the customer that is linked to the reservation.
+     * @param cursor - nextCursor of the previous page, or null for the first page.
+     * @param limit - maximum number of reservations in the page, or null for the default page size. */
+    public Mono<ReservationPage> getCustomerReservationPage(Long customerId, String cursor, Integer limit) {
+        int requestedSize = limit == null ? defaultHistoryPageSize : limit;
+        if (requestedSize <= 0) { return Mono.error(new InvalidValueException("limit should be greater than 0!")); }
+        int pageSize = Math.min(requestedSize, maxHistoryPageSize);
+
+        ReservationCursor after;
+        try {
+            after = cursor == null ? null : ReservationCursor.decode(cursor);
+        } catch (InvalidValueException e) {
+            return Mono.error(e);
+        }
+        int firstStatus = after == null ? 0 : HISTORY_STATUS_ORDER.indexOf(after.status());
+
+        return Flux.range(firstStatus, HISTORY_STATUS_ORDER.size() - firstStatus)
+            // Every status is only read once the previous ones are, and only until the page is full
+            .concatMap(i -> {
+                ReservationStatus status = HISTORY_STATUS_ORDER.get(i);
+                return after != null && i == firstStatus
+                    ? queries.findSummaryPageByCustomerAndStatusAfter(customerId, status, after.reservationDate(), after.id(), pageSize)
+                    : queries.findSummaryPageByCustomerAndStatus(customerId, status, pageSize);
+            })
+            .take(pageSize, true)
+            .collectList()
+            .map(reservations -> new ReservationPage(reservations,
+                reservations.size() < pageSize ? null : ReservationCursor.of(reservations.get(reservations.size() - 1)).encode()));
+    }
+
+    /** This method is used to get the customer using the email(parameter).
+     * The customer is taken from the customer cache of the {@link CustomerService}, or read with R2DBC and cached if it is not cached yet. */
+    public Mono<CustomerSummary> findCustomerByEmail(String email) {
+        Optional<Customer> cachedCustomer = customerService.findCachedByEmail(email);
+        if (cachedCustomer.isPresent()) {
+            return Mono.just(CustomerSummary.of(cachedCustomer.get()));
+        }
+        return queries.findCustomerByEmail(email)
+            .doOnNext(customerService::cache)
+            .map(CustomerSummary::of);
+    }
+
+    /** This method adds the customer(parameter), see {@link CustomerService#addCustomer}. */
+    public Mono<Customer> addCustomer(Customer customer) {
+        return blocking(() -> customerService.addCustomer(customer));
+    }
+
+    /** This method updates the customer(parameter), see {@link CustomerService#updateCustomer}. */
+    public Mono<Customer> updateCustomer(Customer customer) {
+        return blocking(() -> customerService.updateCustomer(customer));
+    }
+
+    /** This method runs the blocking call(parameter) on the blocking scheduler, and emits its result (or its exception) on completion. */
+    private <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(blockingScheduler);
+    }
+}
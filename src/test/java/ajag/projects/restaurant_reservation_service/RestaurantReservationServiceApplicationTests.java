@@ -1,20 +1,24 @@
 package ajag.projects.restaurant_reservation_service;
 
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
 import ajag.projects.restaurant_reservation_service.entities.Customer;
 import ajag.projects.restaurant_reservation_service.entities.Reservation;
 import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
 import ajag.projects.restaurant_reservation_service.repositories.CustomerRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationArchiveRepository;
 import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
 import ajag.projects.restaurant_reservation_service.services.CustomerService;
 import ajag.projects.restaurant_reservation_service.services.MessagingService;
 import ajag.projects.restaurant_reservation_service.services.ReservationSchedulingService;
 import ajag.projects.restaurant_reservation_service.services.ReservationService;
+import ajag.projects.restaurant_reservation_service.services.SeatCapacityService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import java.time.LocalDateTime;
@@ -33,6 +37,9 @@ class RestaurantReservationServiceApplicationTests {
 	@Mock
 	private ReservationRepository reservationRepository;
 
+	@Mock
+	private ReservationArchiveRepository archiveRepository;
+
 	@Mock
 	private CustomerService customerService;
 
@@ -42,6 +49,12 @@ class RestaurantReservationServiceApplicationTests {
 	@Mock
 	private MessagingService messagingService;
 
+	@Mock
+	private SeatCapacityService seatCapacityService;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
 	Map<Long, List<Reservation>> reservationMap = new HashMap<>();
 
     @BeforeEach
@@ -77,8 +90,8 @@ class RestaurantReservationServiceApplicationTests {
 		reservationMap.get(reservation2.getCustomer().getId()).add(reservation2);
 
 		// Mock reservation repository behavior
-		lenient().when(reservationRepository.findAllByCustomer_IdOrderByStatusDescReservationDateAsc(1L))
-				.thenReturn(reservationMap.get(1L));
+		lenient().when(reservationRepository.findSummariesByCustomerId(1L))
+				.thenReturn(reservationMap.get(1L).stream().map(ReservationSummary::of).toList());
 
 		// Mocking dynamic behavior for save method based on the input reservation object
 		lenient().when(reservationRepository.save(ArgumentMatchers.any(Reservation.class)))
@@ -95,28 +108,28 @@ class RestaurantReservationServiceApplicationTests {
 	@Test
 	void testGetCustomerReservations() {
 		// Act: Call the method for retrieving customer reservations
-		List<Reservation> result = reservationService.getCustomerReservations(1L);
+		List<ReservationSummary> result = reservationService.getCustomerReservations(1L);
 
 		// Assert: Verify the result
 		assertThat(result).hasSize(2);
 
 		// Validate the first reservation
-		assertThat(result.get(0).getCustomer().getId()).isEqualTo(1L);
-		assertThat(result.get(0).getCustomer().getName()).isEqualTo("John");
-		assertThat(result.get(0).getCustomer().getEmail()).isEqualTo("john@example.com");
-		assertThat(result.get(0).getCustomer().getPhoneNumber()).isEqualTo("09222222222");
-		assertThat(result.get(0).getCustomer().getPreferredComms()).isEqualTo(PreferredComms.EMAIL);
-		assertThat(result.get(0).getReservationDate()).isEqualTo("2025-12-09T10:30:00");
-		assertThat(result.get(0).getGuestCount()).isEqualTo(5);
+		assertThat(result.get(0).customer().id()).isEqualTo(1L);
+		assertThat(result.get(0).customer().name()).isEqualTo("John");
+		assertThat(result.get(0).customer().email()).isEqualTo("john@example.com");
+		assertThat(result.get(0).customer().phoneNumber()).isEqualTo("09222222222");
+		assertThat(result.get(0).customer().preferredComms()).isEqualTo(PreferredComms.EMAIL);
+		assertThat(result.get(0).reservationDate()).isEqualTo("2025-12-09T10:30:00");
+		assertThat(result.get(0).guestCount()).isEqualTo(5);
 
 		// Validate the second reservation
-		assertThat(result.get(1).getCustomer().getId()).isEqualTo(1L);
-		assertThat(result.get(1).getCustomer().getName()).isEqualTo("John");
-		assertThat(result.get(1).getCustomer().getEmail()).isEqualTo("john@example.com");
-		assertThat(result.get(1).getCustomer().getPhoneNumber()).isEqualTo("09222222222");
-		assertThat(result.get(1).getCustomer().getPreferredComms()).isEqualTo(PreferredComms.EMAIL);
-		assertThat(result.get(1).getReservationDate()).isEqualTo("2025-01-10T01:30:00");
-		assertThat(result.get(1).getGuestCount()).isEqualTo(12);
+		assertThat(result.get(1).customer().id()).isEqualTo(1L);
+		assertThat(result.get(1).customer().name()).isEqualTo("John");
+		assertThat(result.get(1).customer().email()).isEqualTo("john@example.com");
+		assertThat(result.get(1).customer().phoneNumber()).isEqualTo("09222222222");
+		assertThat(result.get(1).customer().preferredComms()).isEqualTo(PreferredComms.EMAIL);
+		assertThat(result.get(1).reservationDate()).isEqualTo("2025-01-10T01:30:00");
+		assertThat(result.get(1).guestCount()).isEqualTo(12);
 	}
 
 	@Test
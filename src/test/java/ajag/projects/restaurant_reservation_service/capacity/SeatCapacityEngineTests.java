@@ -0,0 +1,162 @@
+package ajag.projects.restaurant_reservation_service.capacity;
+
+import ajag.projects.restaurant_reservation_service.dtos.AvailableSlot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeatCapacityEngineTests {
+
+	private static final int SEATS = 20;
+	private static final LocalDate TODAY = LocalDate.of(2030, 6, 1);
+	private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-06-01T08:00:00Z"), ZoneOffset.UTC);
+
+	private final SeatCapacityEngine engine = new SeatCapacityEngine(CLOCK, SEATS, Duration.ofMinutes(30), Duration.ofHours(2), 2);
+
+	@Test
+	void testBookingIsAllOrNothing() {
+		// Arrange: The 19:00 slot is full, the 18:00 booking holds 18:00 to 20:00
+		LocalDateTime evening = TODAY.atTime(19, 0);
+		assertThat(engine.tryBook(new SeatBooking(evening, SEATS))).isTrue();
+
+		// Act
+		boolean booked = engine.tryBook(new SeatBooking(evening.minusHours(1), 1));
+
+		// Assert: Nothing was taken from the free slots before 19:00
+		assertThat(booked).isFalse();
+		assertThat(engine.getBookedSeats(evening.minusHours(1))).isZero();
+		assertThat(engine.getBookedSeats(evening.minusMinutes(30))).isZero();
+	}
+
+	@Test
+	void testDaysOutsideTheHorizonAreNotBookable() {
+		// Act & Assert
+		assertThat(engine.isBookable(TODAY.minusDays(1).atTime(20, 0))).isFalse();
+		assertThat(engine.isBookable(TODAY.plusDays(1).atTime(20, 0))).isTrue();
+		assertThat(engine.isBookable(TODAY.plusDays(2).atTime(0, 0))).isFalse();
+		assertThat(engine.tryBook(new SeatBooking(TODAY.plusDays(2).atTime(12, 0), 1))).isFalse();
+	}
+
+	@Test
+	void testAvailableSlotsMatchEverySlotChecked() {
+		// Arrange: Random bookings over both bookable days
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < 300; i++) {
+			engine.tryBook(new SeatBooking(TODAY.atStartOfDay().plusMinutes(30L * random.nextInt(92)), 1 + random.nextInt(8)));
+		}
+		LocalDateTime from = TODAY.atTime(6, 10);
+		LocalDateTime until = TODAY.plusDays(2).atStartOfDay();
+
+		// Act: Search every time a party of 6 fits
+		List<AvailableSlot> available = engine.findAvailableSlots(from, until, 6, 1000);
+
+		// Assert: Same as checking the seats of every slot, from 08:00 (now) until the last party that can leave by midnight of the last day
+		List<AvailableSlot> expected = new ArrayList<>();
+		for (LocalDateTime start = TODAY.atTime(8, 0); !start.plusHours(2).isAfter(until); start = start.plusMinutes(30)) {
+			int mostBooked = 0;
+			for (LocalDateTime slot = start; slot.isBefore(start.plusHours(2)); slot = slot.plusMinutes(30)) {
+				mostBooked = Math.max(mostBooked, engine.getBookedSeats(slot));
+			}
+			if (mostBooked + 6 <= SEATS) {
+				expected.add(new AvailableSlot(start, SEATS - mostBooked));
+			}
+		}
+		assertThat(available).isEqualTo(expected);
+		assertThat(engine.findAvailableSlots(from, until, 6, 3)).isEqualTo(expected.subList(0, Math.min(3, expected.size())));
+	}
+
+	@Test
+	void testConcurrentBookingsNeverOverbook() throws Exception {
+		// Arrange: Every thread books, moves and cancels its own bookings in the same few evening slots
+		int threads = 16;
+		int operations = 20_000;
+		List<LocalDateTime> starts = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			starts.add(TODAY.atTime(17, 0).plusMinutes(30L * i));
+		}
+		List<LocalDateTime> slots = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			slots.add(TODAY.atTime(17, 0).plusMinutes(30L * i));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicInteger overbooked = new AtomicInteger();
+
+		// A sampler keeps reading the slots while they are booked
+		Future<?> sampler = executor.submit(() -> {
+			while (running.get()) {
+				for (LocalDateTime slot : slots) {
+					if (engine.getBookedSeats(slot) > SEATS) {
+						overbooked.incrementAndGet();
+					}
+				}
+			}
+		});
+
+		List<Future<List<SeatBooking>>> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			workers.add(executor.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				List<SeatBooking> held = new ArrayList<>();
+				start.await();
+				for (int i = 0; i < operations; i++) {
+					SeatBooking booking = new SeatBooking(starts.get(random.nextInt(starts.size())), 1 + random.nextInt(6));
+					int action = held.isEmpty() ? 0 : random.nextInt(3);
+					if (action == 0) {
+						if (engine.tryBook(booking)) {
+							held.add(booking);
+						}
+					} else if (action == 1) {
+						engine.release(held.remove(random.nextInt(held.size())));
+					} else {
+						int index = random.nextInt(held.size());
+						if (engine.tryChange(held.get(index), booking)) {
+							engine.releaseChange(held.get(index), booking);
+							held.set(index, booking);
+						}
+					}
+				}
+				return held;
+			}));
+		}
+
+		// Act
+		start.countDown();
+		List<SeatBooking> held = new ArrayList<>();
+		for (Future<List<SeatBooking>> worker : workers) {
+			held.addAll(worker.get(1, TimeUnit.MINUTES));
+		}
+		running.set(false);
+		sampler.get(1, TimeUnit.MINUTES);
+		executor.shutdown();
+
+		// Assert: No slot was ever over the capacity, and every slot counts exactly the seats still held
+		assertThat(overbooked).hasValue(0);
+		for (LocalDateTime slot : slots) {
+			int expected = held.stream()
+					.filter(booking -> !slot.isBefore(booking.start()) && slot.isBefore(booking.start().plusHours(2)))
+					.mapToInt(SeatBooking::seats)
+					.sum();
+			assertThat(engine.getBookedSeats(slot)).as("seats at %s", slot).isEqualTo(expected).isLessThanOrEqualTo(SEATS);
+		}
+	}
+}
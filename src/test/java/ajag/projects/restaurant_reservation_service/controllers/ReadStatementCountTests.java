@@ -0,0 +1,178 @@
+package ajag.projects.restaurant_reservation_service.controllers;
+
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.repositories.CustomerRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
+import ajag.projects.restaurant_reservation_service.services.CustomerService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** These tests count the SQL statements run by one request of the read endpoints, which must not grow with the number of rows read,
+ * and must be none at all when an unchanged list or customer is polled again with its ETag. */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:read-statement-count;DB_CLOSE_DELAY=-1",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		// The background jobs don't run while the statements of a request are counted
+		"notification.outbox.poll-interval=PT1H",
+		"reservation.scheduler.completion-sweep-interval=PT1H"
+})
+@AutoConfigureMockMvc
+class ReadStatementCountTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private ReservationRepository reservationRepository;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		reservationRepository.deleteAllInBatch();
+		customerRepository.deleteAllInBatch();
+		customerService.clearCache();
+	}
+
+	@Test
+	void testReservationListStatementsDoNotGrowWithTheReservations() throws Exception {
+		// Arrange: One customer with a few reservations of every status, another one with many
+		Customer few = createCustomer("few@example.com", 1);
+		Customer many = createCustomer("many@example.com", 60);
+
+		// Act
+		long fewStatements = countStatements(get("/reservations/customer/{customerId}", few.getId()), 3);
+		long manyStatements = countStatements(get("/reservations/customer/{customerId}", many.getId()), 180);
+
+		// Assert: The reservations and their customer are read with one query
+		assertThat(fewStatements).isEqualTo(1);
+		assertThat(manyStatements).isEqualTo(fewStatements);
+	}
+
+	@Test
+	void testReservationPageStatementsDoNotGrowWithTheReservations() throws Exception {
+		// Arrange: Both pages hold reservations of every status
+		Customer few = createCustomer("few@example.com", 1);
+		Customer many = createCustomer("many@example.com", 60);
+
+		// Act
+		long fewStatements = countStatements(get("/reservations/customer/{customerId}/page", few.getId()).param("limit", "200"), 3);
+		long manyStatements = countStatements(get("/reservations/customer/{customerId}/page", many.getId()).param("limit", "200"), 180);
+
+		// Assert: One query per status, however many reservations each of them has
+		assertThat(fewStatements).isEqualTo(3);
+		assertThat(manyStatements).isEqualTo(fewStatements);
+	}
+
+	@Test
+	void testCustomerLookupReadsTheCustomerOnce() throws Exception {
+		// Arrange
+		createCustomer("john@example.com", 60);
+		customerService.clearCache();
+
+		// Act: Look the customer up twice
+		statistics.clear();
+		mockMvc.perform(get("/customers/{email}", "john@example.com"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.email").value("john@example.com"));
+		long missStatements = statistics.getPrepareStatementCount();
+		statistics.clear();
+		mockMvc.perform(get("/customers/{email}", "john@example.com")).andExpect(status().isOk());
+		long hitStatements = statistics.getPrepareStatementCount();
+
+		// Assert: Only the customer is read, and only when it is not cached yet
+		assertThat(missStatements).isEqualTo(1);
+		assertThat(hitStatements).isZero();
+	}
+
+	@Test
+	void testUnchangedReservationListIsNotModified() throws Exception {
+		// Arrange: Poll the list once to get its ETag
+		Customer customer = createCustomer("john@example.com", 60);
+		String eTag = mockMvc.perform(get("/reservations/customer/{customerId}", customer.getId()))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		Long completedId = reservationRepository.findSummariesByCustomerId(customer.getId()).stream()
+				.filter(reservation -> reservation.status() == ReservationStatus.COMPLETED)
+				.findFirst().orElseThrow().id();
+
+		// Act: Poll again with the ETag, then cancel one of the reservations and poll again
+		statistics.clear();
+		mockMvc.perform(get("/reservations/customer/{customerId}", customer.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+		long notModifiedStatements = statistics.getPrepareStatementCount();
+		mockMvc.perform(patch("/reservations/{id}/cancel", completedId)).andExpect(status().isOk());
+		String changedETag = mockMvc.perform(get("/reservations/customer/{customerId}", customer.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		// Assert: The unchanged list was not read at all, the changed one was sent again with a new ETag
+		assertThat(eTag).isNotBlank();
+		assertThat(notModifiedStatements).isZero();
+		assertThat(changedETag).isNotEqualTo(eTag);
+	}
+
+	/** This method runs the request and returns the number of SQL statements it ran, after checking it returned the expected number of reservations. */
+	private long countStatements(RequestBuilder request, int expectedReservations) throws Exception {
+		statistics.clear();
+		mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$..customer.email", hasSize(expectedReservations)));
+		return statistics.getPrepareStatementCount();
+	}
+
+	/** This method saves a customer with perStatus(parameter) reservations of every status. */
+	private Customer createCustomer(String email, int perStatus) {
+		Customer customer = new Customer();
+		customer.setName("John");
+		customer.setEmail(email);
+		customer.setPhoneNumber("09222222222");
+		customer = customerRepository.save(customer);
+
+		List<Reservation> reservations = new ArrayList<>();
+		for (ReservationStatus status : ReservationStatus.values()) {
+			for (int i = 0; i < perStatus; i++) {
+				Reservation reservation = new Reservation();
+				reservation.setCustomer(customer);
+				reservation.setReservationDate(LocalDateTime.now().plusDays(1).plusMinutes(i));
+				reservation.setGuestCount(2);
+				reservation.setStatus(status);
+				reservations.add(reservation);
+			}
+		}
+		reservationRepository.saveAll(reservations);
+		return customer;
+	}
+}
@@ -0,0 +1,94 @@
+package ajag.projects.restaurant_reservation_service.controllers;
+
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.services.ReservationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** These tests connect to the reservation events over HTTP, the way a dashboard does, and check which changes are pushed to it. */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:reservation-events;DB_CLOSE_DELAY=-1",
+		"reservation.events.heartbeat-interval=PT1H",
+		"notification.outbox.poll-interval=PT1H",
+		"reservation.scheduler.completion-sweep-interval=PT1H"
+})
+class ReservationEventsTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ReservationService reservationService;
+
+	@Test
+	void testOnlyTheChangesWithinTheDateRangeArePushed() throws Exception {
+		// Arrange: a dashboard of tomorrow
+		LocalDateTime tomorrow = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1);
+		HttpResponse<Stream<String>> events = HttpClient.newHttpClient().send(
+				HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/reservations/events?from=" + tomorrow + "&until=" + tomorrow.plusDays(1))).build(),
+				HttpResponse.BodyHandlers.ofLines());
+
+		try (Stream<String> lines = events.body()) {
+			// Act: a reservation made for the day after, then one made and cancelled for tomorrow
+			createReservation("later@example.com", tomorrow.plusDays(1).withHour(19));
+			Reservation tonight = createReservation("tomorrow@example.com", tomorrow.withHour(19));
+			reservationService.cancelReservation(tonight.getId(), null);
+
+			// Assert: only the changes of tomorrow's reservation are pushed, in order
+			List<List<String>> received = CompletableFuture.supplyAsync(() -> readEvents(lines.iterator(), 2)).get(10, TimeUnit.SECONDS);
+			assertThat(events.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith("text/event-stream"));
+			assertThat(received.get(0)).contains("event:CREATED").anySatisfy(line -> assertThat(line).contains("\"reservationId\":" + tonight.getId()));
+			assertThat(received.get(1)).contains("event:CANCELLED").anySatisfy(line -> assertThat(line).contains("\"reservationId\":" + tonight.getId()));
+		}
+	}
+
+	private Reservation createReservation(String email, LocalDateTime reservationDate) {
+		Customer customer = new Customer();
+		customer.setName("John");
+		customer.setEmail(email);
+		customer.setPhoneNumber("09222222222");
+		customer.setPreferredComms(PreferredComms.EMAIL);
+		Reservation reservation = new Reservation();
+		reservation.setCustomer(customer);
+		reservation.setReservationDate(reservationDate);
+		reservation.setGuestCount(2);
+		return reservationService.createReservation(reservation);
+	}
+
+	/** This method reads the lines of the next count(parameter) events, the comments (heartbeats) left out. */
+	private static List<List<String>> readEvents(Iterator<String> lines, int count) {
+		List<List<String>> events = new ArrayList<>();
+		List<String> event = new ArrayList<>();
+		while (events.size() < count && lines.hasNext()) {
+			String line = lines.next();
+			if (line.isEmpty()) {
+				if (!event.isEmpty()) {
+					events.add(event);
+					event = new ArrayList<>();
+				}
+			} else if (!line.startsWith(":")) {
+				event.add(line);
+			}
+		}
+		return events;
+	}
+}
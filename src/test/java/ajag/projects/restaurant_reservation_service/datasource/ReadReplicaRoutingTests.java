@@ -0,0 +1,119 @@
+package ajag.projects.restaurant_reservation_service.datasource;
+
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** These tests run the application with two H2 databases, the primary one and its read replica. The replica holds an older copy of the
+ * reservation (2 guests instead of 4), as if it lagged behind, so each response tells which database it was read from. */
+@SpringBootTest(properties = {
+		"spring.datasource.url=" + ReadReplicaRoutingTests.PRIMARY_URL,
+		"reservation.datasource.replica.url=" + ReadReplicaRoutingTests.REPLICA_URL,
+		"reservation.datasource.replica.read-your-writes-window=PT1M",
+		"notification.outbox.poll-interval=PT1H",
+		"reservation.scheduler.completion-sweep-interval=PT1H"
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTests {
+
+	static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+	static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+	private static final long CUSTOMER_ID = 9001;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	// The databases are filled and checked through connections of their own, the pool of the replica is read-only
+	private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+	private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+	@BeforeAll
+	static void createReplica() {
+		// The replica gets the schema of the primary database, which Flyway creates when the application starts
+		Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+	}
+
+	@BeforeEach
+	void setUp() {
+		// Arrange: the same customer and reservation in both databases, with the older guest count in the replica
+		saveReservation(primary, 4);
+		saveReservation(replica, 2);
+	}
+
+	@Test
+	void testReadOnlyTransactionsReadTheReplica() throws Exception {
+		// Act + Assert: the reservation page is read-only, so it shows the copy of the replica
+		mockMvc.perform(get("/reservations/customer/{customerId}/page", CUSTOMER_ID))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.reservations[0].guestCount").value(2));
+	}
+
+	@Test
+	void testReservationListTaggedWithAnETagIsReadFromThePrimary() throws Exception {
+		// Act: read the reservation list without the cookie of a change, while the replica lags behind
+		MvcResult list = mockMvc.perform(get("/reservations/customer/{customerId}", CUSTOMER_ID))
+				.andExpect(status().isOk())
+				.andReturn();
+		String eTag = list.getResponse().getHeader(HttpHeaders.ETAG);
+
+		// Assert: the list holds the version of the primary database it is tagged with, the untagged page still reads the replica
+		assertThat(eTag).isNotNull();
+		mockMvc.perform(get("/reservations/customer/{customerId}", CUSTOMER_ID))
+				.andExpect(jsonPath("$[0].guestCount").value(4));
+		mockMvc.perform(get("/reservations/customer/{customerId}/page", CUSTOMER_ID))
+				.andExpect(jsonPath("$.reservations[0].guestCount").value(2));
+		mockMvc.perform(get("/reservations/customer/{customerId}", CUSTOMER_ID).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void testChangesGoToThePrimaryAndAreReadBack() throws Exception {
+		// Act: change the customer, then read the reservations with and without the cookie of the change
+		MvcResult change = mockMvc.perform(put("/customers")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("""
+								{"id": 9001, "name": "John", "email": "john@example.com", "phoneNumber": "09333333333", "preferredComms": "SMS"}"""))
+				.andExpect(status().isOk())
+				.andReturn();
+		Cookie primaryReads = change.getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME);
+
+		// Assert: the change was saved in the primary database only
+		assertThat(primary.queryForObject("SELECT phone_number FROM customers WHERE id = ?", String.class, CUSTOMER_ID))
+				.isEqualTo("09333333333");
+		assertThat(replica.queryForObject("SELECT phone_number FROM customers WHERE id = ?", String.class, CUSTOMER_ID))
+				.isEqualTo("09222222222");
+
+		// Assert: the client that made the change reads from the primary database, the others still read from the replica
+		assertThat(primaryReads).isNotNull();
+		mockMvc.perform(get("/reservations/customer/{customerId}/page", CUSTOMER_ID).cookie(primaryReads))
+				.andExpect(jsonPath("$.reservations[0].guestCount").value(4));
+		mockMvc.perform(get("/reservations/customer/{customerId}/page", CUSTOMER_ID))
+				.andExpect(jsonPath("$.reservations[0].guestCount").value(2));
+	}
+
+	private static void saveReservation(JdbcTemplate jdbcTemplate, int guestCount) {
+		jdbcTemplate.update("DELETE FROM reservations");
+		jdbcTemplate.update("MERGE INTO customers (id, name, email, phone_number, preferred_comms) KEY (id) VALUES (?, 'John', 'john@example.com', '09222222222', 'EMAIL')",
+				CUSTOMER_ID);
+		jdbcTemplate.update("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+				+ "VALUES (?, DATEADD('DAY', 1, CURRENT_TIMESTAMP), ?, 'CONFIRMED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", CUSTOMER_ID, guestCount);
+	}
+}
@@ -0,0 +1,220 @@
+package ajag.projects.restaurant_reservation_service.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** These tests turn the wheel one tick at a time with advanceTo, on a clock that only moves when told to,
+ * and check on which tick every task is fired. The tasks run on the calling thread. */
+class HierarchicalTimingWheelTests {
+
+	private static final long START = Instant.parse("2030-06-01T08:00:00Z").toEpochMilli();
+	private static final long TICK = 1;
+
+	// The first and last deadline (in ticks from the current tick) held by each of the 5 levels of 64 buckets
+	private static final long[] LEVEL_BOUNDARIES = {
+			1, 63,
+			64, 4_095,
+			4_096, 262_143,
+			262_144, 16_777_215,
+			16_777_216, 16_777_216 + 262_144 + 1
+	};
+
+	private final MutableClock clock = new MutableClock(START);
+	private final HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(clock, TICK, Runnable::run);
+
+	@Test
+	void testDeadlineInEveryLevelFiresOnItsTick() {
+		long now = START;
+		for (long delta : LEVEL_BOUNDARIES) {
+			// Arrange: The wheel is moved off the bucket boundaries, so the task has to be cascaded down to level 0
+			now += 37 * TICK;
+			wheel.advanceTo(now);
+			AtomicInteger fired = new AtomicInteger();
+			wheel.schedule(fired::incrementAndGet, Instant.ofEpochMilli(now + delta * TICK));
+
+			// Act: Turn the wheel up to the tick before the deadline
+			wheel.advanceTo(now + (delta - 1) * TICK);
+
+			// Assert
+			assertThat(fired).as("fired before its deadline, %d ticks ahead", delta).hasValue(0);
+			assertThat(wheel.size()).isEqualTo(1);
+
+			// Act: Turn the wheel onto the deadline
+			now += delta * TICK;
+			wheel.advanceTo(now);
+
+			// Assert
+			assertThat(fired).as("fired on its deadline, %d ticks ahead", delta).hasValue(1);
+			assertThat(wheel.size()).isZero();
+		}
+	}
+
+	@Test
+	void testTasksAroundTheCascadeBoundariesFireInOrder() {
+		// Arrange: A task on every tick around the first two cascade boundaries of level 1 and level 2
+		List<Long> fired = new ArrayList<>();
+		List<Long> deadlines = new ArrayList<>();
+		for (long boundary : new long[] {64, 128, 4_096, 8_192}) {
+			for (long delta = boundary - 2; delta <= boundary + 2; delta++) {
+				deadlines.add(delta);
+			}
+		}
+		for (long delta : deadlines.reversed()) {
+			wheel.schedule(() -> fired.add(delta), Instant.ofEpochMilli(START + delta * TICK));
+		}
+
+		// Act & Assert: Each tick fires the task of that tick and only that one
+		for (long delta : deadlines) {
+			wheel.advanceTo(START + (delta - 1) * TICK);
+			assertThat(fired).doesNotContain(delta);
+			wheel.advanceTo(START + delta * TICK);
+			assertThat(fired.get(fired.size() - 1)).isEqualTo(delta);
+		}
+		assertThat(fired).containsExactlyElementsOf(deadlines);
+		assertThat(wheel.size()).isZero();
+	}
+
+	@Test
+	void testPastAndCurrentDeadlinesAreFiredRightAway() {
+		// Arrange
+		wheel.advanceTo(START + 100 * TICK);
+		AtomicInteger fired = new AtomicInteger();
+
+		// Act
+		WheelTimeout past = wheel.schedule(fired::incrementAndGet, Instant.ofEpochMilli(START - 1_000));
+		WheelTimeout current = wheel.schedule(fired::incrementAndGet, Instant.ofEpochMilli(START + 100 * TICK));
+
+		// Assert: Neither was put in the wheel
+		assertThat(fired).hasValue(2);
+		assertThat(past.isExpired()).isTrue();
+		assertThat(current.isExpired()).isTrue();
+		assertThat(wheel.size()).isZero();
+	}
+
+	@Test
+	void testCancelledTaskIsNeverFired() {
+		// Arrange: One task in level 0 and one in level 2, each with a neighbour in the same bucket
+		AtomicInteger fired = new AtomicInteger();
+		WheelTimeout near = wheel.schedule(fired::incrementAndGet, Instant.ofEpochMilli(START + 10 * TICK));
+		wheel.schedule(fired::incrementAndGet, Instant.ofEpochMilli(START + 10 * TICK));
+		WheelTimeout far = wheel.schedule(fired::incrementAndGet, Instant.ofEpochMilli(START + 5_000 * TICK));
+		wheel.schedule(fired::incrementAndGet, Instant.ofEpochMilli(START + 5_000 * TICK));
+
+		// Act
+		assertThat(near.cancel()).isTrue();
+		assertThat(far.cancel()).isTrue();
+		wheel.advanceTo(START + 10_000 * TICK);
+
+		// Assert: Only the neighbours fired, and a fired or cancelled task can't be cancelled again
+		assertThat(fired).hasValue(2);
+		assertThat(near.isCancelled()).isTrue();
+		assertThat(far.isCancelled()).isTrue();
+		assertThat(near.cancel()).isFalse();
+		assertThat(wheel.size()).isZero();
+	}
+
+	@Test
+	void testFiredTaskCannotBeCancelled() {
+		// Arrange
+		WheelTimeout timeout = wheel.schedule(() -> { }, Instant.ofEpochMilli(START + 3 * TICK));
+
+		// Act
+		wheel.advanceTo(START + 3 * TICK);
+
+		// Assert
+		assertThat(timeout.isExpired()).isTrue();
+		assertThat(timeout.cancel()).isFalse();
+		assertThat(timeout.isCancelled()).isFalse();
+	}
+
+	@Test
+	void testFailingTaskDoesNotStopTheWheel() {
+		// Arrange
+		AtomicInteger fired = new AtomicInteger();
+		wheel.schedule(() -> { throw new IllegalStateException("Task failed"); }, Instant.ofEpochMilli(START + 2 * TICK));
+		wheel.schedule(fired::incrementAndGet, Instant.ofEpochMilli(START + 2 * TICK));
+		wheel.schedule(fired::incrementAndGet, Instant.ofEpochMilli(START + 3 * TICK));
+
+		// Act
+		wheel.advanceTo(START + 3 * TICK);
+
+		// Assert
+		assertThat(fired).hasValue(2);
+	}
+
+	@Test
+	void testDriverFiresDueTasksUntilClosed() throws Exception {
+		// Arrange: A wheel turned by its driver thread, every 10ms, on the clock of the test
+		MutableClock driverClock = new MutableClock(START);
+		HierarchicalTimingWheel driven = new HierarchicalTimingWheel(driverClock, 10, Runnable::run);
+		CountDownLatch fired = new CountDownLatch(1);
+		AtomicInteger firedAfterClose = new AtomicInteger();
+		driven.schedule(fired::countDown, Instant.ofEpochMilli(START + 1_000));
+
+		try {
+			// Act: Nothing is fired before start, then moving the clock past the deadline fires the task
+			driverClock.set(START + 2_000);
+			Thread.sleep(50);
+			assertThat(fired.getCount()).isEqualTo(1);
+			driven.start();
+			assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+
+			driven.close();
+			driven.schedule(firedAfterClose::incrementAndGet, Instant.ofEpochMilli(START + 3_000));
+			driverClock.set(START + 4_000);
+			Thread.sleep(100);
+		} finally {
+			driven.close();
+		}
+
+		// Assert: Once closed, the wheel is no longer turned and the pending task is dropped
+		assertThat(firedAfterClose).hasValue(0);
+		assertThat(driven.size()).isEqualTo(1);
+	}
+
+	/** This clock only moves when the test sets it. */
+	private static final class MutableClock extends Clock {
+
+		private final AtomicLong millis;
+
+		private MutableClock(long millis) {
+			this.millis = new AtomicLong(millis);
+		}
+
+		private void set(long epochMillis) {
+			millis.set(epochMillis);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public long millis() {
+			return millis.get();
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis());
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.RestaurantReservationServiceApplication;
+import ajag.projects.restaurant_reservation_service.entities.NotificationOutbox;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.NotificationType;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationRenderer;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** These tests run several nodes of the application in CLUSTERED scheduler mode against the same file-based H2 database, the way instances
+ * of the service share one database, and check that every reminder is sent exactly once whichever node claims it, that the tasks of a node
+ * that stopped are taken over, and that the nodes sending the same outbox send every notification once. */
+class ClusteredSchedulingTests {
+
+	private static final int RESERVATIONS = 150;
+
+	/** Time to render one message, so the nodes send the reminders at the same time. */
+	private static final long RENDER_MILLIS = 10;
+
+	private static final int NOTIFICATIONS = 200;
+
+	/** Time to send one notification, so the nodes send the outbox at the same time. */
+	private static final long SEND_MILLIS = 5;
+
+	@TempDir
+	Path databaseDirectory;
+
+	private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		nodes.forEach(ConfigurableApplicationContext::close);
+	}
+
+	@Test
+	void testEveryReminderIsSentOnceAcrossNodes() throws Exception {
+		// Arrange: three nodes, and the reminders due in a moment, a third of them still leased by a node that stopped
+		String databaseUrl = databaseUrl("exactly-once");
+		for (int i = 0; i < 3; i++) {
+			startNode(databaseUrl, "node-" + i);
+		}
+		JdbcTemplate jdbcTemplate = nodes.get(0).getBean(JdbcTemplate.class);
+		List<Long> reservationIds = saveReservationsDueSoon(jdbcTemplate);
+		jdbcTemplate.update("UPDATE reservation_tasks SET lease_owner = 'stopped-node', lease_until = ? WHERE reservation_id <= ?",
+				Timestamp.valueOf(LocalDateTime.now().plusSeconds(3)), reservationIds.get(RESERVATIONS / 3));
+
+		// Act: wait for every reminder, and a while longer for any reminder sent twice
+		awaitReminders(jdbcTemplate);
+		Thread.sleep(1000);
+
+		// Assert: one reminder per reservation, sent by the nodes together, and every reservation waits for its completion
+		assertThat(jdbcTemplate.queryForList("SELECT reservation_id, COUNT(*) AS reminders FROM notification_outbox WHERE type = 'REMINDER' GROUP BY reservation_id"))
+				.hasSize(RESERVATIONS)
+				.allSatisfy(row -> assertThat(((Number) row.get("REMINDERS")).intValue()).isEqualTo(1));
+		List<Double> sentPerNode = nodes.stream().map(ClusteredSchedulingTests::sentReminders).toList();
+		assertThat(sentPerNode.stream().mapToDouble(Double::doubleValue).sum()).isEqualTo(RESERVATIONS);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservation_tasks WHERE task = 'COMPLETION' AND lease_owner IS NULL", Integer.class))
+				.isEqualTo(RESERVATIONS);
+	}
+
+	@Test
+	void testEveryNotificationIsSentOnceAcrossNodes() throws Exception {
+		// Arrange: two nodes sending the outbox 10 notifications at a time, and the notifications already due
+		String databaseUrl = databaseUrl("outbox");
+		for (int i = 0; i < 2; i++) {
+			startNode(databaseUrl, "node-" + i, Duration.ofMillis(100));
+		}
+		JdbcTemplate jdbcTemplate = nodes.get(0).getBean(JdbcTemplate.class);
+		List<Object[]> notifications = new ArrayList<>();
+		for (int i = 0; i < NOTIFICATIONS; i++) {
+			notifications.add(new Object[]{i + 1, "Reminder " + i});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO notification_outbox (reservation_id, type, channel, recipient, message, status, attempts, next_attempt_at, created_at) "
+				+ "VALUES (?, 'REMINDER', 'EMAIL', 'john@example.com', ?, 'PENDING', 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", notifications);
+
+		// Act: wait for every notification to be sent, and a while longer for any notification sent twice
+		long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+		while (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_outbox WHERE status = 'SENT'", Integer.class) < NOTIFICATIONS
+				&& System.nanoTime() < deadline) {
+			Thread.sleep(100);
+		}
+		Thread.sleep(1000);
+
+		// Assert: every notification was handed to a sender once, by the nodes together, and none of them is still leased
+		List<Long> sentPerNode = nodes.stream().map(ClusteredSchedulingTests::sentNotifications).toList();
+		assertThat(sentPerNode.stream().mapToLong(Long::longValue).sum()).isEqualTo(NOTIFICATIONS);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_outbox WHERE status = 'SENT' AND lease_owner IS NULL", Integer.class))
+				.isEqualTo(NOTIFICATIONS);
+	}
+
+	@Test
+	void testNodeWithTheSeatCapacityOnRefusesToStart() {
+		// Arrange
+		SpringApplicationBuilder node = new SpringApplicationBuilder(RestaurantReservationServiceApplication.class)
+				.web(WebApplicationType.NONE)
+				.properties(
+						"spring.datasource.url=" + databaseUrl("refused"),
+						"reservation.scheduler.mode=CLUSTERED",
+						"read-watermark.enabled=false",
+						"logging.level.root=OFF");
+
+		// Act & Assert: the seats are only kept per node, two nodes could overbook a slot
+		assertThatThrownBy(node::run).rootCause().hasMessageContaining("reservation.capacity.enabled");
+	}
+
+	private String databaseUrl(String name) {
+		return "jdbc:h2:file:" + databaseDirectory.resolve(name).toAbsolutePath();
+	}
+
+	private void startNode(String databaseUrl, String nodeId) {
+		// Only the reminders run while they are counted
+		startNode(databaseUrl, nodeId, Duration.ofHours(1));
+	}
+
+	private void startNode(String databaseUrl, String nodeId, Duration outboxPollInterval) {
+		nodes.add(new SpringApplicationBuilder(RestaurantReservationServiceApplication.class, SlowRendering.class)
+				.web(WebApplicationType.NONE)
+				.properties(
+						"spring.datasource.url=" + databaseUrl,
+						"reservation.scheduler.mode=CLUSTERED",
+						"reservation.scheduler.node-id=" + nodeId,
+						"reservation.capacity.enabled=false",
+						"read-watermark.enabled=false",
+						"reservation.scheduler.claim-interval=PT0.1S",
+						"reservation.scheduler.claim-batch-size=10",
+						"reservation.scheduler.max-concurrent-db-work=1",
+						"notification.outbox.poll-interval=" + outboxPollInterval,
+						"notification.outbox.batch-size=10",
+						"reservation.scheduler.completion-sweep-interval=PT1H",
+						"logging.level.root=WARN")
+				.run());
+	}
+
+	/** This method saves the reservations with their reminder due 2 seconds from now, then saves their tasks the way a starting node does. */
+	private List<Long> saveReservationsDueSoon(JdbcTemplate jdbcTemplate) {
+		jdbcTemplate.update("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES ('John', 'john@example.com', '09222222222', 'EMAIL')");
+		Long customerId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM customers", Long.class);
+		Timestamp reservationDate = Timestamp.valueOf(LocalDateTime.now().plusHours(4).plusSeconds(2));
+		List<Object[]> reservations = new ArrayList<>();
+		for (int i = 0; i < RESERVATIONS; i++) {
+			reservations.add(new Object[]{customerId, reservationDate});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+				+ "VALUES (?, ?, 2, 'CONFIRMED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", reservations);
+
+		nodes.get(0).getBean(ReservationSchedulingService.class).initializeReservations();
+		return jdbcTemplate.queryForList("SELECT id FROM reservations ORDER BY id", Long.class);
+	}
+
+	private void awaitReminders(JdbcTemplate jdbcTemplate) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+		while (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_outbox WHERE type = 'REMINDER'", Integer.class) < RESERVATIONS
+				&& System.nanoTime() < deadline) {
+			Thread.sleep(100);
+		}
+	}
+
+	private static double sentReminders(ConfigurableApplicationContext node) {
+		return node.getBean(MeterRegistry.class).get("reservation.notifications").tag("type", NotificationType.REMINDER.name()).counter().count();
+	}
+
+	private static long sentNotifications(ConfigurableApplicationContext node) {
+		return node.getBean(MeterRegistry.class).get("notifications.send").tag("channel", PreferredComms.EMAIL.name()).tag("outcome", "success").timer().count();
+	}
+
+	/** Every message takes RENDER_MILLIS to render, as a stand-in for the work of sending a reminder,
+	 * and every notification takes SEND_MILLIS to send. */
+	@TestConfiguration(proxyBeanMethods = false)
+	static class SlowRendering {
+
+		@Bean
+		static BeanPostProcessor slowNotificationSending() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (!(bean instanceof NotificationSender sender)) {
+						return bean;
+					}
+					return new NotificationSender() {
+						@Override
+						public PreferredComms getChannel() {
+							return sender.getChannel();
+						}
+
+						@Override
+						public void send(NotificationOutbox notification) {
+							try {
+								Thread.sleep(SEND_MILLIS);
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+							sender.send(notification);
+						}
+					};
+				}
+			};
+		}
+
+		@Bean
+		@Primary
+		NotificationRenderer slowNotificationRenderer() {
+			return new NotificationRenderer() {
+				@Override
+				public String render(NotificationType type, Reservation reservation) {
+					try {
+						Thread.sleep(RENDER_MILLIS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return super.render(type, reservation);
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.NotificationOutbox;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.NotificationType;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationRenderer;
+import ajag.projects.restaurant_reservation_service.repositories.NotificationOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class MessagingServiceTests {
+
+	@Mock
+	private NotificationOutboxRepository outboxRepository;
+
+	private MessagingService messagingService;
+
+	@BeforeEach
+	void setUp() {
+		messagingService = new MessagingService(outboxRepository, new NotificationRenderer(), new SimpleMeterRegistry());
+	}
+
+	@Test
+	void testCustomerWithoutPreferredCommsIsNotifiedByEmail() {
+		// Arrange: A customer created with "preferredComms": null
+		Reservation reservation = createReservation(null);
+
+		// Act
+		messagingService.sendReservationCompletion(reservation);
+
+		// Assert: The channel, the recipient and the message all fall back to the same channel
+		NotificationOutbox notification = savedNotification();
+		assertThat(notification.getType()).isEqualTo(NotificationType.COMPLETION);
+		assertThat(notification.getChannel()).isEqualTo(PreferredComms.EMAIL);
+		assertThat(notification.getRecipient()).isEqualTo("john@example.com");
+		assertThat(notification.getMessage()).contains("Sending Reminder to: john@example.com", "Dear John");
+	}
+
+	@Test
+	void testCustomerPreferringSmsIsNotifiedBySms() {
+		// Arrange
+		Reservation reservation = createReservation(PreferredComms.SMS);
+
+		// Act
+		messagingService.sendNotification(reservation);
+
+		// Assert
+		NotificationOutbox notification = savedNotification();
+		assertThat(notification.getChannel()).isEqualTo(PreferredComms.SMS);
+		assertThat(notification.getRecipient()).isEqualTo("09222222222");
+		assertThat(notification.getMessage()).startsWith("Hi John").contains("confirmed");
+	}
+
+	private NotificationOutbox savedNotification() {
+		ArgumentCaptor<NotificationOutbox> saved = ArgumentCaptor.forClass(NotificationOutbox.class);
+		verify(outboxRepository).save(saved.capture());
+		return saved.getValue();
+	}
+
+	private Reservation createReservation(PreferredComms preferredComms) {
+		Customer customer = new Customer();
+		customer.setId(1L);
+		customer.setName("John");
+		customer.setEmail("john@example.com");
+		customer.setPhoneNumber("09222222222");
+		customer.setPreferredComms(preferredComms);
+
+		Reservation reservation = new Reservation();
+		reservation.setCustomer(customer);
+		reservation.setReservationDate(LocalDateTime.of(2030, 6, 1, 19, 0));
+		reservation.setGuestCount(2);
+		reservation.setStatus(ReservationStatus.CONFIRMED);
+		return reservation;
+	}
+}
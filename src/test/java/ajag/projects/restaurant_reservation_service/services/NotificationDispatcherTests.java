@@ -0,0 +1,164 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.entities.NotificationOutbox;
+import ajag.projects.restaurant_reservation_service.enums.NotificationType;
+import ajag.projects.restaurant_reservation_service.enums.OutboxStatus;
+import ajag.projects.restaurant_reservation_service.enums.PreferredComms;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationOutboxProperties;
+import ajag.projects.restaurant_reservation_service.notifications.NotificationSender;
+import ajag.projects.restaurant_reservation_service.repositories.NotificationOutboxRepository;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationSchedulerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTests {
+
+	@Mock
+	private NotificationOutboxRepository outboxRepository;
+
+	@Mock
+	private TransactionTemplate transactionTemplate;
+
+	private final StubSender emailSender = new StubSender(PreferredComms.EMAIL);
+
+	private NotificationDispatcher dispatcher;
+
+	@BeforeEach
+	void setUp() {
+		NotificationOutboxProperties properties = new NotificationOutboxProperties();
+		properties.setMaxAttempts(2);
+		ReservationSchedulerProperties schedulerProperties = new ReservationSchedulerProperties();
+		schedulerProperties.setNodeId("node-1");
+		dispatcher = new NotificationDispatcher(outboxRepository, List.of(emailSender), properties, schedulerProperties, transactionTemplate,
+				new SimpleMeterRegistry());
+
+		// Run the claim and the save of the batch right away
+		lenient().when(transactionTemplate.execute(ArgumentMatchers.any()))
+				.thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+		lenient().doAnswer(invocation -> {
+					Consumer<TransactionStatus> action = invocation.getArgument(0);
+					action.accept(null);
+					return null;
+				}).when(transactionTemplate).executeWithoutResult(ArgumentMatchers.any());
+	}
+
+	@Test
+	void testDispatchBatchMarksSentNotifications() {
+		// Arrange: Prepare two pending notifications
+		NotificationOutbox first = createNotification(1L, "john@example.com");
+		NotificationOutbox second = createNotification(2L, "jane@example.com");
+		claimBatch(List.of(first, second), List.of(1L, 2L));
+
+		// Act: Send the batch
+		int dispatched = dispatcher.dispatchBatch(emailSender);
+
+		// Assert: Both were handed to the sender and marked as sent
+		assertThat(dispatched).isEqualTo(2);
+		assertThat(emailSender.recipients).containsExactly("john@example.com", "jane@example.com");
+		assertThat(first.getStatus()).isEqualTo(OutboxStatus.SENT);
+		assertThat(second.getStatus()).isEqualTo(OutboxStatus.SENT);
+		assertThat(first.getLeaseOwner()).isNull();
+		verify(outboxRepository).claimByIdIn(ArgumentMatchers.eq(List.of(1L, 2L)), ArgumentMatchers.eq("node-1"), ArgumentMatchers.any());
+		verify(outboxRepository).saveAll(List.of(first, second));
+	}
+
+	@Test
+	void testDispatchBatchOnlySavesTheNotificationsStillHeld() {
+		// Arrange: The lease of the second notification expired while the batch was sent, and another node claimed it
+		NotificationOutbox first = createNotification(1L, "john@example.com");
+		NotificationOutbox second = createNotification(2L, "jane@example.com");
+		claimBatch(List.of(first, second), List.of(1L));
+
+		// Act
+		dispatcher.dispatchBatch(emailSender);
+
+		// Assert: Only the first one is saved as sent, the node holding the second one saves it
+		verify(outboxRepository).saveAll(List.of(first));
+	}
+
+	@Test
+	void testDispatchBatchRetriesThenFails() {
+		// Arrange: Prepare a notification the sender always rejects
+		emailSender.failing = true;
+		NotificationOutbox notification = createNotification(1L, "john@example.com");
+		claimBatch(List.of(notification), List.of(1L));
+
+		// Act & Assert: The first attempt is retried later on
+		dispatcher.dispatchBatch(emailSender);
+		assertThat(notification.getStatus()).isEqualTo(OutboxStatus.PENDING);
+		assertThat(notification.getAttempts()).isEqualTo(1);
+		assertThat(notification.getNextAttemptAt()).isAfter(LocalDateTime.now());
+		assertThat(notification.getLastError()).isEqualTo("provider unavailable");
+
+		// Act & Assert: The last attempt gives up
+		dispatcher.dispatchBatch(emailSender);
+		assertThat(notification.getStatus()).isEqualTo(OutboxStatus.FAILED);
+		assertThat(notification.getAttempts()).isEqualTo(2);
+	}
+
+	/** This method answers the claim of the due notifications with the batch(parameter), of which this node still holds the heldIds(parameter) once sent. */
+	private void claimBatch(List<NotificationOutbox> batch, List<Long> heldIds) {
+		List<Long> ids = batch.stream().map(NotificationOutbox::getId).toList();
+		when(outboxRepository.lockDueIds(ArgumentMatchers.eq(OutboxStatus.PENDING.name()), ArgumentMatchers.eq(PreferredComms.EMAIL.name()),
+				ArgumentMatchers.any(LocalDateTime.class), ArgumentMatchers.anyInt())).thenReturn(ids);
+		when(outboxRepository.findAllByIdInOrderByIdAsc(ids)).thenReturn(batch);
+		when(outboxRepository.lockClaimedIds(ArgumentMatchers.eq(ids), ArgumentMatchers.eq("node-1"), ArgumentMatchers.any(LocalDateTime.class)))
+				.thenReturn(heldIds);
+	}
+
+	private NotificationOutbox createNotification(Long id, String recipient) {
+		NotificationOutbox notification = new NotificationOutbox();
+		ReflectionTestUtils.setField(notification, "id", id);
+		notification.setReservationId(1L);
+		notification.setType(NotificationType.STATUS_UPDATE);
+		notification.setChannel(PreferredComms.EMAIL);
+		notification.setRecipient(recipient);
+		notification.setMessage("Your reservation for 2 guests has been confirmed.");
+		return notification;
+	}
+
+	/** A local sender that records the recipients instead of delivering anything. */
+	private static class StubSender implements NotificationSender {
+
+		private final PreferredComms channel;
+		private final List<String> recipients = new ArrayList<>();
+		private boolean failing;
+
+		StubSender(PreferredComms channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public PreferredComms getChannel() {
+			return channel;
+		}
+
+		@Override
+		public void send(NotificationOutbox notification) {
+			if (failing) {
+				throw new IllegalStateException("provider unavailable");
+			}
+			recipients.add(notification.getRecipient());
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** These tests archive the old finished reservations of a customer and check that the reservation history reads the same before and after. */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:reservation-archive;DB_CLOSE_DELAY=-1",
+		"reservation.archive.enabled=false",
+		"reservation.archive.min-age=P30D",
+		"reservation.archive.batch-size=4",
+		"notification.outbox.poll-interval=PT1H",
+		"reservation.scheduler.completion-sweep-interval=PT1H"
+})
+@AutoConfigureMockMvc
+class ReservationArchiveTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ReservationArchiver reservationArchiver;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Long customerId;
+
+	@BeforeEach
+	void setUp() {
+		// Arrange: 3 confirmed reservations, 10 completed and 5 cancelled ones over the past 100 days (5 of them in the last 30 days)
+		jdbcTemplate.update("DELETE FROM reservations_history");
+		jdbcTemplate.update("DELETE FROM reservations");
+		jdbcTemplate.update("DELETE FROM customers");
+		jdbcTemplate.update("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES ('John', 'john@example.com', '09222222222', 'EMAIL')");
+		customerId = jdbcTemplate.queryForObject("SELECT id FROM customers", Long.class);
+
+		LocalDateTime now = LocalDateTime.now().withNano(0);
+		List<Object[]> reservations = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			reservations.add(new Object[]{customerId, Timestamp.valueOf(now.plusDays(i + 1)), "CONFIRMED"});
+		}
+		for (int i = 0; i < 15; i++) {
+			reservations.add(new Object[]{customerId, Timestamp.valueOf(now.minusDays(99 - i * 7)), i % 3 == 0 ? "CANCELLED" : "COMPLETED"});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+				+ "VALUES (?, ?, 2, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", reservations);
+	}
+
+	@Test
+	void testArchivedReservationsStayInTheHistory() throws Exception {
+		// Arrange: the history as it reads before the archive
+		String list = read("/reservations/customer/{customerId}");
+		String stream = readStream();
+		List<String> pages = readPages();
+
+		// Act
+		int archived = reservationArchiver.archiveFinishedReservations();
+
+		// Assert: the finished reservations older than 30 days were moved, in batches, and the history reads the same
+		assertThat(archived).isEqualTo(10);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations", Integer.class)).isEqualTo(8);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations_history", Integer.class)).isEqualTo(10);
+		assertThat(read("/reservations/customer/{customerId}")).isEqualTo(list);
+		assertThat(readStream()).isEqualTo(stream);
+		assertThat(readPages()).isEqualTo(pages);
+	}
+
+	@Test
+	void testArchivedReservationsCannotBeChanged() throws Exception {
+		// Arrange
+		Long oldestId = jdbcTemplate.queryForObject("SELECT id FROM reservations ORDER BY reservation_date LIMIT 1", Long.class);
+
+		// Act
+		reservationArchiver.archiveFinishedReservations();
+
+		// Assert
+		mockMvc.perform(patch("/reservations/{id}/cancel", oldestId)).andExpect(status().isNotFound());
+	}
+
+	private String read(String uri) throws Exception {
+		return mockMvc.perform(get(uri, customerId))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+	}
+
+	/** The stream is written on a background thread, its response is complete once the async dispatch is done. */
+	private String readStream() throws Exception {
+		MvcResult result = mockMvc.perform(get("/reservations/customer/{customerId}/stream", customerId)).andReturn();
+		return mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+	}
+
+	/** This method reads the whole history 4 reservations at a time, so the pages cross from the live reservations to the archived ones. */
+	private List<String> readPages() throws Exception {
+		List<String> pages = new ArrayList<>();
+		String cursor = null;
+		do {
+			MockHttpServletRequestBuilder request = get("/reservations/customer/{customerId}/page", customerId).param("limit", "4");
+			if (cursor != null) {
+				request.param("cursor", cursor);
+			}
+			String page = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+			pages.add(page);
+			cursor = JsonPath.read(page, "$.nextCursor");
+		} while (cursor != null);
+		return pages;
+	}
+}
@@ -0,0 +1,71 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** These tests complete the due reservations in BULK completion mode, 4 at a time, and check that each one is completed and notified once. */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:completion-sweep;DB_CLOSE_DELAY=-1",
+		"reservation.scheduler.completion-mode=BULK",
+		"reservation.scheduler.completion-batch-size=4",
+		"reservation.scheduler.completion-sweep-interval=PT1H",
+		"notification.outbox.poll-interval=PT1H"
+})
+class ReservationCompletionSweeperTests {
+
+	@Autowired
+	private ReservationCompletionSweeper sweeper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		// Arrange: 10 confirmed reservations due in the past hour, 2 confirmed ones tomorrow and a cancelled one that is due
+		jdbcTemplate.update("DELETE FROM notification_outbox");
+		jdbcTemplate.update("DELETE FROM reservations");
+		jdbcTemplate.update("DELETE FROM customers");
+		jdbcTemplate.update("INSERT INTO customers (name, email, phone_number, preferred_comms) VALUES ('John', 'john@example.com', '09222222222', 'EMAIL')");
+		Long customerId = jdbcTemplate.queryForObject("SELECT id FROM customers", Long.class);
+
+		LocalDateTime now = LocalDateTime.now();
+		List<Object[]> reservations = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			reservations.add(new Object[]{customerId, Timestamp.valueOf(now.minusMinutes(5 + i * 5)), "CONFIRMED"});
+		}
+		reservations.add(new Object[]{customerId, Timestamp.valueOf(now.plusDays(1)), "CONFIRMED"});
+		reservations.add(new Object[]{customerId, Timestamp.valueOf(now.plusDays(1).plusHours(1)), "CONFIRMED"});
+		reservations.add(new Object[]{customerId, Timestamp.valueOf(now.minusMinutes(30)), "CANCELLED"});
+		jdbcTemplate.batchUpdate("INSERT INTO reservations (customer_id, reservation_date, guest_count, status, created_at, last_modified_at) "
+				+ "VALUES (?, ?, 2, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", reservations);
+	}
+
+	@Test
+	void testDueReservationsAreCompletedAndNotifiedOnce() {
+		// Act: the 10 due reservations take 3 batches, the second sweep finds nothing left
+		int completed = sweeper.sweepCompletedReservations();
+		int completedAgain = sweeper.sweepCompletedReservations();
+
+		// Assert
+		assertThat(completed).isEqualTo(10);
+		assertThat(completedAgain).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations WHERE status = 'COMPLETED'", Integer.class)).isEqualTo(10);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations WHERE status = 'CONFIRMED'", Integer.class)).isEqualTo(2);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservations WHERE status = 'CANCELLED'", Integer.class)).isEqualTo(1);
+		assertThat(jdbcTemplate.queryForList("SELECT reservation_id, COUNT(*) AS completions FROM notification_outbox WHERE type = 'COMPLETION' GROUP BY reservation_id"))
+				.hasSize(10)
+				.allSatisfy(row -> assertThat(((Number) row.get("COMPLETIONS")).intValue()).isEqualTo(1));
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_outbox n JOIN reservations r ON r.id = n.reservation_id "
+				+ "WHERE r.status <> 'COMPLETED'", Integer.class)).isZero();
+	}
+}
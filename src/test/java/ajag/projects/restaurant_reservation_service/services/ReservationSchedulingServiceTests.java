@@ -0,0 +1,387 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationTaskRepository;
+import ajag.projects.restaurant_reservation_service.scheduling.HierarchicalTimingWheel;
+import ajag.projects.restaurant_reservation_service.scheduling.ReservationSchedulerProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationSchedulingServiceTests {
+
+	private static final int THREADS = 16;
+
+	@Mock
+	private ReservationRepository reservationRepository;
+
+	@Mock
+	private ReservationTaskRepository taskRepository;
+
+	@Mock
+	private MessagingService messagingService;
+
+	@Mock
+	private TransactionTemplate transactionTemplate;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	private ExecutorService workers;
+	private HierarchicalTimingWheel timingWheel;
+	private ReservationSchedulingService schedulingService;
+	private ReservationSchedulerProperties properties;
+	private SimpleMeterRegistry meterRegistry;
+
+	/** The status of every reservation as the database holds it, changed by the mocked conditional update. */
+	private final Map<Long, ReservationStatus> statuses = new ConcurrentHashMap<>();
+	private final Map<Long, AtomicInteger> completions = new ConcurrentHashMap<>();
+
+	@BeforeEach
+	void setUp() {
+		workers = Executors.newVirtualThreadPerTaskExecutor();
+		// The wheel is not started, the tests turn it themselves with advanceTo.
+		timingWheel = new HierarchicalTimingWheel(Clock.systemDefaultZone(), 1000, workers);
+		properties = new ReservationSchedulerProperties();
+		properties.setMaxConcurrentDbWork(2);
+		meterRegistry = new SimpleMeterRegistry();
+		schedulingService = createSchedulingService(timingWheel);
+
+		// Run the transactions of the due tasks right away
+		lenient().doAnswer(invocation -> {
+					Consumer<TransactionStatus> action = invocation.getArgument(0);
+					action.accept(null);
+					return null;
+				}).when(transactionTemplate).executeWithoutResult(ArgumentMatchers.any());
+		// Complete the reservation only if it is still CONFIRMED, like the database does, and count the completion messages per reservation
+		lenient().when(reservationRepository.updateStatusByIdAndStatus(ArgumentMatchers.anyLong(), ArgumentMatchers.eq(ReservationStatus.CONFIRMED),
+						ArgumentMatchers.eq(ReservationStatus.COMPLETED), ArgumentMatchers.any()))
+				.thenAnswer(invocation -> statuses.replace(invocation.getArgument(0), ReservationStatus.CONFIRMED, ReservationStatus.COMPLETED) ? 1 : 0);
+		lenient().doAnswer(invocation -> {
+					Reservation reservation = invocation.getArgument(0);
+					completions.computeIfAbsent(reservation.getId(), id -> new AtomicInteger()).incrementAndGet();
+					return null;
+				}).when(messagingService).sendReservationCompletion(ArgumentMatchers.any(Reservation.class));
+	}
+
+	@AfterEach
+	void tearDown() {
+		timingWheel.close();
+		workers.shutdownNow();
+	}
+
+	@Test
+	void testConcurrentScheduleCancelAndUpdate() throws Exception {
+		// Arrange: Prepare reservations in the next days, so nothing is due during the test
+		List<Reservation> reservations = createReservations(200, Duration.ofDays(1));
+
+		// Act: Hammer the schedules of the same reservations from many threads at once
+		runConcurrently(() -> {
+			for (int i = 0; i < 5_000; i++) {
+				Reservation reservation = reservations.get(ThreadLocalRandom.current().nextInt(reservations.size()));
+				switch (ThreadLocalRandom.current().nextInt(3)) {
+					case 0 -> schedulingService.addReservationSchedules(reservation);
+					case 1 -> schedulingService.cancelReservationSchedule(reservation.getId());
+					default -> schedulingService.updateReservationReminder(reservation);
+				}
+			}
+		});
+
+		// Assert: Every pending task in the wheel is registered, nothing leaked
+		assertThat(schedulingService.getPendingTaskCount()).isLessThanOrEqualTo(reservations.size());
+		assertThat(timingWheel.size()).isEqualTo(schedulingService.getPendingTaskCount());
+
+		// Assert: Cancelling everything leaves nothing behind
+		reservations.forEach(reservation -> schedulingService.cancelReservationSchedule(reservation.getId()));
+		assertThat(schedulingService.getPendingTaskCount()).isZero();
+		assertThat(timingWheel.size()).isZero();
+	}
+
+	@Test
+	void testTasksFiringWhileCancellingAndUpdating() throws Exception {
+		// Arrange: Prepare reservations within the next 4 hours, so only the completion task is scheduled.
+		// The other threads only cancel and update the first half, the second half is left scheduled
+		List<Reservation> reservations = createReservations(500, Duration.ofMinutes(30));
+		reservations.forEach(schedulingService::addReservationSchedules);
+		List<Reservation> changed = reservations.subList(0, reservations.size() / 2);
+		List<Reservation> untouched = reservations.subList(reservations.size() / 2, reservations.size());
+
+		// Act: Fire every task from one thread while the other threads keep cancelling and updating the same reservations
+		AtomicInteger callers = new AtomicInteger();
+		CountDownLatch turning = new CountDownLatch(1);
+		runConcurrently(() -> {
+			if (callers.getAndIncrement() == 0) {
+				turning.countDown();
+				timingWheel.advanceTo(System.currentTimeMillis() + Duration.ofHours(2).toMillis());
+				return;
+			}
+			assertThat(awaitUninterruptibly(turning)).isTrue();
+			for (int i = 0; i < 1_000; i++) {
+				Reservation reservation = changed.get(ThreadLocalRandom.current().nextInt(changed.size()));
+				if (ThreadLocalRandom.current().nextBoolean()) {
+					schedulingService.cancelReservationSchedule(reservation.getId());
+				} else {
+					schedulingService.updateReservationReminder(reservation);
+				}
+			}
+		});
+		timingWheel.advanceTo(System.currentTimeMillis() + Duration.ofHours(2).toMillis());
+		workers.shutdown();
+		assertThat(workers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		// Assert: Every reservation left scheduled was completed and notified once,
+		// the changed ones at most once, and only the reservations completed in the database were notified
+		for (Reservation reservation : untouched) {
+			assertThat(statuses.get(reservation.getId())).isEqualTo(ReservationStatus.COMPLETED);
+			assertThat(completions.get(reservation.getId())).hasValue(1);
+		}
+		for (Reservation reservation : changed) {
+			assertThat(completions.getOrDefault(reservation.getId(), new AtomicInteger()).get()).isLessThanOrEqualTo(1);
+		}
+		long completed = statuses.values().stream().filter(status -> status == ReservationStatus.COMPLETED).count();
+		assertThat(completions.values().stream().mapToLong(AtomicInteger::get).sum()).isEqualTo(completed);
+		assertThat(schedulingService.getPendingTaskCount()).isZero();
+		assertThat(timingWheel.size()).isZero();
+	}
+
+	@Test
+	void testDueTasksAreMeasured() throws Exception {
+		// Arrange: Prepare reservations within the next 4 hours, so only the completion task is scheduled
+		List<Reservation> reservations = createReservations(10, Duration.ofMinutes(30));
+		reservations.forEach(schedulingService::addReservationSchedules);
+		assertThat(meterRegistry.get("reservation.scheduler.pending.tasks").gauge().value()).isEqualTo(10);
+
+		// Act: Turn the wheel an hour past the reservations, as if the scheduler had fallen behind
+		timingWheel.advanceTo(System.currentTimeMillis() + Duration.ofHours(2).toMillis());
+		workers.shutdown();
+		assertThat(workers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		// Assert: Every completion was timed and none of them fired on time
+		Timer fireLag = meterRegistry.get("reservation.scheduler.fire.lag").tag("task", "completion").timer();
+		assertThat(fireLag.count()).isEqualTo(10);
+		assertThat(fireLag.totalTime(TimeUnit.MINUTES)).isPositive();
+		assertThat(meterRegistry.get("reservation.scheduler.task.duration").tag("task", "completion").timer().count()).isEqualTo(10);
+		assertThat(meterRegistry.get("reservation.scheduler.pending.tasks").gauge().value()).isZero();
+	}
+
+	@Test
+	void testReservationsBeyondTheLoadWindowWaitForTheRefill() {
+		// Arrange: A 2-hour load window read 2 reservations at a time, with 3 reservations inside it and one 6 hours ahead
+		properties.setLoadWindow(Duration.ofHours(2));
+		properties.setLoadPageSize(2);
+		List<Reservation> reservations = createReservations(3, Duration.ofMinutes(30));
+		Reservation later = createReservation(4L, LocalDateTime.now().plusHours(6));
+		reservations.add(later);
+		Map<Long, AtomicInteger> loads = storeReservations(reservations);
+
+		// Act
+		schedulingService.initializeReservations();
+		schedulingService.addReservationSchedules(later);
+
+		// Assert: The reservation beyond the window is neither loaded nor scheduled when it is created
+		assertThat(loads).doesNotContainKey(later.getId());
+		assertThat(schedulingService.getPendingTaskCount()).isEqualTo(3);
+		assertThat(timingWheel.size()).isEqualTo(3);
+
+		// Act: The window moves on to 8 hours ahead, as it would after 6 hours
+		properties.setLoadWindow(Duration.ofHours(8));
+		schedulingService.refillReservations();
+
+		// Assert: The refill reached it
+		assertThat(loads.get(later.getId())).hasValue(1);
+		assertThat(schedulingService.getPendingTaskCount()).isEqualTo(4);
+		assertThat(timingWheel.size()).isEqualTo(4);
+	}
+
+	@Test
+	void testRefillOverlapDoesNotScheduleTwice() throws Exception {
+		// Arrange: A reservation at the end of the 2-hour load window, within the two refill intervals the next refill reads again
+		HierarchicalTimingWheel wheel = spy(timingWheel);
+		ReservationSchedulingService service = createSchedulingService(wheel);
+		properties.setLoadWindow(Duration.ofHours(2));
+		Reservation reservation = createReservation(1L, LocalDateTime.now().plusHours(2).minusMinutes(10));
+		Map<Long, AtomicInteger> loads = storeReservations(new ArrayList<>(List.of(reservation)));
+		service.initializeReservations();
+
+		// Act
+		service.refillReservations();
+		wheel.advanceTo(System.currentTimeMillis() + Duration.ofHours(3).toMillis());
+		workers.shutdown();
+		assertThat(workers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		// Assert: The reservation was read by both loads, but scheduled and completed once
+		assertThat(loads.get(reservation.getId())).hasValue(2);
+		verify(wheel, times(1)).schedule(ArgumentMatchers.any(), ArgumentMatchers.any());
+		assertThat(completions.get(reservation.getId())).hasValue(1);
+		assertThat(service.getPendingTaskCount()).isZero();
+	}
+
+	@Test
+	void testScheduleChangesWaitForTheCommit() {
+		// Arrange: A reservation scheduled outside of any transaction, and a later time to move it to
+		Reservation reservation = createReservation(1L, LocalDateTime.now().plusDays(1));
+		schedulingService.addReservationSchedules(reservation);
+		Reservation moved = createReservation(1L, LocalDateTime.now().plusDays(2));
+
+		// Act: Cancel it in a transaction that is rolled back, e.g., on the version check at commit
+		inTransaction(() -> schedulingService.cancelReservationSchedule(1L), false);
+
+		// Assert: The schedule is left as it was
+		assertThat(schedulingService.getPendingTaskCount()).isEqualTo(1);
+		assertThat(timingWheel.size()).isEqualTo(1);
+
+		// Act: Move it in a transaction that is committed
+		inTransaction(() -> {
+			schedulingService.updateReservationReminder(moved);
+			// Assert: Nothing changes before the commit
+			assertThat(timingWheel.size()).isEqualTo(1);
+		}, true);
+
+		// Assert: The old schedule is cancelled and the new one is in the wheel
+		assertThat(schedulingService.getPendingTaskCount()).isEqualTo(1);
+		assertThat(timingWheel.size()).isEqualTo(1);
+
+		// Act: Cancel it in a transaction that is committed
+		inTransaction(() -> schedulingService.cancelReservationSchedule(1L), true);
+
+		// Assert
+		assertThat(schedulingService.getPendingTaskCount()).isZero();
+		assertThat(timingWheel.size()).isZero();
+	}
+
+	/** This method runs the work(parameter) as if in a transaction, then ends it with a commit or a rollback as told by committed(parameter). */
+	private static void inTransaction(Runnable work, boolean committed) {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			work.run();
+			List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+			if (committed) {
+				TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+			}
+			TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+					committed ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	private ReservationSchedulingService createSchedulingService(HierarchicalTimingWheel wheel) {
+		return new ReservationSchedulingService(wheel, reservationRepository, taskRepository, messagingService, properties, eventPublisher,
+				transactionTemplate, workers, meterRegistry);
+	}
+
+	/** This method answers the page query of the confirmed reservations from the reservations(parameter), the way the database does,
+	 * and counts how many times each reservation was read. */
+	private Map<Long, AtomicInteger> storeReservations(List<Reservation> reservations) {
+		Map<Long, AtomicInteger> loads = new ConcurrentHashMap<>();
+		when(reservationRepository.findPageByStatusDueBefore(ArgumentMatchers.eq(ReservationStatus.CONFIRMED), ArgumentMatchers.any(), ArgumentMatchers.any(),
+				ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer(invocation -> {
+					LocalDateTime afterDate = invocation.getArgument(1);
+					Long afterId = invocation.getArgument(2);
+					LocalDateTime until = invocation.getArgument(3);
+					Pageable page = invocation.getArgument(4);
+					List<Reservation> found = reservations.stream()
+							.filter(reservation -> reservation.getReservationDate().isBefore(until))
+							.filter(reservation -> reservation.getReservationDate().isAfter(afterDate)
+									|| (reservation.getReservationDate().isEqual(afterDate) && reservation.getId() > afterId))
+							.sorted(Comparator.comparing(Reservation::getReservationDate).thenComparing(Reservation::getId))
+							.limit(page.getPageSize())
+							.toList();
+					found.forEach(reservation -> loads.computeIfAbsent(reservation.getId(), id -> new AtomicInteger()).incrementAndGet());
+					return found;
+				});
+		return loads;
+	}
+
+	private List<Reservation> createReservations(int count, Duration ahead) {
+		List<Reservation> reservations = new ArrayList<>();
+		for (long id = 1; id <= count; id++) {
+			reservations.add(createReservation(id, LocalDateTime.now().plus(ahead).plusMinutes(id % 60)));
+		}
+		return reservations;
+	}
+
+	private Reservation createReservation(long id, LocalDateTime reservationDate) {
+		Customer customer = new Customer();
+		customer.setId(1L);
+		customer.setName("John");
+		customer.setEmail("john@example.com");
+
+		Reservation reservation = new Reservation();
+		ReflectionTestUtils.setField(reservation, "id", id);
+		reservation.setCustomer(customer);
+		reservation.setReservationDate(reservationDate);
+		reservation.setGuestCount(2);
+		statuses.put(id, ReservationStatus.CONFIRMED);
+		return reservation;
+	}
+
+	private static boolean awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			return latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void runConcurrently(Runnable work) throws Exception {
+		ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(callers.submit(() -> {
+				start.await();
+				work.run();
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		callers.shutdown();
+	}
+}
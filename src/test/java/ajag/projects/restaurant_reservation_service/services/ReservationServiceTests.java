@@ -0,0 +1,284 @@
+package ajag.projects.restaurant_reservation_service.services;
+
+import ajag.projects.restaurant_reservation_service.dtos.BatchResult;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationCursor;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationPage;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationReschedule;
+import ajag.projects.restaurant_reservation_service.dtos.ReservationSummary;
+import ajag.projects.restaurant_reservation_service.entities.Customer;
+import ajag.projects.restaurant_reservation_service.entities.Reservation;
+import ajag.projects.restaurant_reservation_service.enums.ReservationStatus;
+import ajag.projects.restaurant_reservation_service.exceptions.InvalidStatusException;
+import ajag.projects.restaurant_reservation_service.exceptions.InvalidValueException;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationArchiveRepository;
+import ajag.projects.restaurant_reservation_service.repositories.ReservationRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationServiceTests {
+
+	private static final Long CUSTOMER_ID = 7L;
+
+	@Mock
+	private ReservationRepository reservationRepository;
+
+	@Mock
+	private ReservationArchiveRepository archiveRepository;
+
+	@Mock
+	private CustomerService customerService;
+
+	@Mock
+	private ReservationSchedulingService schedulingService;
+
+	@Mock
+	private MessagingService messagingService;
+
+	@Mock
+	private SeatCapacityService seatCapacityService;
+
+	@Mock
+	private EntityManager entityManager;
+
+	@Mock
+	private TransactionTemplate transactionTemplate;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	private ReservationService reservationService;
+
+	@BeforeEach
+	void setUp() {
+		reservationService = new ReservationService(reservationRepository, archiveRepository, customerService, schedulingService, messagingService,
+				seatCapacityService, entityManager, transactionTemplate, eventPublisher, 3, 3, 100, 3);
+	}
+
+	@Test
+	void testReservationPageContinuesWithTheNextStatus() {
+		// Arrange: One confirmed reservation, then two completed ones
+		LocalDateTime date = LocalDateTime.now().plusDays(1);
+		ReservationSummary confirmed = createSummary(1L, ReservationStatus.CONFIRMED, date);
+		ReservationSummary firstCompleted = createSummary(2L, ReservationStatus.COMPLETED, date);
+		ReservationSummary secondCompleted = createSummary(3L, ReservationStatus.COMPLETED, date.plusHours(1));
+		when(reservationRepository.findSummaryPageByCustomerAndStatus(CUSTOMER_ID, ReservationStatus.CONFIRMED, PageRequest.ofSize(3)))
+				.thenReturn(List.of(confirmed));
+		when(reservationRepository.findSummaryPageByCustomerAndStatus(CUSTOMER_ID, ReservationStatus.COMPLETED, PageRequest.ofSize(2)))
+				.thenReturn(List.of(firstCompleted, secondCompleted));
+
+		// Act: Ask for more than the maximum page size
+		ReservationPage page = reservationService.getCustomerReservationPage(CUSTOMER_ID, null, 10);
+
+		// Assert: The page is capped and points after the last completed reservation
+		assertThat(page.reservations()).containsExactly(confirmed, firstCompleted, secondCompleted);
+		assertThat(ReservationCursor.decode(page.nextCursor())).isEqualTo(ReservationCursor.of(secondCompleted));
+	}
+
+	@Test
+	void testReservationPageResumesAfterTheCursor() {
+		// Arrange: The previous page ended in the middle of the completed reservations
+		LocalDateTime date = LocalDateTime.now().plusDays(1);
+		String cursor = new ReservationCursor(ReservationStatus.COMPLETED, date, 3L).encode();
+		ReservationSummary completed = createSummary(4L, ReservationStatus.COMPLETED, date);
+		when(reservationRepository.findSummaryPageByCustomerAndStatusAfter(CUSTOMER_ID, ReservationStatus.COMPLETED, date, 3L, PageRequest.ofSize(3)))
+				.thenReturn(List.of(completed));
+		when(reservationRepository.findSummaryPageByCustomerAndStatus(
+				ArgumentMatchers.eq(CUSTOMER_ID), ArgumentMatchers.eq(ReservationStatus.CANCELLED), ArgumentMatchers.any()))
+				.thenReturn(List.of());
+
+		// Act: Ask for the next page
+		ReservationPage page = reservationService.getCustomerReservationPage(CUSTOMER_ID, cursor, null);
+
+		// Assert: This is the last page
+		assertThat(page.reservations()).containsExactly(completed);
+		assertThat(page.nextCursor()).isNull();
+	}
+
+	@Test
+	void testReservationPageRejectsInvalidCursor() {
+		// Act & Assert
+		assertThatThrownBy(() -> reservationService.getCustomerReservationPage(CUSTOMER_ID, "not-a-cursor", null))
+				.isInstanceOf(InvalidValueException.class);
+	}
+
+	@Test
+	void testRescheduleReservationsReportsEveryItem() {
+		// Arrange: Two reservations exist, the third one doesn't
+		LocalDateTime date = LocalDateTime.now().plusDays(1);
+		Reservation first = createReservation(1L, ReservationStatus.CONFIRMED, date);
+		Reservation second = createReservation(2L, ReservationStatus.CONFIRMED, date);
+		when(reservationRepository.findAllWithCustomerByIdIn(Set.of(1L, 2L, 3L))).thenReturn(List.of(first, second));
+
+		// Act: Move the first one, move the second one to the past and move the missing one
+		BatchResult result = reservationService.rescheduleReservations(List.of(
+				new ReservationReschedule(1L, date.plusHours(2), 4),
+				new ReservationReschedule(2L, LocalDateTime.now().minusDays(1), 4),
+				new ReservationReschedule(3L, date, 2)));
+
+		// Assert: Only the first one is changed, rescheduled and notified
+		assertThat(result.succeeded()).isEqualTo(1);
+		assertThat(result.items()).extracting("status").containsExactly(200, 400, 404);
+		assertThat(first.getReservationDate()).isEqualTo(date.plusHours(2));
+		verify(reservationRepository).saveAll(List.of(first));
+		verify(schedulingService).updateReservationReminders(List.of(first));
+		verify(messagingService).sendNotifications(List.of(first));
+	}
+
+	@Test
+	void testRescheduleReservationsRefusesUnconfirmedReservations() {
+		// Arrange: Only the first reservation is still confirmed
+		LocalDateTime date = LocalDateTime.now().plusDays(1);
+		Reservation confirmed = createReservation(1L, ReservationStatus.CONFIRMED, date);
+		Reservation cancelled = createReservation(2L, ReservationStatus.CANCELLED, date);
+		Reservation completed = createReservation(3L, ReservationStatus.COMPLETED, date);
+		when(reservationRepository.findAllWithCustomerByIdIn(Set.of(1L, 2L, 3L))).thenReturn(List.of(confirmed, cancelled, completed));
+
+		// Act
+		BatchResult result = reservationService.rescheduleReservations(List.of(
+				new ReservationReschedule(1L, date.plusHours(2), 4),
+				new ReservationReschedule(2L, date.plusHours(2), 4),
+				new ReservationReschedule(3L, date.plusHours(2), 4)));
+
+		// Assert: The cancelled and completed ones are left as they are and get no reminder
+		assertThat(result.items()).extracting("status").containsExactly(200, 409, 409);
+		assertThat(cancelled.getReservationDate()).isEqualTo(date);
+		assertThat(completed.getReservationDate()).isEqualTo(date);
+		verify(reservationRepository).saveAll(List.of(confirmed));
+		verify(schedulingService).updateReservationReminders(List.of(confirmed));
+		verify(messagingService).sendNotifications(List.of(confirmed));
+	}
+
+	@Test
+	void testUpdateReservationRefusesUnconfirmedReservation() {
+		// Arrange
+		LocalDateTime date = LocalDateTime.now().plusDays(1);
+		Reservation cancelled = createReservation(1L, ReservationStatus.CANCELLED, date);
+		when(reservationRepository.findById(1L)).thenReturn(Optional.of(cancelled));
+
+		// Act & Assert: Refused, so the cancelled reservation gets no reminder
+		assertThatThrownBy(() -> reservationService.updateReservation(1L, date.plusHours(2), 4, null))
+				.isInstanceOf(InvalidStatusException.class);
+		assertThat(cancelled.getReservationDate()).isEqualTo(date);
+		verify(reservationRepository, never()).save(cancelled);
+		verify(schedulingService, never()).updateReservationReminder(cancelled);
+	}
+
+	@Test
+	void testCancelReservationsCancelsOnlyConfirmedReservations() {
+		// Arrange: The first reservation is confirmed, the second one is already cancelled and the third one doesn't exist
+		LocalDateTime date = LocalDateTime.now().plusDays(1);
+		Reservation confirmed = createReservation(1L, ReservationStatus.CONFIRMED, date);
+		Reservation cancelled = createReservation(2L, ReservationStatus.CANCELLED, date);
+		when(reservationRepository.lockIdsByIdInAndStatus(Set.of(1L, 2L, 3L), ReservationStatus.CONFIRMED.name())).thenReturn(List.of(1L));
+		when(reservationRepository.findAllWithCustomerByIdIn(Set.of(1L, 2L, 3L))).thenReturn(List.of(confirmed, cancelled));
+
+		// Act
+		BatchResult result = reservationService.cancelReservations(List.of(1L, 2L, 3L));
+
+		// Assert: Only the confirmed one is updated, gives back its seats and is notified
+		assertThat(result.items()).extracting("status").containsExactly(200, 409, 404);
+		verify(reservationRepository).updateStatusByIdInAndStatus(ArgumentMatchers.eq(Set.of(1L)), ArgumentMatchers.eq(ReservationStatus.CONFIRMED),
+				ArgumentMatchers.eq(ReservationStatus.CANCELLED), ArgumentMatchers.any());
+		verify(seatCapacityService).release(confirmed);
+		verify(seatCapacityService, never()).release(cancelled);
+		verify(schedulingService).cancelReservationSchedules(Set.of(1L));
+		verify(messagingService).sendNotifications(List.of(confirmed));
+	}
+
+	@Test
+	void testDeleteReservationCancelsItsSchedule() {
+		// Arrange
+		Reservation reservation = createReservation(1L, ReservationStatus.CONFIRMED, LocalDateTime.now().plusDays(1));
+		when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
+
+		// Act
+		reservationService.deleteReservationById(1L);
+
+		// Assert: The deleted reservation gets no reminder
+		verify(reservationRepository).delete(reservation);
+		verify(seatCapacityService).release(reservation);
+		verify(schedulingService).cancelReservationSchedule(1L);
+	}
+
+	@Test
+	void testCancelReservationIsRetriedAfterConflict() {
+		// Arrange: The first attempt conflicts with another change of the same reservation, which is only found
+		// by the version check when the update is flushed at commit, after the whole cancellation ran
+		Reservation reservation = createReservation(1L, ReservationStatus.CONFIRMED, LocalDateTime.now().plusDays(1));
+		AtomicInteger commits = new AtomicInteger();
+		when(transactionTemplate.execute(ArgumentMatchers.any())).thenAnswer(invocation -> {
+			Object result = invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+			if (commits.incrementAndGet() == 1) {
+				throw new ObjectOptimisticLockingFailureException(Reservation.class, 1L);
+			}
+			return result;
+		});
+		when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
+		when(reservationRepository.save(reservation)).thenReturn(reservation);
+
+		// Act
+		Reservation canceled = reservationService.cancelReservation(1L, null);
+
+		// Assert: The second attempt canceled the latest version and was committed
+		assertThat(canceled.getStatus()).isEqualTo(ReservationStatus.CANCELLED);
+		assertThat(commits).hasValue(2);
+		verify(reservationRepository, times(2)).findById(1L);
+		verify(schedulingService, times(2)).cancelReservationSchedule(1L);
+	}
+
+	@Test
+	void testCancelReservationRefusesStaleVersion() {
+		// Arrange: The reservation was changed since the client read it (version 0)
+		Reservation reservation = createReservation(1L, ReservationStatus.CONFIRMED, LocalDateTime.now().plusDays(1));
+		ReflectionTestUtils.setField(reservation, "version", 1L);
+		when(transactionTemplate.execute(ArgumentMatchers.any()))
+				.thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+		when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
+
+		// Act & Assert: Refused right away, without retrying
+		assertThatThrownBy(() -> reservationService.cancelReservation(1L, 0L))
+				.isInstanceOf(ObjectOptimisticLockingFailureException.class);
+		assertThat(reservation.getStatus()).isEqualTo(ReservationStatus.CONFIRMED);
+		verify(reservationRepository).findById(1L);
+	}
+
+	private Reservation createReservation(Long id, ReservationStatus status, LocalDateTime date) {
+		Customer customer = new Customer();
+		customer.setId(CUSTOMER_ID);
+		Reservation reservation = new Reservation();
+		ReflectionTestUtils.setField(reservation, "id", id);
+		reservation.setCustomer(customer);
+		reservation.setStatus(status);
+		reservation.setReservationDate(date);
+		return reservation;
+	}
+
+	private ReservationSummary createSummary(Long id, ReservationStatus status, LocalDateTime date) {
+		return new ReservationSummary(id, null, date, 2, status, null, null, 0L);
+	}
+}